@@ -2,9 +2,12 @@ open module language.soup.core {
     requires obp.sli.runtime;
     requires obp.algos;
     requires org.antlr.antlr4.runtime;
+    exports soup.analysis;
+    exports soup.optimization;
     exports soup.syntax;
     exports soup.syntax.model;
     exports soup.semantics.base;
+    exports soup.semantics.compiled;
     exports soup.semantics.dependent;
     exports soup.semantics.diagnosis;
     exports soup.syntax.model.declarations;
@@ -0,0 +1,98 @@
+package soup.analysis;
+
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The static independence relation between the pieces of a soup, from their read and write sets.
+ * <p>
+ * A piece reads the variables of its guard and of its effect, and writes the targets of its assignments. Two pieces
+ * are independent if neither writes a variable the other reads or writes: firing one can neither enable nor disable
+ * the other, and firing both in either order leads to the same state.
+ */
+public class Independence {
+    final List<Set<String>> reads = new ArrayList<>();
+    final List<Set<String>> writes = new ArrayList<>();
+    final Map<AnonymousPiece, Integer> indices = new IdentityHashMap<>();
+    final Map<String, BitSet> writers = new HashMap<>();
+    final BitSet[] dependents;
+
+    public Independence(Soup soup) {
+        var count = soup.pieces.size();
+        for (int i = 0; i < count; i++) {
+            var piece = soup.pieces.get(i);
+            indices.put(piece, i);
+            var accesses = VariableAccesses.of(piece);
+            var read = new LinkedHashSet<>(accesses.reads);
+            read.addAll(accesses.primedReads);
+            reads.add(read);
+            writes.add(accesses.writes);
+            for (var name : accesses.writes) {
+                writers.computeIfAbsent(name, _ -> new BitSet()).set(i);
+            }
+        }
+        this.dependents = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            dependents[i] = new BitSet();
+            for (int j = 0; j < count; j++) {
+                if (i == j || conflict(i, j) || conflict(j, i)) dependents[i].set(j);
+            }
+        }
+    }
+
+    boolean conflict(int writer, int other) {
+        return !Collections.disjoint(writes.get(writer), reads.get(other))
+                || !Collections.disjoint(writes.get(writer), writes.get(other));
+    }
+
+    public int indexOf(AnonymousPiece piece) {
+        var index = indices.get(piece);
+        return index == null ? -1 : index;
+    }
+
+    public Set<String> reads(int piece) {
+        return reads.get(piece);
+    }
+
+    public Set<String> writes(int piece) {
+        return writes.get(piece);
+    }
+
+    public boolean independent(int first, int second) {
+        return !dependents[first].get(second);
+    }
+
+    public boolean independent(AnonymousPiece first, AnonymousPiece second) {
+        return independent(indexOf(first), indexOf(second));
+    }
+
+    /**
+     * @return the pieces dependent on the piece, itself included, in increasing order
+     */
+    public int[] dependents(int piece) {
+        return dependents[piece].stream().toArray();
+    }
+
+    /**
+     * @return the pieces writing one of the variables, in increasing order
+     */
+    public int[] writers(Collection<String> variables) {
+        var result = new BitSet();
+        for (var name : variables) {
+            var pieces = writers.get(name);
+            if (pieces != null) result.or(pieces);
+        }
+        return result.stream().toArray();
+    }
+}
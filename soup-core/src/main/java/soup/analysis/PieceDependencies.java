@@ -0,0 +1,59 @@
+package soup.analysis;
+
+import soup.syntax.model.declarations.Soup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indexes, for each piece of a soup, the variables its guard reads and its effect may write, and for each variable the
+ * pieces whose guard reads it.
+ * <p>
+ * A successor only differs from its parent on the variables written by the fired effect, so the guards it may enable or
+ * disable are those of {@link #affected(Collection)}.
+ */
+public class PieceDependencies {
+    final List<Set<String>> guardReads = new ArrayList<>();
+    final List<Set<String>> effectWrites = new ArrayList<>();
+    final Map<String, BitSet> readers = new HashMap<>();
+
+    public PieceDependencies(Soup soup) {
+        for (int i = 0; i < soup.pieces.size(); i++) {
+            var piece = soup.pieces.get(i);
+            var guard = VariableAccesses.of(piece.guard);
+            var reads = new LinkedHashSet<>(guard.reads);
+            reads.addAll(guard.primedReads);
+            guardReads.add(reads);
+            effectWrites.add(VariableAccesses.of(piece.effect).writes);
+            for (var name : reads) {
+                readers.computeIfAbsent(name, _ -> new BitSet()).set(i);
+            }
+        }
+    }
+
+    public Set<String> guardReads(int piece) {
+        return guardReads.get(piece);
+    }
+
+    public Set<String> effectWrites(int piece) {
+        return effectWrites.get(piece);
+    }
+
+    /**
+     * @return the indices, in increasing order, of the pieces whose guard reads one of the changed variables
+     */
+    public int[] affected(Collection<String> changed) {
+        var affected = new BitSet();
+        for (var name : changed) {
+            var pieces = readers.get(name);
+            if (pieces != null) affected.or(pieces);
+        }
+        return affected.stream().toArray();
+    }
+}
@@ -0,0 +1,218 @@
+package soup.analysis;
+
+import soup.syntax.model.FunctionalVisitorBase;
+import soup.syntax.model.SyntaxTreeElement;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.declarations.VariableDeclaration;
+import soup.syntax.model.expressions.ConditionalExpression;
+import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.binary.BinaryExpression;
+import soup.syntax.model.expressions.binary.arithmetic.*;
+import soup.syntax.model.expressions.literals.BooleanLiteral;
+import soup.syntax.model.expressions.literals.DoubleLiteral;
+import soup.syntax.model.expressions.literals.IntegerLiteral;
+import soup.syntax.model.expressions.unary.MinusExpression;
+import soup.syntax.model.expressions.unary.NotExpression;
+import soup.syntax.model.expressions.unary.ParenExpression;
+import soup.syntax.model.expressions.unary.PlusExpression;
+import soup.syntax.model.statements.Assignment;
+import soup.syntax.model.statements.IfStatement;
+import soup.syntax.model.statements.Sequence;
+import soup.syntax.model.statements.Skip;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Infers, for every variable of a soup, the range of values it can hold in any reachable state.
+ * <p>
+ * The analysis joins the initial value with every right-hand side assigned to the variable until a fixpoint.
+ * Integer intervals are tracked through literals, references, unary minus, addition, subtraction and conditionals;
+ * an interval that keeps growing is widened to the full integer range.
+ * The result is sound for states produced by the soup semantics, not for arbitrary updates through the environment API.
+ */
+public class RangeAnalysis extends FunctionalVisitorBase<Void, ValueRange> {
+    static final int WIDENING_THRESHOLD = 3;
+
+    final Map<String, ValueRange> ranges = new HashMap<>();
+    final Map<String, Integer> growth = new HashMap<>();
+    boolean changed;
+
+    public static ValueRange[] analyze(Soup soup) {
+        var analysis = new RangeAnalysis();
+        analysis.fixpoint(soup);
+        return analysis.ranges(soup.variables);
+    }
+
+    void fixpoint(Soup soup) {
+        for (var variable : soup.variables) {
+            growth.put(variable.name, 0);
+        }
+        do {
+            changed = false;
+            for (var variable : soup.variables) {
+                record(variable.name, variable.initial.accept(this, null));
+            }
+            for (var piece : soup.pieces) {
+                piece.effect.accept(this, null);
+            }
+        } while (changed);
+    }
+
+    ValueRange[] ranges(List<VariableDeclaration> variables) {
+        var result = new ValueRange[variables.size()];
+        for (int i = 0; i < result.length; i++) {
+            var range = ranges.get(variables.get(i).name);
+            result[i] = range == null ? ValueRange.ANY : range;
+        }
+        return result;
+    }
+
+    void record(String name, ValueRange range) {
+        if (!growth.containsKey(name) || range == null) return;
+        var old = ranges.get(name);
+        var joined = ValueRange.join(old, range);
+        if (joined.equals(old)) return;
+        if (old != null && joined.isInteger()) {
+            var count = growth.merge(name, 1, Integer::sum);
+            if (count >= WIDENING_THRESHOLD) {
+                joined = ValueRange.INTEGER;
+            }
+        }
+        ranges.put(name, joined);
+        changed = true;
+    }
+
+    @Override
+    public ValueRange visit(SyntaxTreeElement node, Void input) {
+        return ValueRange.ANY;
+    }
+
+    @Override
+    public ValueRange visit(BooleanLiteral node, Void input) {
+        return ValueRange.BOOLEAN;
+    }
+
+    @Override
+    public ValueRange visit(IntegerLiteral node, Void input) {
+        return ValueRange.of(node.value);
+    }
+
+    @Override
+    public ValueRange visit(DoubleLiteral node, Void input) {
+        return ValueRange.DOUBLE;
+    }
+
+    @Override
+    public ValueRange visit(Reference<?> node, Void input) {
+        if (!growth.containsKey(node.name)) return ValueRange.ANY;
+        return ranges.get(node.name);
+    }
+
+    @Override
+    public ValueRange visit(NotExpression node, Void input) {
+        return ValueRange.BOOLEAN;
+    }
+
+    @Override
+    public ValueRange visit(MinusExpression node, Void input) {
+        var operand = node.operand.accept(this, input);
+        if (operand == null) return null;
+        if (operand.isInteger()) return ValueRange.integer(-(long) operand.max(), -(long) operand.min());
+        return operand.isNumeric() ? operand : ValueRange.ANY;
+    }
+
+    @Override
+    public ValueRange visit(PlusExpression node, Void input) {
+        var operand = node.operand.accept(this, input);
+        if (operand == null) return null;
+        return operand.isNumeric() ? operand : ValueRange.ANY;
+    }
+
+    @Override
+    public ValueRange visit(ParenExpression node, Void input) {
+        return node.operand.accept(this, input);
+    }
+
+    /** relational and propositional operators */
+    @Override
+    public ValueRange visit(BinaryExpression node, Void input) {
+        return ValueRange.BOOLEAN;
+    }
+
+    ValueRange arithmetic(BinaryExpression node) {
+        var left = node.left.accept(this, null);
+        var right = node.right.accept(this, null);
+        if (left == null || right == null) return null;
+        if (!left.isNumeric() || !right.isNumeric()) return ValueRange.ANY;
+        if (left.isInteger() && right.isInteger()) {
+            return switch (node) {
+                case Addition _ -> ValueRange.integer((long) left.min() + right.min(), (long) left.max() + right.max());
+                case Substraction _ -> ValueRange.integer((long) left.min() - right.max(), (long) left.max() - right.min());
+                default -> ValueRange.INTEGER;
+            };
+        }
+        return ValueRange.DOUBLE;
+    }
+
+    @Override
+    public ValueRange visit(Multiplication node, Void input) {
+        return arithmetic(node);
+    }
+
+    @Override
+    public ValueRange visit(Division node, Void input) {
+        return arithmetic(node);
+    }
+
+    @Override
+    public ValueRange visit(Modulus node, Void input) {
+        return arithmetic(node);
+    }
+
+    @Override
+    public ValueRange visit(Addition node, Void input) {
+        return arithmetic(node);
+    }
+
+    @Override
+    public ValueRange visit(Substraction node, Void input) {
+        return arithmetic(node);
+    }
+
+    @Override
+    public ValueRange visit(ConditionalExpression node, Void input) {
+        var thenRange = node.thenExpression.accept(this, input);
+        var elseRange = node.elseExpression.accept(this, input);
+        if (thenRange == null || elseRange == null) {
+            return thenRange == null ? elseRange : thenRange;
+        }
+        return ValueRange.join(thenRange, elseRange);
+    }
+
+    @Override
+    public ValueRange visit(Skip node, Void input) {
+        return null;
+    }
+
+    @Override
+    public ValueRange visit(Assignment node, Void input) {
+        record(node.target.name, node.expression.accept(this, input));
+        return null;
+    }
+
+    @Override
+    public ValueRange visit(IfStatement node, Void input) {
+        node.thenStatement.accept(this, input);
+        node.elseStatement.accept(this, input);
+        return null;
+    }
+
+    @Override
+    public ValueRange visit(Sequence node, Void input) {
+        node.left.accept(this, input);
+        node.right.accept(this, input);
+        return null;
+    }
+}
@@ -0,0 +1,205 @@
+package soup.analysis;
+
+import soup.syntax.model.FunctionalVisitorBase;
+import soup.syntax.model.SyntaxTreeElement;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.expressions.ConditionalExpression;
+import soup.syntax.model.expressions.Expression;
+import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.Type;
+import soup.syntax.model.expressions.binary.BinaryExpression;
+import soup.syntax.model.expressions.binary.arithmetic.*;
+import soup.syntax.model.expressions.binary.propositional.*;
+import soup.syntax.model.expressions.binary.relational.*;
+import soup.syntax.model.expressions.unary.MinusExpression;
+import soup.syntax.model.expressions.unary.NotExpression;
+import soup.syntax.model.expressions.unary.ParenExpression;
+import soup.syntax.model.expressions.unary.PlusExpression;
+import soup.syntax.model.statements.Assignment;
+import soup.syntax.model.statements.IfStatement;
+import soup.syntax.model.statements.Sequence;
+
+import java.util.*;
+
+/**
+ * Rejects the soups whose expressions are statically ill-typed, once {@link TypeInference} has typed them.
+ * <p>
+ * A soup is ill-typed when a boolean is used as a number or a number as a boolean: an arithmetic or ordering operand,
+ * a negation or propositional operand, a guard, a condition, an equality between a boolean and a number, a variable
+ * assigned both booleans and numbers, or a reference to an undeclared variable.
+ * Mixing integers and doubles is allowed; such expressions are typed {@link Type#ANY} and dispatched at runtime.
+ */
+public class TypeChecker extends FunctionalVisitorBase<Void, Void> {
+    final TypeInference types;
+    final List<String> errors = new ArrayList<>();
+    final Map<String, EnumSet<Type>> assigned = new LinkedHashMap<>();
+
+    public TypeChecker(Soup soup) {
+        this(soup, new TypeInference(soup));
+    }
+
+    public TypeChecker(Soup soup, TypeInference types) {
+        this.types = types;
+        for (var variable : soup.variables) {
+            assigned.putIfAbsent(variable.name, EnumSet.noneOf(Type.class));
+        }
+        for (var variable : soup.variables) {
+            variable.initial.accept(this, null);
+            assign(variable.name, variable.initial);
+        }
+        for (var piece : soup.pieces) {
+            piece.guard.accept(this, null);
+            expectBoolean("guard", piece.guard);
+            piece.effect.accept(this, null);
+        }
+        assigned.forEach((name, assignedTypes) -> {
+            if (assignedTypes.contains(Type.BOOLEAN)
+                    && (assignedTypes.contains(Type.INTEGER) || assignedTypes.contains(Type.DOUBLE))) {
+                errors.add("variable '" + name + "' is assigned both booleans and numbers");
+            }
+        });
+    }
+
+    /**
+     * @return the types inferred for a well-typed soup
+     * @throws RuntimeException listing the type errors of an ill-typed soup
+     */
+    public static TypeInference check(Soup soup) {
+        var checker = new TypeChecker(soup);
+        if (!checker.isWellTyped()) {
+            throw new RuntimeException("ill-typed soup:\n" + String.join("\n", checker.errors));
+        }
+        return checker.types;
+    }
+
+    public boolean isWellTyped() {
+        return errors.isEmpty();
+    }
+
+    public List<String> errors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public TypeInference types() {
+        return types;
+    }
+
+    static String at(SyntaxTreeElement node) {
+        if (node.position == null || node.position.start == null) return "";
+        return " at " + node.position.start.line + ":" + node.position.start.column;
+    }
+
+    void assign(String name, Expression expression) {
+        var assignedTypes = assigned.get(name);
+        if (assignedTypes != null) assignedTypes.add(types.typeOf(expression));
+    }
+
+    void expectBoolean(String what, Expression operand) {
+        if (types.typeOf(operand).isNumeric()) {
+            errors.add(what + " expects a boolean but got a " + types.typeOf(operand).name().toLowerCase() + at(operand));
+        }
+    }
+
+    void expectNumber(String what, Expression operand) {
+        if (types.typeOf(operand) == Type.BOOLEAN) {
+            errors.add(what + " expects a number but got a boolean" + at(operand));
+        }
+    }
+
+    @Override
+    public Void visit(Reference<?> node, Void input) {
+        if (node.getClass() == Reference.class && !assigned.containsKey(node.name)) {
+            errors.add("variable '" + node.name + "' not found" + at(node));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(NotExpression node, Void input) {
+        node.operand.accept(this, input);
+        expectBoolean(node.operator, node.operand);
+        return null;
+    }
+
+    @Override
+    public Void visit(MinusExpression node, Void input) {
+        node.operand.accept(this, input);
+        expectNumber(node.operator, node.operand);
+        return null;
+    }
+
+    @Override
+    public Void visit(PlusExpression node, Void input) {
+        node.operand.accept(this, input);
+        expectNumber(node.operator, node.operand);
+        return null;
+    }
+
+    @Override
+    public Void visit(ParenExpression node, Void input) {
+        return node.operand.accept(this, input);
+    }
+
+    @Override
+    public Void visit(BinaryExpression node, Void input) {
+        node.left.accept(this, input);
+        node.right.accept(this, input);
+        switch (node) {
+            case Multiplication _, Division _, Modulus _, Addition _, Substraction _,
+                 LessThan _, LessThanOrEqual _, GreaterThan _, GreaterThanOrEqual _ -> {
+                expectNumber(node.operator, node.left);
+                expectNumber(node.operator, node.right);
+            }
+            case Conjunction _, Disjunction _, Implication _, Equivalence _, ExclusiveDisjunction _ -> {
+                expectBoolean(node.operator, node.left);
+                expectBoolean(node.operator, node.right);
+            }
+            default -> {
+                var left = types.typeOf(node.left);
+                var right = types.typeOf(node.right);
+                if (left == Type.BOOLEAN && right.isNumeric() || left.isNumeric() && right == Type.BOOLEAN) {
+                    errors.add(node.operator + " compares a boolean with a number" + at(node));
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(ConditionalExpression node, Void input) {
+        node.condition.accept(this, input);
+        node.thenExpression.accept(this, input);
+        node.elseExpression.accept(this, input);
+        expectBoolean("?:", node.condition);
+        var thenType = types.typeOf(node.thenExpression);
+        var elseType = types.typeOf(node.elseExpression);
+        if (thenType == Type.BOOLEAN && elseType.isNumeric() || thenType.isNumeric() && elseType == Type.BOOLEAN) {
+            errors.add("?: mixes a boolean and a number" + at(node));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Assignment node, Void input) {
+        node.target.accept(this, input);
+        node.expression.accept(this, input);
+        assign(node.target.name, node.expression);
+        return null;
+    }
+
+    @Override
+    public Void visit(IfStatement node, Void input) {
+        node.condition.accept(this, input);
+        expectBoolean("if", node.condition);
+        node.thenStatement.accept(this, input);
+        node.elseStatement.accept(this, input);
+        return null;
+    }
+
+    @Override
+    public Void visit(Sequence node, Void input) {
+        node.left.accept(this, input);
+        node.right.accept(this, input);
+        return null;
+    }
+}
@@ -0,0 +1,207 @@
+package soup.analysis;
+
+import soup.syntax.model.FunctionalVisitorBase;
+import soup.syntax.model.SyntaxTreeElement;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.expressions.ConditionalExpression;
+import soup.syntax.model.expressions.Expression;
+import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.Type;
+import soup.syntax.model.expressions.binary.BinaryExpression;
+import soup.syntax.model.expressions.binary.arithmetic.*;
+import soup.syntax.model.expressions.literals.BooleanLiteral;
+import soup.syntax.model.expressions.literals.DoubleLiteral;
+import soup.syntax.model.expressions.literals.IntegerLiteral;
+import soup.syntax.model.expressions.unary.MinusExpression;
+import soup.syntax.model.expressions.unary.NotExpression;
+import soup.syntax.model.expressions.unary.ParenExpression;
+import soup.syntax.model.expressions.unary.PlusExpression;
+import soup.syntax.model.statements.Assignment;
+import soup.syntax.model.statements.IfStatement;
+import soup.syntax.model.statements.Sequence;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Infers the static {@link Type} of the expressions of a soup.
+ * <p>
+ * The type of a variable follows the kind of its {@link RangeAnalysis} range. Arithmetic over two integers is an
+ * integer, over numbers with at least one double a double; relational and propositional operators are booleans.
+ * {@link Type#ANY} marks an expression whose type is only known at runtime: a variable holding values of several
+ * types, an operand that is not statically a number, or a reference the soup does not declare.
+ * <p>
+ * The constructor records the type of every expression node of the soup, by identity, after which the inference can be
+ * shared between threads; other expressions are typed on each call. The syntax tree itself is left untouched, as its
+ * nodes may be shared with other soups.
+ */
+public class TypeInference extends FunctionalVisitorBase<Void, Type> {
+    final Map<String, Type> variables = new HashMap<>();
+    final Map<Expression, Type> types = new IdentityHashMap<>();
+    boolean frozen;
+
+    public TypeInference(Soup soup) {
+        this(soup, RangeAnalysis.analyze(soup));
+    }
+
+    /**
+     * @param ranges the ranges of the variables of the soup, as computed by {@link RangeAnalysis#analyze}
+     */
+    public TypeInference(Soup soup, ValueRange[] ranges) {
+        for (int i = 0; i < ranges.length; i++) {
+            variables.putIfAbsent(soup.variables.get(i).name, typeOf(ranges[i]));
+        }
+        infer(soup);
+        frozen = true;
+    }
+
+    static Type typeOf(ValueRange range) {
+        return switch (range.kind()) {
+            case BOOLEAN -> Type.BOOLEAN;
+            case INTEGER -> Type.INTEGER;
+            case DOUBLE -> Type.DOUBLE;
+            case ANY -> Type.ANY;
+        };
+    }
+
+    void infer(Soup soup) {
+        for (var variable : soup.variables) {
+            typeOf(variable.initial);
+        }
+        for (var piece : soup.pieces) {
+            typeOf(piece.guard);
+            piece.effect.accept(this, null);
+        }
+    }
+
+    public Type typeOf(Expression expression) {
+        var known = types.get(expression);
+        if (known != null) return known;
+        var type = expression.accept(this, null);
+        if (!frozen) types.put(expression, type);
+        return type;
+    }
+
+    public Type typeOf(String variable) {
+        return variables.getOrDefault(variable, Type.ANY);
+    }
+
+    @Override
+    public Type visit(SyntaxTreeElement node, Void input) {
+        return Type.ANY;
+    }
+
+    @Override
+    public Type visit(BooleanLiteral node, Void input) {
+        return Type.BOOLEAN;
+    }
+
+    @Override
+    public Type visit(IntegerLiteral node, Void input) {
+        return Type.INTEGER;
+    }
+
+    @Override
+    public Type visit(DoubleLiteral node, Void input) {
+        return Type.DOUBLE;
+    }
+
+    @Override
+    public Type visit(Reference<?> node, Void input) {
+        if (node.getClass() != Reference.class) return Type.ANY;
+        return typeOf(node.name);
+    }
+
+    @Override
+    public Type visit(NotExpression node, Void input) {
+        typeOf(node.operand);
+        return Type.BOOLEAN;
+    }
+
+    @Override
+    public Type visit(MinusExpression node, Void input) {
+        var operand = typeOf(node.operand);
+        return operand.isNumeric() ? operand : Type.ANY;
+    }
+
+    @Override
+    public Type visit(PlusExpression node, Void input) {
+        var operand = typeOf(node.operand);
+        return operand.isNumeric() ? operand : Type.ANY;
+    }
+
+    @Override
+    public Type visit(ParenExpression node, Void input) {
+        return typeOf(node.operand);
+    }
+
+    /** relational and propositional operators */
+    @Override
+    public Type visit(BinaryExpression node, Void input) {
+        typeOf(node.left);
+        typeOf(node.right);
+        return Type.BOOLEAN;
+    }
+
+    Type arithmetic(BinaryExpression node) {
+        var left = typeOf(node.left);
+        var right = typeOf(node.right);
+        if (!left.isNumeric() || !right.isNumeric()) return Type.ANY;
+        return left == Type.INTEGER && right == Type.INTEGER ? Type.INTEGER : Type.DOUBLE;
+    }
+
+    @Override
+    public Type visit(Multiplication node, Void input) {
+        return arithmetic(node);
+    }
+
+    @Override
+    public Type visit(Division node, Void input) {
+        return arithmetic(node);
+    }
+
+    @Override
+    public Type visit(Modulus node, Void input) {
+        return arithmetic(node);
+    }
+
+    @Override
+    public Type visit(Addition node, Void input) {
+        return arithmetic(node);
+    }
+
+    @Override
+    public Type visit(Substraction node, Void input) {
+        return arithmetic(node);
+    }
+
+    @Override
+    public Type visit(ConditionalExpression node, Void input) {
+        typeOf(node.condition);
+        var thenType = typeOf(node.thenExpression);
+        var elseType = typeOf(node.elseExpression);
+        return thenType == elseType ? thenType : Type.ANY;
+    }
+
+    @Override
+    public Type visit(Assignment node, Void input) {
+        typeOf(node.expression);
+        return null;
+    }
+
+    @Override
+    public Type visit(IfStatement node, Void input) {
+        typeOf(node.condition);
+        node.thenStatement.accept(this, input);
+        node.elseStatement.accept(this, input);
+        return null;
+    }
+
+    @Override
+    public Type visit(Sequence node, Void input) {
+        node.left.accept(this, input);
+        node.right.accept(this, input);
+        return null;
+    }
+}
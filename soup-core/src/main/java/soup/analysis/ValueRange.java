@@ -0,0 +1,50 @@
+package soup.analysis;
+
+/**
+ * An over-approximation of the values a variable or an expression can take.
+ * Integer ranges are closed intervals; {@code null} stands for "no value yet".
+ */
+public record ValueRange(Kind kind, int min, int max) {
+    public enum Kind { BOOLEAN, INTEGER, DOUBLE, ANY }
+
+    public static final ValueRange BOOLEAN = new ValueRange(Kind.BOOLEAN, 0, 1);
+    public static final ValueRange INTEGER = new ValueRange(Kind.INTEGER, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    public static final ValueRange DOUBLE = new ValueRange(Kind.DOUBLE, 0, 0);
+    public static final ValueRange ANY = new ValueRange(Kind.ANY, 0, 0);
+
+    public static ValueRange of(int value) {
+        return new ValueRange(Kind.INTEGER, value, value);
+    }
+
+    public static ValueRange integer(long min, long max) {
+        if (min < Integer.MIN_VALUE || max > Integer.MAX_VALUE) return INTEGER;
+        return new ValueRange(Kind.INTEGER, (int) min, (int) max);
+    }
+
+    public static ValueRange join(ValueRange a, ValueRange b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.kind != b.kind) return ANY;
+        if (a.kind != Kind.INTEGER) return a;
+        return integer(Math.min(a.min, b.min), Math.max(a.max, b.max));
+    }
+
+    public boolean isInteger() {
+        return kind == Kind.INTEGER;
+    }
+
+    public boolean isNumeric() {
+        return kind == Kind.INTEGER || kind == Kind.DOUBLE;
+    }
+
+    /**
+     * @return the number of bits needed to store any value of this range
+     */
+    public int width() {
+        return switch (kind) {
+            case BOOLEAN -> 1;
+            case INTEGER -> 64 - Long.numberOfLeadingZeros((long) max - min);
+            case DOUBLE, ANY -> 64;
+        };
+    }
+}
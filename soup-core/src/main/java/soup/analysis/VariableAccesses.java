@@ -0,0 +1,129 @@
+package soup.analysis;
+
+import soup.syntax.model.FunctionalVisitorBase;
+import soup.syntax.model.SyntaxTreeElement;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.declarations.VariableDeclaration;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+import soup.syntax.model.dependent.EnabledExpression;
+import soup.syntax.model.dependent.InputReference;
+import soup.syntax.model.dependent.NamedPieceReference;
+import soup.syntax.model.dependent.PrimedReference;
+import soup.syntax.model.expressions.ConditionalExpression;
+import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.binary.BinaryExpression;
+import soup.syntax.model.expressions.unary.UnaryExpression;
+import soup.syntax.model.statements.Assignment;
+import soup.syntax.model.statements.IfStatement;
+import soup.syntax.model.statements.Sequence;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Collects the names of the variables read and written by syntax tree elements.
+ * <p>
+ * The target of an assignment is written, not read. Primed references are recorded apart, as reads of the next state,
+ * and so are the names of the pieces referenced by step expressions.
+ */
+public class VariableAccesses extends FunctionalVisitorBase<Void, Void> {
+    public final Set<String> reads = new LinkedHashSet<>();
+    public final Set<String> writes = new LinkedHashSet<>();
+    public final Set<String> primedReads = new LinkedHashSet<>();
+    public final Set<String> pieceReferences = new LinkedHashSet<>();
+
+    public static VariableAccesses of(SyntaxTreeElement... nodes) {
+        var accesses = new VariableAccesses();
+        for (var node : nodes) {
+            node.accept(accesses, null);
+        }
+        return accesses;
+    }
+
+    @Override
+    public Void visit(Reference<?> node, Void input) {
+        reads.add(node.name);
+        return null;
+    }
+
+    @Override
+    public Void visit(PrimedReference node, Void input) {
+        primedReads.add(node.name);
+        return null;
+    }
+
+    @Override
+    public Void visit(NamedPieceReference node, Void input) {
+        pieceReferences.add(node.name);
+        return null;
+    }
+
+    @Override
+    public Void visit(UnaryExpression node, Void input) {
+        return node.operand.accept(this, input);
+    }
+
+    @Override
+    public Void visit(EnabledExpression node, Void input) {
+        return node.operand.accept(this, input);
+    }
+
+    @Override
+    public Void visit(InputReference node, Void input) {
+        return node.operand.accept(this, input);
+    }
+
+    @Override
+    public Void visit(BinaryExpression node, Void input) {
+        node.left.accept(this, input);
+        return node.right.accept(this, input);
+    }
+
+    @Override
+    public Void visit(ConditionalExpression node, Void input) {
+        node.condition.accept(this, input);
+        node.thenExpression.accept(this, input);
+        return node.elseExpression.accept(this, input);
+    }
+
+    @Override
+    public Void visit(Assignment node, Void input) {
+        writes.add(node.target.name);
+        return node.expression.accept(this, input);
+    }
+
+    @Override
+    public Void visit(IfStatement node, Void input) {
+        node.condition.accept(this, input);
+        node.thenStatement.accept(this, input);
+        return node.elseStatement.accept(this, input);
+    }
+
+    @Override
+    public Void visit(Sequence node, Void input) {
+        node.left.accept(this, input);
+        return node.right.accept(this, input);
+    }
+
+    @Override
+    public Void visit(AnonymousPiece node, Void input) {
+        node.guard.accept(this, input);
+        return node.effect.accept(this, input);
+    }
+
+    @Override
+    public Void visit(VariableDeclaration node, Void input) {
+        return node.initial.accept(this, input);
+    }
+
+    @Override
+    public Void visit(Soup node, Void input) {
+        for (var variable : node.variables) {
+            variable.accept(this, input);
+        }
+        for (var piece : node.pieces) {
+            piece.accept(this, input);
+        }
+        return null;
+    }
+}
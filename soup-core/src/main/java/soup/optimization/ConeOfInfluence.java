@@ -0,0 +1,220 @@
+package soup.optimization;
+
+import soup.analysis.VariableAccesses;
+import soup.syntax.model.SyntaxTreeElement;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.declarations.VariableDeclaration;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+import soup.syntax.model.declarations.pieces.NamedPiece;
+import soup.syntax.model.expressions.Expression;
+import soup.syntax.model.expressions.binary.propositional.Disjunction;
+import soup.syntax.model.statements.*;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Slices a soup down to the cone of influence of the names a property observes: the variables its atoms read and
+ * the pieces they reference.
+ * <p>
+ * A variable is relevant if it is observed, if it initializes a relevant variable, or if a relevant piece reads it to
+ * decide whether or how to write a relevant variable. A piece is relevant if it writes a relevant variable, if it is
+ * observed by name, or if its guard or effect may fail. The new soup keeps the relevant variables, the relevant
+ * pieces, stripped of the assignments to the other variables, and folds them like {@link ConstantFolding}.
+ * <p>
+ * The other pieces are not removed but abstracted into a single anonymous piece that leaves the relevant variables
+ * unchanged. Its guard is the disjunction of their guards when these only read relevant variables, and {@code true}
+ * otherwise. Every run of the soup thus projects onto a run of the slice that goes through the same relevant states,
+ * so a safety property that holds on the slice holds on the soup; a counterexample on the slice may however stutter
+ * where the soup deadlocks.
+ * <p>
+ * A {@code true} guard would let the slice stutter forever in any state, a bogus violation of most liveness
+ * properties. For a liveness property the variables read by the guards of all the pieces are thus relevant, which
+ * keeps the guard of the abstract piece exact: the slice then stutters exactly where the soup runs irrelevant pieces,
+ * and its runs are those of the soup. A property observing {@code deadlock} depends on the guards of all the pieces,
+ * so no slicing is done for it.
+ * <p>
+ * The input soup is left untouched. The result is linked if the input was. Its states only hold the relevant
+ * variables.
+ */
+public class ConeOfInfluence extends ConstantFolding {
+    static final Pattern IDENTIFIER = Pattern.compile("[a-zA-Z][a-zA-Z_0-9]*");
+
+    final Set<String> relevantVariables = new LinkedHashSet<>();
+    final Set<AnonymousPiece> relevantPieces = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public ConeOfInfluence(Soup soup, Collection<String> observed) {
+        this(soup, observed, false);
+    }
+
+    /**
+     * @param liveness true if the property is a liveness property, checked as a Büchi automaton
+     */
+    public ConeOfInfluence(Soup soup, Collection<String> observed, boolean liveness) {
+        super(soup);
+        if (observed.contains("deadlock")) {
+            relevantVariables.addAll(variables);
+            relevantPieces.addAll(soup.pieces);
+            return;
+        }
+        for (var name : observed) {
+            if (variables.contains(name)) relevantVariables.add(name);
+        }
+        for (var piece : soup.pieces) {
+            if (piece instanceof NamedPiece named && observed.contains(named.name)) relevantPieces.add(piece);
+        }
+        var before = -1;
+        while (before != relevantVariables.size() + relevantPieces.size()) {
+            before = relevantVariables.size() + relevantPieces.size();
+            for (var variable : soup.variables) {
+                if (relevantVariables.contains(variable.name)) relevant(variable.initial);
+            }
+            for (var piece : soup.pieces) {
+                var accesses = VariableAccesses.of(piece.effect);
+                if (!Collections.disjoint(accesses.writes, relevantVariables)
+                        || !cannotFail(piece.guard) || mayFail(piece.effect)) {
+                    relevantPieces.add(piece);
+                }
+                if (relevantPieces.contains(piece)) {
+                    relevant(piece.guard);
+                    influence(piece.effect);
+                } else if (liveness) {
+                    relevant(piece.guard);
+                }
+            }
+        }
+    }
+
+    /**
+     * Slices the soup with respect to the names read or referenced by the given elements of a safety property.
+     */
+    public static OptimizedSoup slice(Soup soup, SyntaxTreeElement... property) {
+        return slice(soup, false, property);
+    }
+
+    /**
+     * Slices the soup with respect to the names read or referenced by the given property elements.
+     *
+     * @param liveness true if the property is a liveness property, checked as a Büchi automaton
+     */
+    public static OptimizedSoup slice(Soup soup, boolean liveness, SyntaxTreeElement... property) {
+        var accesses = new VariableAccesses();
+        for (var element : property) {
+            if (element != null) element.accept(accesses, null);
+        }
+        var observed = new HashSet<>(accesses.reads);
+        observed.addAll(accesses.primedReads);
+        observed.addAll(accesses.pieceReferences);
+        return slice(soup, observed, liveness);
+    }
+
+    public static OptimizedSoup slice(Soup soup, Collection<String> observed) {
+        return slice(soup, observed, false);
+    }
+
+    public static OptimizedSoup slice(Soup soup, Collection<String> observed, boolean liveness) {
+        return new ConeOfInfluence(soup, observed, liveness).rewrite(soup);
+    }
+
+    /**
+     * @return every identifier of a property written in another language, such as GPSL or Rege, whose atoms are
+     * soup expressions. Keywords and names of the property itself are kept as well, which only makes the slice larger.
+     */
+    public static Set<String> observedNames(String property) {
+        var names = new HashSet<String>();
+        var matcher = IDENTIFIER.matcher(property);
+        while (matcher.find()) {
+            names.add(matcher.group());
+        }
+        return names;
+    }
+
+    public Set<String> relevantVariables() {
+        return Collections.unmodifiableSet(relevantVariables);
+    }
+
+    public boolean isRelevant(AnonymousPiece piece) {
+        return relevantPieces.contains(piece);
+    }
+
+    void relevant(SyntaxTreeElement node) {
+        var accesses = VariableAccesses.of(node);
+        for (var name : accesses.reads) {
+            if (variables.contains(name)) relevantVariables.add(name);
+        }
+        for (var name : accesses.primedReads) {
+            if (variables.contains(name)) relevantVariables.add(name);
+        }
+    }
+
+    /**
+     * Marks relevant what the kept assignments of a relevant effect read, and the conditions they depend on.
+     */
+    void influence(Statement statement) {
+        switch (statement) {
+            case Assignment assignment when isKept(assignment) -> {
+                relevantVariables.add(assignment.target.name);
+                relevant(assignment.expression);
+            }
+            case IfStatement node -> {
+                relevant(node.condition);
+                influence(node.thenStatement);
+                influence(node.elseStatement);
+            }
+            case Sequence node -> {
+                influence(node.left);
+                influence(node.right);
+            }
+            default -> { }
+        }
+    }
+
+    boolean mayFail(Statement statement) {
+        return switch (statement) {
+            case Assignment assignment -> !cannotFail(assignment.expression);
+            case IfStatement node -> !isBoolean(node.condition) || !cannotFail(node.condition)
+                    || mayFail(node.thenStatement) || mayFail(node.elseStatement);
+            case Sequence node -> mayFail(node.left) || mayFail(node.right);
+            default -> false;
+        };
+    }
+
+    /**
+     * An assignment to an irrelevant variable is only kept if dropping it could hide an evaluation error.
+     */
+    boolean isKept(Assignment assignment) {
+        return relevantVariables.contains(assignment.target.name) || !cannotFail(assignment.expression);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(Assignment node, Void input) {
+        if (!isKept(node)) return Skip.INSTANCE;
+        return super.visit(node, input);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(Soup node, Void input) {
+        var variables = new ArrayList<VariableDeclaration>();
+        for (var variable : node.variables) {
+            if (relevantVariables.contains(variable.name)) {
+                variables.add((VariableDeclaration) variable.accept(this, input));
+            }
+        }
+        var pieces = new ArrayList<AnonymousPiece>();
+        Expression stutter = null;
+        var exact = true;
+        for (var piece : node.pieces) {
+            if (relevantPieces.contains(piece)) {
+                pieces.add((AnonymousPiece) piece.accept(this, input));
+                continue;
+            }
+            var guard = fold(piece.guard);
+            exact &= relevantVariables.containsAll(VariableAccesses.of(guard).reads);
+            stutter = stutter == null ? guard : new Disjunction("||", stutter, guard, guard.position);
+        }
+        if (stutter != null) {
+            pieces.add(new AnonymousPiece(exact ? fold(stutter) : literal(true), Skip.INSTANCE, node.position));
+        }
+        return new Soup(variables, pieces, node.position);
+    }
+}
@@ -0,0 +1,441 @@
+package soup.optimization;
+
+import soup.analysis.TypeInference;
+import soup.semantics.base.ExpressionSemantics;
+import soup.syntax.Reader;
+import soup.syntax.model.FunctionalVisitorBase;
+import soup.syntax.model.Position;
+import soup.syntax.model.SyntaxTreeElement;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.declarations.VariableDeclaration;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+import soup.syntax.model.declarations.pieces.NamedPiece;
+import soup.syntax.model.dependent.EnabledExpression;
+import soup.syntax.model.dependent.InputReference;
+import soup.syntax.model.dependent.NamedPieceReference;
+import soup.syntax.model.dependent.PrimedReference;
+import soup.syntax.model.expressions.ConditionalExpression;
+import soup.syntax.model.expressions.Expression;
+import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.Type;
+import soup.syntax.model.expressions.binary.BinaryExpression;
+import soup.syntax.model.expressions.binary.arithmetic.*;
+import soup.syntax.model.expressions.binary.propositional.*;
+import soup.syntax.model.expressions.binary.relational.*;
+import soup.syntax.model.expressions.literals.BooleanLiteral;
+import soup.syntax.model.expressions.literals.DoubleLiteral;
+import soup.syntax.model.expressions.literals.IntegerLiteral;
+import soup.syntax.model.expressions.literals.Literal;
+import soup.syntax.model.expressions.unary.MinusExpression;
+import soup.syntax.model.expressions.unary.NotExpression;
+import soup.syntax.model.expressions.unary.ParenExpression;
+import soup.syntax.model.expressions.unary.PlusExpression;
+import soup.syntax.model.statements.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Folds the constant subexpressions of a soup and simplifies the boolean and arithmetic identities, building a new
+ * soup with the same semantics.
+ * <p>
+ * Literal subexpressions are evaluated with the {@link ExpressionSemantics}, unless that fails or gives a double the
+ * syntax cannot write back. Identities such as {@code b && true}, {@code x + 0} or {@code x * 1} are only applied
+ * when {@link TypeInference} guarantees the operand has the right type: {@code x + 0} is kept for a double
+ * {@code x}, which is {@code -0.0}-sensitive. An operand is only dropped, as in {@code b && false} or
+ * {@code x * 0}, if evaluating it cannot fail, since the interpreter evaluates both operands of every operator.
+ * Conditionals and {@link IfStatement}s with a literal condition keep the branch taken, and {@code skip} is removed
+ * from sequences.
+ * <p>
+ * The input soup is left untouched. The result is linked if the input was.
+ */
+public class ConstantFolding extends FunctionalVisitorBase<Void, SyntaxTreeElement> {
+    final TypeInference types;
+    final Set<String> variables = new HashSet<>();
+    final ExpressionSemantics evaluator = new ExpressionSemantics();
+
+    public ConstantFolding(Soup soup) {
+        this(soup, new TypeInference(soup));
+    }
+
+    public ConstantFolding(Soup soup, TypeInference types) {
+        this.types = types;
+        for (var variable : soup.variables) {
+            variables.add(variable.name);
+        }
+    }
+
+    public static OptimizedSoup optimize(Soup soup) {
+        return new ConstantFolding(soup).rewrite(soup);
+    }
+
+    /**
+     * Folds the soup this pass was built for.
+     */
+    OptimizedSoup rewrite(Soup soup) {
+        var folded = (Soup) soup.accept(this, null);
+        if (!soup.variables.isEmpty() && soup.variables.getFirst().slot >= 0) {
+            Reader.link(folded);
+        }
+        return new OptimizedSoup(folded, NodeCount.of(soup), NodeCount.of(folded));
+    }
+
+    public Expression fold(Expression expression) {
+        return (Expression) expression.accept(this, null);
+    }
+
+    public Statement fold(Statement statement) {
+        return (Statement) statement.accept(this, null);
+    }
+
+    Type typeOf(Expression expression) {
+        return types.typeOf(expression);
+    }
+
+    boolean isBoolean(Expression expression) {
+        return typeOf(expression) == Type.BOOLEAN;
+    }
+
+    static BooleanLiteral literal(boolean value) {
+        return value ? BooleanLiteral.TRUE : BooleanLiteral.FALSE;
+    }
+
+    static boolean isLiteral(Expression expression, Object value) {
+        return expression instanceof Literal<?> literal && literal.value.equals(value);
+    }
+
+    /**
+     * @return true if evaluating the expression can neither throw nor need the state to hold a value of another type
+     */
+    public boolean cannotFail(Expression expression) {
+        return switch (expression) {
+            case Literal<?> _ -> true;
+            case Reference<?> reference when reference.getClass() == Reference.class -> variables.contains(reference.name);
+            case ParenExpression paren -> cannotFail(paren.operand);
+            case NotExpression not -> isBoolean(not.operand) && cannotFail(not.operand);
+            case MinusExpression minus -> typeOf(minus.operand).isNumeric() && cannotFail(minus.operand);
+            case PlusExpression plus -> typeOf(plus.operand).isNumeric() && cannotFail(plus.operand);
+            case Conjunction node -> booleanOperands(node);
+            case Disjunction node -> booleanOperands(node);
+            case Implication node -> booleanOperands(node);
+            case Equivalence node -> booleanOperands(node);
+            case ExclusiveDisjunction node -> booleanOperands(node);
+            case Equal node -> cannotFail(node.left) && cannotFail(node.right);
+            case NotEqual node -> cannotFail(node.left) && cannotFail(node.right);
+            // an integer division by zero throws
+            case Division node -> typeOf(node) == Type.DOUBLE && numericOperands(node);
+            case Modulus node -> typeOf(node) == Type.DOUBLE && numericOperands(node);
+            case BinaryExpression node -> numericOperands(node);
+            case ConditionalExpression node -> isBoolean(node.condition) && cannotFail(node.condition)
+                    && cannotFail(node.thenExpression) && cannotFail(node.elseExpression);
+            default -> false;
+        };
+    }
+
+    boolean booleanOperands(BinaryExpression node) {
+        return isBoolean(node.left) && isBoolean(node.right) && cannotFail(node.left) && cannotFail(node.right);
+    }
+
+    boolean numericOperands(BinaryExpression node) {
+        return typeOf(node.left).isNumeric() && typeOf(node.right).isNumeric()
+                && cannotFail(node.left) && cannotFail(node.right);
+    }
+
+    /**
+     * Evaluates an expression made of literals.
+     *
+     * @return the literal of its value, or null if the evaluation fails or its value cannot be written as a literal
+     */
+    Expression evaluate(Expression expression) {
+        Object value;
+        try {
+            value = expression.accept(evaluator, null);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return literal(value, expression.position);
+    }
+
+    /**
+     * @return the literal of a value, or null for a value the syntax cannot write
+     */
+    static Expression literal(Object value, Position position) {
+        return switch (value) {
+            case Boolean b -> literal(b);
+            case Integer i -> new IntegerLiteral(i, position);
+            case Double d when Double.isFinite(d) -> new DoubleLiteral(d, position);
+            case null, default -> null;
+        };
+    }
+
+    @Override
+    public SyntaxTreeElement visit(SyntaxTreeElement node, Void input) {
+        throw new UnsupportedOperationException("Cannot fold " + node.getClass().getSimpleName());
+    }
+
+    @Override
+    public SyntaxTreeElement visit(BooleanLiteral node, Void input) {
+        return literal(node.value);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(IntegerLiteral node, Void input) {
+        return new IntegerLiteral(node.value, node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(DoubleLiteral node, Void input) {
+        return new DoubleLiteral(node.value, node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(Reference<?> node, Void input) {
+        return new Reference<VariableDeclaration>(node.name, node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(PrimedReference node, Void input) {
+        return new PrimedReference(node.name, node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(NamedPieceReference node, Void input) {
+        return new NamedPieceReference(node.name, node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(EnabledExpression node, Void input) {
+        return new EnabledExpression(fold(node.operand), node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(InputReference node, Void input) {
+        return new InputReference(fold(node.operand), node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(ParenExpression node, Void input) {
+        var operand = fold(node.operand);
+        return switch (operand) {
+            case Literal<?> _, ParenExpression _ -> operand;
+            case Reference<?> reference when reference.getClass() == Reference.class -> operand;
+            default -> new ParenExpression(operand, node.position);
+        };
+    }
+
+    static Expression unparen(Expression expression) {
+        while (expression instanceof ParenExpression paren) expression = paren.operand;
+        return expression;
+    }
+
+    @Override
+    public SyntaxTreeElement visit(NotExpression node, Void input) {
+        var operand = fold(node.operand);
+        if (operand instanceof BooleanLiteral literal) return literal(!literal.value);
+        if (unparen(operand) instanceof NotExpression not && isBoolean(not.operand)) return not.operand;
+        return new NotExpression(node.operator, operand, node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(MinusExpression node, Void input) {
+        var operand = fold(node.operand);
+        var folded = new MinusExpression(operand, node.position);
+        if (operand instanceof Literal<?>) {
+            var literal = evaluate(folded);
+            if (literal != null) return literal;
+        }
+        return folded;
+    }
+
+    @Override
+    public SyntaxTreeElement visit(PlusExpression node, Void input) {
+        var operand = fold(node.operand);
+        // unary plus returns its numeric operand as is
+        if (typeOf(operand).isNumeric()) return operand;
+        return new PlusExpression(operand, node.position);
+    }
+
+    static BinaryExpression rebuild(BinaryExpression node, Expression left, Expression right) {
+        var position = node.position;
+        return switch (node) {
+            case Multiplication _ -> new Multiplication(left, right, position);
+            case Division _ -> new Division(left, right, position);
+            case Modulus _ -> new Modulus(left, right, position);
+            case Addition _ -> new Addition(left, right, position);
+            case Substraction _ -> new Substraction(left, right, position);
+            case LessThan _ -> new LessThan(node.operator, left, right, position);
+            case LessThanOrEqual _ -> new LessThanOrEqual(node.operator, left, right, position);
+            case GreaterThan _ -> new GreaterThan(node.operator, left, right, position);
+            case GreaterThanOrEqual _ -> new GreaterThanOrEqual(node.operator, left, right, position);
+            case Equal _ -> new Equal(node.operator, left, right, position);
+            case NotEqual _ -> new NotEqual(node.operator, left, right, position);
+            case Conjunction _ -> new Conjunction(node.operator, left, right, position);
+            case Disjunction _ -> new Disjunction(node.operator, left, right, position);
+            case Implication _ -> new Implication(node.operator, left, right, position);
+            case Equivalence _ -> new Equivalence(node.operator, left, right, position);
+            case ExclusiveDisjunction _ -> new ExclusiveDisjunction(node.operator, left, right, position);
+            default -> throw new UnsupportedOperationException("Cannot fold " + node.getClass().getSimpleName());
+        };
+    }
+
+    @Override
+    public SyntaxTreeElement visit(BinaryExpression node, Void input) {
+        var left = fold(node.left);
+        var right = fold(node.right);
+        var folded = rebuild(node, left, right);
+        if (left instanceof Literal<?> && right instanceof Literal<?>) {
+            var literal = evaluate(folded);
+            if (literal != null) return literal;
+        }
+        var simplified = simplify(folded, left, right);
+        return simplified != null ? simplified : folded;
+    }
+
+    /**
+     * @return the simplified form of a binary expression whose operands are folded, or null if no identity applies
+     */
+    Expression simplify(BinaryExpression node, Expression left, Expression right) {
+        return switch (node) {
+            case Conjunction _ -> absorb(left, right, true, false, node);
+            case Disjunction _ -> absorb(left, right, false, true, node);
+            case Implication _ -> {
+                if (isLiteral(left, true) && isBoolean(right)) yield right;
+                if (isLiteral(left, false) && cannotFail(right) && isBoolean(right)) yield literal(true);
+                if (isLiteral(right, true) && cannotFail(left) && isBoolean(left)) yield literal(true);
+                yield null;
+            }
+            case Equivalence _ -> neutral(left, right, true);
+            case ExclusiveDisjunction _ -> neutral(left, right, false);
+            case Addition _ -> integerNeutral(left, right, 0);
+            case Substraction _ -> {
+                if (isLiteral(right, 0) && typeOf(left) == Type.INTEGER) yield left;
+                // x - 0.0 is x for every double, -0.0 included
+                if (isLiteral(right, 0.0) && typeOf(left) == Type.DOUBLE) yield left;
+                yield null;
+            }
+            case Multiplication _ -> {
+                var neutral = integerNeutral(left, right, 1);
+                if (neutral != null) yield neutral;
+                if (isLiteral(right, 1.0) && typeOf(left) == Type.DOUBLE) yield left;
+                if (isLiteral(left, 1.0) && typeOf(right) == Type.DOUBLE) yield right;
+                if (isLiteral(right, 0) && typeOf(left) == Type.INTEGER && cannotFail(left)
+                        || isLiteral(left, 0) && typeOf(right) == Type.INTEGER && cannotFail(right)) {
+                    yield new IntegerLiteral(0, node.position);
+                }
+                yield null;
+            }
+            case Division _ -> {
+                if (isLiteral(right, 1) && typeOf(left) == Type.INTEGER) yield left;
+                if (isLiteral(right, 1.0) && typeOf(left) == Type.DOUBLE) yield left;
+                yield null;
+            }
+            default -> null;
+        };
+    }
+
+    /**
+     * Simplifies a conjunction ({@code neutral} true) or a disjunction ({@code neutral} false).
+     */
+    Expression absorb(Expression left, Expression right, boolean neutral, boolean absorbing, Expression node) {
+        if (isLiteral(left, neutral) && isBoolean(right)) return right;
+        if (isLiteral(right, neutral) && isBoolean(left)) return left;
+        if (isLiteral(left, absorbing) && isBoolean(right) && cannotFail(right)
+                || isLiteral(right, absorbing) && isBoolean(left) && cannotFail(left)) {
+            return literal(absorbing);
+        }
+        return null;
+    }
+
+    /**
+     * Simplifies {@code b <=> true} ({@code neutral} true) and {@code b xor false} ({@code neutral} false).
+     */
+    Expression neutral(Expression left, Expression right, boolean neutral) {
+        if (isLiteral(left, neutral) && isBoolean(right)) return right;
+        if (isLiteral(right, neutral) && isBoolean(left)) return left;
+        return null;
+    }
+
+    Expression integerNeutral(Expression left, Expression right, int neutral) {
+        if (isLiteral(right, neutral) && typeOf(left) == Type.INTEGER) return left;
+        if (isLiteral(left, neutral) && typeOf(right) == Type.INTEGER) return right;
+        return null;
+    }
+
+    @Override
+    public SyntaxTreeElement visit(ConditionalExpression node, Void input) {
+        var condition = fold(node.condition);
+        if (condition instanceof BooleanLiteral literal) {
+            return fold(literal.value ? node.thenExpression : node.elseExpression);
+        }
+        var thenExpression = fold(node.thenExpression);
+        var elseExpression = fold(node.elseExpression);
+        if (thenExpression instanceof Literal<?> t && elseExpression instanceof Literal<?> e
+                && t.getClass() == e.getClass() && t.value.equals(e.value)
+                && isBoolean(condition) && cannotFail(condition)) {
+            return thenExpression;
+        }
+        return new ConditionalExpression(condition, thenExpression, elseExpression, node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(Skip node, Void input) {
+        return Skip.INSTANCE;
+    }
+
+    @Override
+    public SyntaxTreeElement visit(Assignment node, Void input) {
+        return new Assignment(new Reference<>(node.target.name, node.target.position), fold(node.expression), node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(IfStatement node, Void input) {
+        var condition = fold(node.condition);
+        if (condition instanceof BooleanLiteral literal) {
+            return fold(literal.value ? node.thenStatement : node.elseStatement);
+        }
+        var thenStatement = fold(node.thenStatement);
+        var elseStatement = fold(node.elseStatement);
+        if (thenStatement instanceof Skip && elseStatement instanceof Skip && isBoolean(condition) && cannotFail(condition)) {
+            return Skip.INSTANCE;
+        }
+        return new IfStatement(condition, thenStatement, elseStatement, node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(Sequence node, Void input) {
+        var left = fold(node.left);
+        var right = fold(node.right);
+        if (left instanceof Skip) return right;
+        if (right instanceof Skip) return left;
+        return new Sequence(left, right, node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(AnonymousPiece node, Void input) {
+        return new AnonymousPiece(fold(node.guard), fold(node.effect), node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(NamedPiece node, Void input) {
+        return new NamedPiece(node.name, fold(node.guard), fold(node.effect), node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(VariableDeclaration node, Void input) {
+        return new VariableDeclaration(node.name, fold(node.initial), node.position);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(Soup node, Void input) {
+        var variables = new ArrayList<VariableDeclaration>();
+        for (var variable : node.variables) {
+            variables.add((VariableDeclaration) variable.accept(this, input));
+        }
+        var pieces = new ArrayList<AnonymousPiece>();
+        for (var piece : node.pieces) {
+            pieces.add((AnonymousPiece) piece.accept(this, input));
+        }
+        return new Soup(variables, pieces, node.position);
+    }
+}
@@ -0,0 +1,73 @@
+package soup.optimization;
+
+import soup.analysis.VariableAccesses;
+import soup.semantics.base.ExpressionSemantics;
+import soup.syntax.model.SyntaxTreeElement;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.expressions.Reference;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces the variables no piece assigns by their initial value, then folds the soup like {@link ConstantFolding}.
+ * <p>
+ * Such a variable holds its initial value in every reachable state, so it is removed from the variables of the new
+ * soup and no longer takes room in the states. Variables read primed, whose initial value cannot be written as a
+ * literal, or whose initialization fails are kept.
+ * <p>
+ * The expressions evaluated against the states of the new soup, such as the atomic propositions of a property,
+ * must be rewritten with {@link #fold(soup.syntax.model.expressions.Expression)} since they may refer to the removed
+ * variables.
+ */
+public class ConstantPropagation extends ConstantFolding {
+    final Map<String, Object> constants = new LinkedHashMap<>();
+
+    public ConstantPropagation(Soup soup) {
+        super(soup);
+        var accesses = VariableAccesses.of(soup);
+        var initial = new HashMap<String, Object>();
+        for (var variable : soup.variables) {
+            Object value;
+            try {
+                value = ExpressionSemantics.evaluate(variable.initial, initial);
+            } catch (RuntimeException e) {
+                // the initial state cannot be computed, the later variables may depend on this one
+                break;
+            }
+            initial.put(variable.name, value);
+            if (accesses.writes.contains(variable.name) || accesses.primedReads.contains(variable.name)) continue;
+            if (literal(value, variable.position) != null) {
+                constants.put(variable.name, value);
+            }
+        }
+    }
+
+    public static OptimizedSoup optimize(Soup soup) {
+        return new ConstantPropagation(soup).rewrite(soup);
+    }
+
+    /**
+     * @return the values of the variables replaced by constants
+     */
+    public Map<String, Object> constants() {
+        return Collections.unmodifiableMap(constants);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(Reference<?> node, Void input) {
+        if (node.getClass() == Reference.class && constants.containsKey(node.name)) {
+            return literal(constants.get(node.name), node.position);
+        }
+        return super.visit(node, input);
+    }
+
+    @Override
+    public SyntaxTreeElement visit(Soup node, Void input) {
+        var soup = (Soup) super.visit(node, input);
+        soup.variables.removeIf(variable -> constants.containsKey(variable.name));
+        return soup;
+    }
+}
@@ -0,0 +1,208 @@
+package soup.optimization;
+
+import soup.analysis.VariableAccesses;
+import soup.syntax.model.SyntaxTreeElement;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+import soup.syntax.model.expressions.Expression;
+import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.binary.propositional.Conjunction;
+import soup.syntax.model.expressions.binary.relational.Equal;
+import soup.syntax.model.expressions.binary.relational.NotEqual;
+import soup.syntax.model.expressions.literals.Literal;
+import soup.syntax.model.expressions.unary.NotExpression;
+import soup.syntax.model.expressions.unary.ParenExpression;
+import soup.syntax.model.statements.Assignment;
+import soup.syntax.model.statements.IfStatement;
+import soup.syntax.model.statements.Sequence;
+import soup.syntax.model.statements.Statement;
+
+import java.util.*;
+
+/**
+ * Computes, for each piece of a soup, the variables live after it fires: those whose value may be read, by a guard or
+ * by an effect, before being overwritten.
+ * <p>
+ * The guards of all the pieces are evaluated in every state, so a piece can only be ignored after another if it is
+ * sure to be disabled: its guard has a conjunct {@code v == c}, {@code v != c}, {@code v} or {@code !v} that is false
+ * for the constant the effect of the other piece always leaves in {@code v}. That variable then stays live, and so do
+ * the variables of the guard if evaluating it may fail. The variables read primed and the observed ones, read by a
+ * property, are live everywhere.
+ * <p>
+ * Two states reached by the same piece that only differ on variables dead after it have the same future, up to the
+ * values of these variables.
+ */
+public class LiveVariables {
+    final ConstantFolding safety;
+    final Set<String> variables = new LinkedHashSet<>();
+    final Set<String> alwaysLive = new HashSet<>();
+    final Map<AnonymousPiece, List<AnonymousPiece>> followers = new IdentityHashMap<>();
+    final Map<AnonymousPiece, Set<String>> required = new IdentityHashMap<>();
+    final Map<AnonymousPiece, Set<String>> liveIn = new IdentityHashMap<>();
+    final Map<AnonymousPiece, Set<String>> liveOut = new IdentityHashMap<>();
+
+    public LiveVariables(Soup soup) {
+        this(soup, Set.of());
+    }
+
+    /**
+     * @param observed the variables read outside the soup, which are never dead
+     */
+    public LiveVariables(Soup soup, Collection<String> observed) {
+        this.safety = new ConstantFolding(soup);
+        for (var variable : soup.variables) {
+            variables.add(variable.name);
+        }
+        alwaysLive.addAll(observed);
+        alwaysLive.addAll(VariableAccesses.of(soup).primedReads);
+
+        for (var piece : soup.pieces) {
+            var exit = exitConstants(piece.effect, Map.of());
+            var following = new ArrayList<AnonymousPiece>();
+            var kept = new HashSet<String>();
+            for (var next : soup.pieces) {
+                var discriminator = disabledBy(next.guard, exit);
+                if (discriminator == null) {
+                    following.add(next);
+                    continue;
+                }
+                kept.add(discriminator);
+                if (!safety.cannotFail(next.guard)) kept.addAll(reads(next.guard));
+            }
+            followers.put(piece, following);
+            required.put(piece, kept);
+            liveIn.put(piece, new HashSet<>());
+            liveOut.put(piece, new HashSet<>());
+        }
+
+        var changed = true;
+        while (changed) {
+            changed = false;
+            for (var piece : soup.pieces) {
+                var out = liveOut.get(piece);
+                changed |= out.addAll(alwaysLive);
+                changed |= out.addAll(required.get(piece));
+                for (var next : followers.get(piece)) {
+                    changed |= out.addAll(liveIn.get(next));
+                }
+                var in = liveIn.get(piece);
+                changed |= in.addAll(reads(piece.guard));
+                changed |= in.addAll(liveBefore(piece.effect, out));
+            }
+        }
+    }
+
+    /**
+     * @return the variables that may be read after the piece fires, before being overwritten
+     */
+    public Set<String> liveAfter(AnonymousPiece piece) {
+        var live = new LinkedHashSet<>(variables);
+        live.retainAll(liveOut.get(piece));
+        return live;
+    }
+
+    /**
+     * @return the variables whose value after the piece fires is never read
+     */
+    public Set<String> deadAfter(AnonymousPiece piece) {
+        var dead = new LinkedHashSet<>(variables);
+        dead.removeAll(liveOut.get(piece));
+        return dead;
+    }
+
+    /**
+     * @return false if {@code next} is sure to be disabled right after {@code piece} fires
+     */
+    public boolean mayFollow(AnonymousPiece piece, AnonymousPiece next) {
+        return followers.get(piece).contains(next);
+    }
+
+    static Set<String> reads(SyntaxTreeElement node) {
+        var accesses = VariableAccesses.of(node);
+        var reads = new HashSet<>(accesses.reads);
+        reads.addAll(accesses.primedReads);
+        return reads;
+    }
+
+    static Set<String> liveBefore(Statement statement, Set<String> after) {
+        return switch (statement) {
+            case Assignment assignment -> {
+                var live = new HashSet<>(after);
+                live.remove(assignment.target.name);
+                live.addAll(reads(assignment.expression));
+                yield live;
+            }
+            case IfStatement node -> {
+                var live = reads(node.condition);
+                live.addAll(liveBefore(node.thenStatement, after));
+                live.addAll(liveBefore(node.elseStatement, after));
+                yield live;
+            }
+            case Sequence node -> liveBefore(node.left, liveBefore(node.right, after));
+            default -> after;
+        };
+    }
+
+    /**
+     * @return the literal values some variables are sure to hold after the statement, given those they hold before
+     */
+    static Map<String, Object> exitConstants(Statement statement, Map<String, Object> before) {
+        return switch (statement) {
+            case Assignment assignment -> {
+                var after = new HashMap<>(before);
+                if (assignment.expression instanceof Literal<?> literal) {
+                    after.put(assignment.target.name, literal.value);
+                } else {
+                    after.remove(assignment.target.name);
+                }
+                yield after;
+            }
+            case IfStatement node -> {
+                var after = new HashMap<>(exitConstants(node.thenStatement, before));
+                after.entrySet().retainAll(exitConstants(node.elseStatement, before).entrySet());
+                yield after;
+            }
+            case Sequence node -> exitConstants(node.right, exitConstants(node.left, before));
+            default -> before;
+        };
+    }
+
+    /**
+     * @return the variable of a conjunct of the guard that is false given the constants, or null
+     */
+    static String disabledBy(Expression guard, Map<String, Object> constants) {
+        return switch (guard) {
+            case ParenExpression paren -> disabledBy(paren.operand, constants);
+            case Conjunction node -> {
+                var left = disabledBy(node.left, constants);
+                yield left != null ? left : disabledBy(node.right, constants);
+            }
+            case Equal node -> compare(node.left, node.right, constants, false);
+            case NotEqual node -> compare(node.left, node.right, constants, true);
+            case NotExpression not when not.operand instanceof Reference<?> reference ->
+                    isConstant(reference, constants, true) ? reference.name : null;
+            case Reference<?> reference -> isConstant(reference, constants, false) ? reference.name : null;
+            default -> null;
+        };
+    }
+
+    static String compare(Expression left, Expression right, Map<String, Object> constants, boolean falseIfEqual) {
+        if (right instanceof Reference<?> && left instanceof Literal<?>) {
+            return compare(right, left, constants, falseIfEqual);
+        }
+        if (!(left instanceof Reference<?> reference) || !(right instanceof Literal<?> literal)) return null;
+        if (!isVariable(reference) || !constants.containsKey(reference.name)) return null;
+        var value = constants.get(reference.name);
+        // == is Object.equals, so 1 == 1.0 is false; mixed types are left undecided rather than relying on that
+        if (value.getClass() != literal.value.getClass()) return null;
+        return value.equals(literal.value) == falseIfEqual ? reference.name : null;
+    }
+
+    static boolean isConstant(Reference<?> reference, Map<String, Object> constants, Object value) {
+        return isVariable(reference) && value.equals(constants.get(reference.name));
+    }
+
+    static boolean isVariable(Reference<?> reference) {
+        return reference.getClass() == Reference.class;
+    }
+}
@@ -0,0 +1,101 @@
+package soup.optimization;
+
+import soup.syntax.model.FunctionalVisitorBase;
+import soup.syntax.model.SyntaxTreeElement;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.declarations.VariableDeclaration;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+import soup.syntax.model.dependent.EnabledExpression;
+import soup.syntax.model.dependent.InputReference;
+import soup.syntax.model.expressions.ConditionalExpression;
+import soup.syntax.model.expressions.binary.BinaryExpression;
+import soup.syntax.model.expressions.unary.UnaryExpression;
+import soup.syntax.model.statements.Assignment;
+import soup.syntax.model.statements.IfStatement;
+import soup.syntax.model.statements.Sequence;
+
+/**
+ * Counts the nodes of a syntax tree.
+ */
+public class NodeCount extends FunctionalVisitorBase<Void, Integer> {
+    static final NodeCount INSTANCE = new NodeCount();
+
+    public static int of(SyntaxTreeElement node) {
+        return node.accept(INSTANCE, null);
+    }
+
+    int sum(SyntaxTreeElement... children) {
+        var count = 1;
+        for (var child : children) {
+            count += child.accept(this, null);
+        }
+        return count;
+    }
+
+    @Override
+    public Integer visit(SyntaxTreeElement node, Void input) {
+        return 1;
+    }
+
+    @Override
+    public Integer visit(UnaryExpression node, Void input) {
+        return sum(node.operand);
+    }
+
+    @Override
+    public Integer visit(EnabledExpression node, Void input) {
+        return sum(node.operand);
+    }
+
+    @Override
+    public Integer visit(InputReference node, Void input) {
+        return sum(node.operand);
+    }
+
+    @Override
+    public Integer visit(BinaryExpression node, Void input) {
+        return sum(node.left, node.right);
+    }
+
+    @Override
+    public Integer visit(ConditionalExpression node, Void input) {
+        return sum(node.condition, node.thenExpression, node.elseExpression);
+    }
+
+    @Override
+    public Integer visit(Assignment node, Void input) {
+        return sum(node.target, node.expression);
+    }
+
+    @Override
+    public Integer visit(IfStatement node, Void input) {
+        return sum(node.condition, node.thenStatement, node.elseStatement);
+    }
+
+    @Override
+    public Integer visit(Sequence node, Void input) {
+        return sum(node.left, node.right);
+    }
+
+    @Override
+    public Integer visit(AnonymousPiece node, Void input) {
+        return sum(node.guard, node.effect);
+    }
+
+    @Override
+    public Integer visit(VariableDeclaration node, Void input) {
+        return sum(node.initial);
+    }
+
+    @Override
+    public Integer visit(Soup node, Void input) {
+        var count = 1;
+        for (var variable : node.variables) {
+            count += variable.accept(this, input);
+        }
+        for (var piece : node.pieces) {
+            count += piece.accept(this, input);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,12 @@
+package soup.optimization;
+
+import soup.syntax.model.declarations.Soup;
+
+/**
+ * The result of an optimization pass: the new soup and the sizes, in syntax tree nodes, of the soup before and after.
+ */
+public record OptimizedSoup(Soup soup, int nodesBefore, int nodesAfter) {
+    public int eliminatedNodes() {
+        return nodesBefore - nodesAfter;
+    }
+}
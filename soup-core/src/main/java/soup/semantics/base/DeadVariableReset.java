@@ -0,0 +1,98 @@
+package soup.semantics.base;
+
+import soup.optimization.LiveVariables;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resets the variables dead after a piece to their initial value in the successors of that piece, so that states
+ * that only differ on values never read again are merged.
+ * <p>
+ * The statistics count the successors of the pieces after which some variable is dead, those actually changed by a
+ * reset, and the merged ones: the successors changed by a reset that the visited set already held, which the
+ * exploration reports through {@link #visited}. These are counters, the reset successors are only marked by a flag of
+ * their environment, so the statistics cost no memory per state.
+ */
+public class DeadVariableReset {
+    final StateLayout layout;
+    final LiveVariables liveness;
+    final Map<AnonymousPiece, int[]> deadSlots = new IdentityHashMap<>();
+    final long[] canonical;
+    final LongAdder rewritten = new LongAdder();
+    final LongAdder resets = new LongAdder();
+    final LongAdder merged = new LongAdder();
+
+    DeadVariableReset(Soup model, StateLayout layout, LiveVariables liveness, Environment initial) {
+        this.layout = layout;
+        this.liveness = liveness;
+        this.canonical = new long[layout.size()];
+        for (int slot = 0; slot < canonical.length; slot++) {
+            canonical[slot] = SlotValues.encode(initial.lookup(layout.name(slot)));
+        }
+        for (var piece : model.pieces) {
+            var dead = liveness.deadAfter(piece);
+            if (dead.isEmpty()) continue;
+            deadSlots.put(piece, dead.stream().mapToInt(layout::slotOf).toArray());
+        }
+    }
+
+    public LiveVariables liveness() {
+        return liveness;
+    }
+
+    /**
+     * @return the number of successors of a piece after which some variable is dead
+     */
+    public long rewritten() {
+        return rewritten.sum();
+    }
+
+    /**
+     * @return the number of successors changed by a reset
+     */
+    public long resets() {
+        return resets.sum();
+    }
+
+    /**
+     * @return the number of successors changed by a reset that were already visited, as reported by {@link #visited}
+     */
+    public long merged() {
+        return merged.sum();
+    }
+
+    /**
+     * Reports that a successor was offered to the visited set.
+     *
+     * @param added true if the visited set did not hold the successor before
+     * @return {@code added}
+     */
+    public boolean visited(Environment successor, boolean added) {
+        if (!added && successor.reset) merged.increment();
+        return added;
+    }
+
+    void apply(AnonymousPiece piece, Environment successor) {
+        var slots = deadSlots.get(piece);
+        if (slots == null) return;
+        rewritten.increment();
+        var changed = false;
+        for (var slot : slots) {
+            var slotBacked = successor.layout() == layout;
+            var word = slotBacked ? successor.read(slot) : SlotValues.encode(successor.lookup(layout.name(slot)));
+            if (word == canonical[slot]) continue;
+            changed = true;
+            if (slotBacked) {
+                successor.store(slot, canonical[slot]);
+            } else {
+                successor.update(layout.name(slot), SlotValues.decode(canonical[slot]));
+            }
+        }
+        successor.reset = changed;
+        if (changed) resets.increment();
+    }
+}
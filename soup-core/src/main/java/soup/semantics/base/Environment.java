@@ -1,22 +1,86 @@
 package soup.semantics.base;
 
 import soup.syntax.model.SyntaxTreeElement;
+import soup.syntax.model.expressions.Reference;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
 
+/**
+ * A runtime configuration of a soup.
+ * <p>
+ * When created from a {@link StateLayout} the values live in a bit-packed {@code long[]} described by the layout,
+ * and {@link #environment} is a live {@link Map} view over it. The packed words are what {@link #equals} compares,
+ * see {@link #packed()}. Slot-backed environments also carry a 64-bit Zobrist hash of their values, updated in O(1)
+ * on every store, so {@link #hashCode} does not depend on the number of variables.
+ * The {@link #model} takes part in equality and hashing by identity only.
+ * <p>
+ * The packed words are split into chunks of {@value #CHUNK_WORDS} words shared between an environment and its copies.
+ * A chunk is copied the first time either side writes into it, so copying an environment costs its chunk spine and a
+ * successor allocates only the chunks its assignments touch.
+ * Environments built from a plain map, or whose {@link #environment} field is replaced, keep the original
+ * map-backed behavior. Defining a variable the layout does not know, or storing a value outside the range the layout
+ * inferred for it, also falls back to a map.
+ * <p>
+ * Slot-backed environments also carry the enabled pieces computed by {@link SoupSemantics#actions}, or those of their
+ * parent, which any store discards, and whether a dead variable reset changed them. These take no part in equality.
+ */
 public class Environment {
     public SyntaxTreeElement model;
     public Map<String, Object> environment = new HashMap<>();
 
+    StateLayout layout;
+    static final int CHUNK_BITS = 3;
+    static final int CHUNK_WORDS = 1 << CHUNK_BITS;
+
+    long[][] chunks;
+    /** one bit per chunk allocated by this environment, which can therefore be written in place */
+    long[] owned;
+    /** one bit per slot not defined yet, null once every slot is defined */
+    long[] undefined;
+    /** the XOR of {@link #zobrist} over the defined slots */
+    long hash;
+    SlotMap view;
+    /** the pieces enabled in this configuration, one bit per piece, null until computed or once a value changed */
+    long[] enabled;
+    /** the enabled pieces of the configuration this one was computed from by firing the piece {@link #fired} */
+    long[] parentEnabled;
+    int fired;
+    /** true if {@link DeadVariableReset} changed this successor; not copied, and no part of equality */
+    boolean reset;
+
     public Environment() {}
     public Environment(SyntaxTreeElement model) {
         this.model = model;
     }
+    public Environment(SyntaxTreeElement model, StateLayout layout) {
+        this.model = model;
+        this.layout = layout;
+        var wordCount = layout.wordCount();
+        this.chunks = new long[(wordCount + CHUNK_WORDS - 1) >>> CHUNK_BITS][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new long[Math.min(CHUNK_WORDS, wordCount - (i << CHUNK_BITS))];
+        }
+        this.owned = new long[(chunks.length + 63) >>> 6];
+        Arrays.fill(owned, -1L);
+        this.undefined = allUndefined(layout.size());
+        this.environment = this.view = new SlotMap();
+    }
     public Environment(Environment other) {
         if (other == null) { return; }
         this.model = other.model;
+        if (other.isSlotBacked()) {
+            this.layout = other.layout;
+            this.chunks = other.chunks.clone();
+            this.owned = new long[other.owned.length];
+            other.share();
+            this.undefined = other.undefined == null ? null : other.undefined.clone();
+            this.hash = other.hash;
+            this.environment = this.view = new SlotMap();
+            this.enabled = other.enabled;
+            this.parentEnabled = other.parentEnabled;
+            this.fired = other.fired;
+            return;
+        }
         this.environment = new HashMap<>(other.environment);
     }
     public Environment(SyntaxTreeElement model, Map<String, Object> environment) {
@@ -24,7 +88,141 @@ public class Environment {
         this.environment = environment;
     }
 
+    public boolean isSlotBacked() {
+        return view != null && environment == view;
+    }
+
+    public StateLayout layout() {
+        return isSlotBacked() ? layout : null;
+    }
+
+    /**
+     * @return the packed state vector of a slot-backed environment, null otherwise. The array must not be modified.
+     */
+    public long[] packed() {
+        if (!isSlotBacked()) return null;
+        if (chunks.length == 1) return chunks[0];
+        var words = new long[layout.wordCount()];
+        for (int i = 0; i < chunks.length; i++) {
+            System.arraycopy(chunks[i], 0, words, i << CHUNK_BITS, chunks[i].length);
+        }
+        return words;
+    }
+
+    /**
+     * @return the word at {@code index} of the packed state vector of a slot-backed environment
+     */
+    public long packedWord(int index) {
+        return chunks[index >>> CHUNK_BITS][index & (CHUNK_WORDS - 1)];
+    }
+
+    void setPackedWord(int index, long word) {
+        var chunk = index >>> CHUNK_BITS;
+        if ((owned[chunk >>> 6] & (1L << chunk)) == 0) {
+            chunks[chunk] = chunks[chunk].clone();
+            owned[chunk >>> 6] |= 1L << chunk;
+        }
+        chunks[chunk][index & (CHUNK_WORDS - 1)] = word;
+    }
+
+    /**
+     * Gives up in-place writes: the chunks are now shared with a copy.
+     */
+    void share() {
+        for (int i = 0; i < owned.length; i++) {
+            if (owned[i] != 0) owned[i] = 0;
+        }
+    }
+
+    long read(int slot) {
+        return layout.decode(layout.isConstant(slot) ? 0 : packedWord(layout.wordOf(slot)), slot);
+    }
+
+    static long[] allUndefined(int size) {
+        if (size == 0) return null;
+        var bits = new long[(size + 63) >>> 6];
+        Arrays.fill(bits, -1L);
+        bits[bits.length - 1] = -1L >>> (bits.length * 64 - size);
+        return bits;
+    }
+
+    boolean isDefined(int slot) {
+        return undefined == null || (undefined[slot >>> 6] & (1L << slot)) == 0;
+    }
+
+    void markDefined(int slot) {
+        undefined[slot >>> 6] &= ~(1L << slot);
+        for (var bits : undefined) {
+            if (bits != 0) return;
+        }
+        undefined = null;
+    }
+
+    /**
+     * Stores a word in a slot, falling back to a map if the value does not fit the slot's field.
+     */
+    void store(int slot, long word) {
+        enabled = null;
+        parentEnabled = null;
+        var defined = isDefined(slot);
+        var old = defined ? read(slot) : SlotValues.UNDEFINED;
+        if (layout.fits(slot, word)) {
+            if (!layout.isConstant(slot)) {
+                var index = layout.wordOf(slot);
+                setPackedWord(index, layout.encode(packedWord(index), slot, word));
+            }
+            if (defined) hash ^= zobrist(layout.salts[slot], old);
+            hash ^= zobrist(layout.salts[slot], word);
+            return;
+        }
+        var name = layout.name(slot);
+        detach();
+        environment.put(name, SlotValues.decode(word));
+    }
+
+    /**
+     * The hash of one variable binding. The salt is derived from the variable name, so that map-backed
+     * environments hash to the same value as slot-backed ones.
+     */
+    static long zobrist(long salt, long word) {
+        return mix(salt ^ (word * 0x9E3779B97F4A7C15L));
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return a 64-bit hash of the variable bindings, O(1) for slot-backed environments
+     */
+    public long hash64() {
+        if (isSlotBacked()) return hash;
+        long h = 0;
+        for (var entry : environment.entrySet()) {
+            var value = entry.getValue();
+            var word = value instanceof Boolean || value instanceof Integer || value instanceof Double
+                    ? SlotValues.encode(value)
+                    : Objects.hashCode(value);
+            h ^= zobrist(StateLayout.salt(entry.getKey()), word);
+        }
+        return h;
+    }
+
     public void define(String key, Object value) {
+        if (isSlotBacked()) {
+            var slot = layout.slotOf(key);
+            if (slot >= 0) {
+                if (isDefined(slot)) {
+                    throw new RuntimeException("The variable '" + key + "' is already defined");
+                }
+                store(slot, SlotValues.encode(value));
+                if (isSlotBacked()) markDefined(slot);
+                return;
+            }
+            detach();
+        }
         if (environment.containsKey(key)) {
             throw new RuntimeException("The variable '" + key + "' is already defined");
         }
@@ -32,6 +230,9 @@ public class Environment {
     }
 
     public Object lookup(String key) {
+        if (isSlotBacked()) {
+            return lookup(layout.slotOf(key), key);
+        }
         var value = environment.get(key);
         if (value == null) {
             throw new RuntimeException("The variable '" + key + "' is not defined");
@@ -39,27 +240,220 @@ public class Environment {
         return value;
     }
 
+    public Object lookup(Reference<?> reference) {
+        if (isSlotBacked()) {
+            return lookup(layout.slotOf(reference), reference.name);
+        }
+        return lookup(reference.name);
+    }
+
+    /**
+     * Looks a variable up as a {@link SlotValues} word, without boxing it when the environment is slot-backed.
+     */
+    public long lookupWord(Reference<?> reference) {
+        if (isSlotBacked()) {
+            var slot = layout.slotOf(reference);
+            if (slot < 0 || !isDefined(slot)) {
+                throw new RuntimeException("The variable '" + reference.name + "' is not defined");
+            }
+            return read(slot);
+        }
+        return SlotValues.encode(lookup(reference.name));
+    }
+
+    /**
+     * Looks a variable up through a slot resolved in advance against {@code layout}, falling back to
+     * {@link #lookupWord(Reference)} if this environment does not use that layout.
+     */
+    public long lookupWord(StateLayout layout, int slot, Reference<?> reference) {
+        if (this.layout == layout && slot >= 0 && isSlotBacked() && isDefined(slot)) {
+            return read(slot);
+        }
+        return lookupWord(reference);
+    }
+
+    Object lookup(int slot, String key) {
+        if (slot < 0 || !isDefined(slot)) {
+            throw new RuntimeException("The variable '" + key + "' is not defined");
+        }
+        return SlotValues.decode(read(slot));
+    }
+
     public void update(String key, Object value) {
+        if (isSlotBacked()) {
+            update(layout.slotOf(key), key, value);
+            return;
+        }
         if (!environment.containsKey(key)) {
             throw new RuntimeException("The variable '" + key + "' is not defined");
         }
         environment.put(key, value);
     }
 
+    public void update(Reference<?> reference, Object value) {
+        if (isSlotBacked()) {
+            update(layout.slotOf(reference), reference.name, value);
+            return;
+        }
+        update(reference.name, value);
+    }
+
+    /**
+     * Updates a variable with a {@link SlotValues} word, without boxing it when the environment is slot-backed.
+     */
+    public void updateWord(Reference<?> reference, long word) {
+        if (isSlotBacked()) {
+            var slot = layout.slotOf(reference);
+            if (slot < 0 || !isDefined(slot)) {
+                throw new RuntimeException("The variable '" + reference.name + "' is not defined");
+            }
+            store(slot, word);
+            return;
+        }
+        update(reference.name, SlotValues.decode(word));
+    }
+
+    /**
+     * Updates a variable through a slot resolved in advance against {@code layout}, falling back to
+     * {@link #updateWord(Reference, long)} if this environment does not use that layout.
+     */
+    public void updateWord(StateLayout layout, int slot, Reference<?> reference, long word) {
+        if (this.layout == layout && slot >= 0 && isSlotBacked() && isDefined(slot)) {
+            store(slot, word);
+            return;
+        }
+        updateWord(reference, word);
+    }
+
+    void update(int slot, String key, Object value) {
+        if (slot < 0 || !isDefined(slot)) {
+            throw new RuntimeException("The variable '" + key + "' is not defined");
+        }
+        store(slot, SlotValues.encode(value));
+    }
+
+    /**
+     * Copies the slot values into a plain map and stops using the layout.
+     */
+    void detach() {
+        this.environment = new HashMap<>(view);
+        this.layout = null;
+        this.chunks = null;
+        this.owned = null;
+        this.undefined = null;
+        this.hash = 0;
+        this.view = null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Environment that)) return false;
-        return Objects.equals(model, that.model) && Objects.equals(environment, that.environment);
+        if (model != that.model) return false;
+        if (isSlotBacked() && that.isSlotBacked() && layout == that.layout) {
+            if (hash != that.hash || !Arrays.equals(undefined, that.undefined)) return false;
+            for (int i = 0; i < chunks.length; i++) {
+                if (chunks[i] != that.chunks[i] && !Arrays.equals(chunks[i], that.chunks[i])) return false;
+            }
+            return true;
+        }
+        return Objects.equals(environment, that.environment);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(model, environment);
+        return 31 * System.identityHashCode(model) + Long.hashCode(hash64());
     }
 
     @Override
     public String toString() {
         return environment.toString();
     }
+
+    /**
+     * The {@link Map} view of the slots. Undefined slots are not part of the view.
+     */
+    final class SlotMap extends AbstractMap<String, Object> {
+        @Override
+        public int size() {
+            if (undefined == null) return layout.size();
+            int size = 0;
+            for (int i = 0; i < layout.size(); i++) {
+                if (isDefined(i)) size++;
+            }
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (!(key instanceof String name)) return false;
+            var slot = layout.slotOf(name);
+            return slot >= 0 && isDefined(slot);
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (!(key instanceof String name)) return null;
+            var slot = layout.slotOf(name);
+            return slot < 0 || !isDefined(slot) ? null : SlotValues.decode(read(slot));
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            var slot = layout.slotOf(key);
+            if (slot < 0) {
+                throw new UnsupportedOperationException("The variable '" + key + "' is not part of the state layout");
+            }
+            var old = get(key);
+            var defined = isDefined(slot);
+            store(slot, SlotValues.encode(value));
+            if (!defined && isSlotBacked()) markDefined(slot);
+            return old;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 0;
+            for (int i = 0; i < layout.size(); i++) {
+                if (!isDefined(i)) continue;
+                hash += layout.nameHashes[i] ^ SlotValues.valueHashCode(read(i));
+            }
+            return hash;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return SlotMap.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < layout.size() && !isDefined(from)) from++;
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < layout.size();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            var entry = new SimpleImmutableEntry<>(layout.names[next], SlotValues.decode(read(next)));
+                            next = advance(next + 1);
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package soup.semantics.base;
+
+import soup.syntax.model.declarations.Soup;
+
+/**
+ * How {@link SoupSemantics} runs the guards and effects of a well-typed soup.
+ */
+public enum ExecutionMode {
+    /**
+     * walk the syntax tree with {@link PrimitiveExpressionSemantics}; the reference semantics remains
+     * {@link ExpressionSemantics}, see {@link SoupSemantics#SoupSemantics(Soup, ExpressionSemantics)}
+     */
+    PRIMITIVE,
+    /** run the trees of closures built by {@link soup.semantics.compiled.ClosureCompiler} */
+    CLOSURES,
+    /**
+     * interpret every piece until it is hot, then compile it into closures on a background thread,
+     * see {@link soup.semantics.compiled.TieredCompiler}
+     */
+    TIERED,
+    /**
+     * run the hidden class generated by {@link soup.semantics.compiled.BytecodeCompiler}, for the largest jobs;
+     * the JVM must run with {@code --enable-preview}. A soup too large for one class runs on closures instead.
+     */
+    BYTECODE,
+}
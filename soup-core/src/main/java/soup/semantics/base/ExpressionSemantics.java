@@ -6,6 +6,7 @@ import soup.syntax.model.declarations.Soup;
 import soup.syntax.model.expressions.ConditionalExpression;
 import soup.syntax.model.expressions.Expression;
 import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.binary.BinaryExpression;
 import soup.syntax.model.expressions.binary.arithmetic.*;
 import soup.syntax.model.expressions.binary.propositional.*;
 import soup.syntax.model.expressions.binary.relational.*;
@@ -18,6 +19,8 @@ import soup.syntax.model.expressions.unary.ParenExpression;
 import soup.syntax.model.expressions.unary.PlusExpression;
 
 import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
 
 public class ExpressionSemantics extends FunctionalVisitorBase<Environment, Object> {
 
@@ -52,7 +55,7 @@ public class ExpressionSemantics extends FunctionalVisitorBase<Environment, Obje
 
     @Override
     public Object visit(Reference<?> node, Environment environment) {
-        return environment.lookup(node.name);
+        return environment.lookup(node);
     }
 
     public boolean ensureBoolean(String operator, Object value) {
@@ -79,6 +82,38 @@ public class ExpressionSemantics extends FunctionalVisitorBase<Environment, Obje
         throw new UnsupportedOperationException(operator + " expected a double but got " + value);
     }
 
+    interface IntComparison {
+        boolean test(int left, int right);
+    }
+
+    interface DoubleComparison {
+        boolean test(double left, double right);
+    }
+
+    /**
+     * Applies an arithmetic operator, with integer semantics when both operands are integers.
+     */
+    Object arithmetic(BinaryExpression node, Environment environment, IntBinaryOperator integers, DoubleBinaryOperator doubles) {
+        var left = node.left.accept(this, environment);
+        var right = node.right.accept(this, environment);
+        if (left instanceof Integer leftV && right instanceof Integer rightV) {
+            return integers.applyAsInt(leftV, rightV);
+        }
+        return doubles.applyAsDouble(ensureDouble(node.operator, left), ensureDouble(node.operator, right));
+    }
+
+    /**
+     * Applies an ordering operator, comparing integers as integers.
+     */
+    Object relational(BinaryExpression node, Environment environment, IntComparison integers, DoubleComparison doubles) {
+        var left = node.left.accept(this, environment);
+        var right = node.right.accept(this, environment);
+        if (left instanceof Integer leftV && right instanceof Integer rightV) {
+            return integers.test(leftV, rightV);
+        }
+        return doubles.test(ensureDouble(node.operator, left), ensureDouble(node.operator, right));
+    }
+
     @Override
     public Object visit(NotExpression node, Environment environment) {
         var operand = node.operand.accept(this, environment);
@@ -89,23 +124,19 @@ public class ExpressionSemantics extends FunctionalVisitorBase<Environment, Obje
     @Override
     public Object visit(MinusExpression node, Environment environment) {
         var operand = node.operand.accept(this, environment);
-        try {
-            var intValue = ensureInteger(node.operator, operand);
-            return - intValue;
-        } catch (UnsupportedOperationException e) {
-            var doubleValue = ensureDouble(node.operator, operand);
-            return -doubleValue;
+        if (operand instanceof Integer intValue) {
+            return -intValue;
         }
+        return -ensureDouble(node.operator, operand);
     }
 
     @Override
     public Object visit(PlusExpression node, Environment environment) {
         var operand = node.operand.accept(this, environment);
-        try {
-            return ensureInteger(node.operator, operand);
-        } catch (UnsupportedOperationException e) {
-            return ensureDouble(node.operator, operand);
+        if (operand instanceof Integer) {
+            return operand;
         }
+        return ensureDouble(node.operator, operand);
     }
 
     @Override
@@ -115,146 +146,47 @@ public class ExpressionSemantics extends FunctionalVisitorBase<Environment, Obje
 
     @Override
     public Object visit(Multiplication node, Environment environment) {
-        var left = node.left.accept(this, environment);
-        var right = node.right.accept(this, environment);
-
-        try {
-            var leftV = ensureInteger(node.operator, left);
-            var rightV = ensureInteger(node.operator, right);
-            return leftV * rightV;
-        } catch (UnsupportedOperationException e) {
-            var leftV = ensureDouble(node.operator, left);
-            var rightV = ensureDouble(node.operator, right);
-            return leftV * rightV;
-        }
+        return arithmetic(node, environment, (l, r) -> l * r, (l, r) -> l * r);
     }
 
     @Override
     public Object visit(Division node, Environment environment) {
-        var left = node.left.accept(this, environment);
-        var right = node.right.accept(this, environment);
-
-        try {
-            var leftV = ensureInteger(node.operator, left);
-            var rightV = ensureInteger(node.operator, right);
-            return leftV / rightV;
-        } catch (UnsupportedOperationException e) {
-            var leftV = ensureDouble(node.operator, left);
-            var rightV = ensureDouble(node.operator, right);
-            return leftV / rightV;
-        }
+        return arithmetic(node, environment, (l, r) -> l / r, (l, r) -> l / r);
     }
 
     @Override
     public Object visit(Modulus node, Environment environment) {
-        var left = node.left.accept(this, environment);
-        var right = node.right.accept(this, environment);
-
-        try {
-            var leftV = ensureInteger(node.operator, left);
-            var rightV = ensureInteger(node.operator, right);
-            return leftV % rightV;
-        } catch (UnsupportedOperationException e) {
-            var leftV = ensureDouble(node.operator, left);
-            var rightV = ensureDouble(node.operator, right);
-            return leftV % rightV;
-        }
+        return arithmetic(node, environment, (l, r) -> l % r, (l, r) -> l % r);
     }
 
     @Override
     public Object visit(Addition node, Environment environment) {
-        var left = node.left.accept(this, environment);
-        var right = node.right.accept(this, environment);
-
-        try {
-            var leftV = ensureInteger(node.operator, left);
-            var rightV = ensureInteger(node.operator, right);
-            return leftV + rightV;
-        } catch (UnsupportedOperationException e) {
-            var leftV = ensureDouble(node.operator, left);
-            var rightV = ensureDouble(node.operator, right);
-            return leftV + rightV;
-        }
+        return arithmetic(node, environment, (l, r) -> l + r, (l, r) -> l + r);
     }
 
     @Override
     public Object visit(Substraction node, Environment environment) {
-        var left = node.left.accept(this, environment);
-        var right = node.right.accept(this, environment);
-
-        try {
-            var leftV = ensureInteger(node.operator, left);
-            var rightV = ensureInteger(node.operator, right);
-            return leftV - rightV;
-        } catch (UnsupportedOperationException e) {
-            var leftV = ensureDouble(node.operator, left);
-            var rightV = ensureDouble(node.operator, right);
-            return leftV - rightV;
-        }
+        return arithmetic(node, environment, (l, r) -> l - r, (l, r) -> l - r);
     }
 
     @Override
     public Object visit(LessThan node, Environment environment) {
-        var left = node.left.accept(this, environment);
-        var right = node.right.accept(this, environment);
-
-        try {
-            var leftV = ensureInteger(node.operator, left);
-            var rightV = ensureInteger(node.operator, right);
-            return leftV < rightV;
-        } catch (UnsupportedOperationException e) {
-            var leftV = ensureDouble(node.operator, left);
-            var rightV = ensureDouble(node.operator, right);
-            return leftV < rightV;
-        }
+        return relational(node, environment, (l, r) -> l < r, (l, r) -> l < r);
     }
 
     @Override
     public Object visit(LessThanOrEqual node, Environment environment) {
-        var left = node.left.accept(this, environment);
-        var right = node.right.accept(this, environment);
-
-        try {
-            var leftV = ensureInteger(node.operator, left);
-            var rightV = ensureInteger(node.operator, right);
-            return leftV <= rightV;
-        } catch (UnsupportedOperationException e) {
-            var leftV = ensureDouble(node.operator, left);
-            var rightV = ensureDouble(node.operator, right);
-            return leftV <= rightV;
-        }
+        return relational(node, environment, (l, r) -> l <= r, (l, r) -> l <= r);
     }
 
     @Override
     public Object visit(GreaterThan node, Environment environment) {
-        var left = node.left.accept(this, environment);
-        var right = node.right.accept(this, environment);
-
-        try {
-            var leftV = ensureInteger(node.operator, left);
-            var rightV = ensureInteger(node.operator, right);
-            return leftV > rightV;
-        } catch (UnsupportedOperationException e) {
-            var leftV = ensureDouble(node.operator, left);
-            var rightV = ensureDouble(node.operator, right);
-            return leftV > rightV;
-        }
+        return relational(node, environment, (l, r) -> l > r, (l, r) -> l > r);
     }
 
     @Override
     public Object visit(GreaterThanOrEqual node, Environment environment) {
-        var left = node.left.accept(this, environment);
-        var right = node.right.accept(this, environment);
-
-        try {
-            var leftV = ensureInteger(node.operator, left);
-            var rightV = ensureInteger(node.operator, right);
-            return leftV >= rightV;
-        } catch (UnsupportedOperationException e) {
-            var leftV = ensureDouble(node.operator, left);
-            var rightV = ensureDouble(node.operator, right);
-            return leftV >= rightV;
-        }
+        return relational(node, environment, (l, r) -> l >= r, (l, r) -> l >= r);
     }
 
     @Override
@@ -0,0 +1,267 @@
+package soup.semantics.base;
+
+import obp3.runtime.sli.SemanticRelation;
+import soup.analysis.Independence;
+import soup.analysis.VariableAccesses;
+import soup.optimization.ConstantFolding;
+import soup.semantics.compiled.GuardDiagram;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+import soup.syntax.model.declarations.pieces.NamedPiece;
+import soup.syntax.model.expressions.Expression;
+import soup.syntax.model.statements.Assignment;
+import soup.syntax.model.statements.IfStatement;
+import soup.syntax.model.statements.Sequence;
+import soup.syntax.model.statements.Statement;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * The semantics of a soup reduced by partial-order reduction: in each state, {@link #actions} only returns a stubborn
+ * subset of the enabled pieces.
+ * <p>
+ * The stubborn set of an enabled seed piece is closed under {@link Independence}: it holds the pieces dependent on its
+ * enabled pieces and, for each of its disabled pieces, the pieces writing the variables of a conjunct of its guard
+ * that is false in the state. The smallest such set over the seeds is used, provided that:
+ * <ul>
+ *     <li>none of its pieces is visible, that is writes a variable observed by the property, is referenced by name by
+ *     it, or has an effect that may fail;</li>
+ *     <li>none of its successors was already generated, the cycle proviso: every cycle of the reduced state space then
+ *     has a fully expanded state, so that no piece is ignored forever.</li>
+ * </ul>
+ * Otherwise all the enabled pieces are returned. Deadlocks, safety properties and stutter-insensitive LTL properties,
+ * without the next operator, over the observed variables are preserved.
+ * <p>
+ * The proviso asks the traversal which states it has already generated, through the visited set it keeps anyway.
+ * A traversal that does not expose it, such as the one of an OBP3 model checker, gets a reduction that remembers the
+ * generated states itself.
+ * <p>
+ * The seed chosen for a reduced state is remembered, keyed by the state itself, so that a state expanded twice, as by
+ * the nested search of an emptiness check, always gets the same pieces; the states fully expanded are not remembered,
+ * since the proviso only gets stricter as the search goes on.
+ */
+public class PartialOrderReduction implements SemanticRelation<AnonymousPiece, Environment> {
+    final SoupSemantics semantics;
+    final SemanticRelation<AnonymousPiece, Environment> pure;
+    final Soup model;
+    final Independence independence;
+    final boolean[] visible;
+    /** the conjuncts of the guard of each piece */
+    final Expression[][] conjuncts;
+    /** for each conjunct of each guard, the pieces writing the variables it reads */
+    final int[][][] enablers;
+    final ExpressionSemantics evaluator = new ExpressionSemantics();
+    /** the states generated so far, null if the traversal tells them through {@link #visited} */
+    final Set<Environment> generated;
+    final Predicate<Environment> visited;
+    /** the seed of the stubborn set chosen for each state expanded with a reduction */
+    final Map<Environment, Integer> chosen = new ConcurrentHashMap<>();
+    final LongAdder reducedExpansions = new LongAdder();
+    final LongAdder fullExpansions = new LongAdder();
+
+    /**
+     * @param observed the names read by the property: its variables and the pieces its atoms reference
+     */
+    public PartialOrderReduction(SoupSemantics semantics, Collection<String> observed) {
+        this(semantics, observed, null);
+    }
+
+    /**
+     * @param observed the names read by the property: its variables and the pieces its atoms reference
+     * @param visited tells the states the traversal has already generated, a successor counting as soon as it is
+     *                generated; if null, the reduction remembers the generated states itself
+     */
+    public PartialOrderReduction(SoupSemantics semantics, Collection<String> observed, Predicate<Environment> visited) {
+        this.semantics = semantics;
+        this.generated = visited == null ? ConcurrentHashMap.newKeySet() : null;
+        this.visited = visited == null ? generated::contains : visited;
+        this.pure = semantics.pureSemantics();
+        this.model = semantics.model;
+        this.independence = new Independence(model);
+        var safety = new ConstantFolding(model);
+        var count = model.pieces.size();
+        this.visible = new boolean[count];
+        this.conjuncts = new Expression[count][];
+        this.enablers = new int[count][][];
+        for (int i = 0; i < count; i++) {
+            var piece = model.pieces.get(i);
+            visible[i] = independence.writes(i).stream().anyMatch(observed::contains)
+                    || piece instanceof NamedPiece named && observed.contains(named.name)
+                    || mayFail(piece.effect, safety);
+            var list = new ArrayList<Expression>();
+            GuardDiagram.conjuncts(piece.guard, list);
+            conjuncts[i] = list.toArray(Expression[]::new);
+            enablers[i] = new int[conjuncts[i].length][];
+            for (int j = 0; j < conjuncts[i].length; j++) {
+                var accesses = VariableAccesses.of(conjuncts[i][j]);
+                enablers[i][j] = independence.writers(accesses.reads);
+            }
+        }
+    }
+
+    static boolean mayFail(Statement statement, ConstantFolding safety) {
+        return switch (statement) {
+            case Assignment assignment -> !safety.cannotFail(assignment.expression);
+            case IfStatement node -> !safety.cannotFail(node.condition)
+                    || mayFail(node.thenStatement, safety) || mayFail(node.elseStatement, safety);
+            case Sequence node -> mayFail(node.left, safety) || mayFail(node.right, safety);
+            default -> false;
+        };
+    }
+
+    public Independence independence() {
+        return independence;
+    }
+
+    public boolean isVisible(AnonymousPiece piece) {
+        return visible[independence.indexOf(piece)];
+    }
+
+    /**
+     * @return the number of states with several enabled pieces where only a subset of them was returned
+     */
+    public long reducedExpansions() {
+        return reducedExpansions.sum();
+    }
+
+    /**
+     * @return the number of states with several enabled pieces where all of them were returned
+     */
+    public long fullExpansions() {
+        return fullExpansions.sum();
+    }
+
+    @Override
+    public List<Environment> initial() {
+        var initial = pure.initial();
+        if (generated != null) generated.addAll(initial);
+        return initial;
+    }
+
+    @Override
+    public List<AnonymousPiece> actions(Environment configuration) {
+        var enabled = semantics.actions(configuration);
+        if (enabled.size() <= 1 || configuration.model != model) return enabled;
+        var isEnabled = new boolean[model.pieces.size()];
+        for (var piece : enabled) {
+            isEnabled[independence.indexOf(piece)] = true;
+        }
+        var seed = chosen.get(configuration);
+        if (seed != null && isEnabled[seed]) {
+            return stubbornEnabled(seed, isEnabled, enabled.size() + 1, configuration);
+        }
+        var reduced = reduce(enabled, isEnabled, configuration);
+        if (reduced == null) {
+            fullExpansions.increment();
+            return enabled;
+        }
+        seed = chosen.putIfAbsent(configuration, independence.indexOf(reduced.getFirst()));
+        // another thread reduced the state first
+        if (seed != null && isEnabled[seed]) return stubbornEnabled(seed, isEnabled, enabled.size() + 1, configuration);
+        reducedExpansions.increment();
+        return reduced;
+    }
+
+    /**
+     * @return the smallest stubborn set, its seed first, or null if none is both invisible and smaller than the
+     * enabled pieces, or if it breaks the cycle proviso
+     */
+    List<AnonymousPiece> reduce(List<AnonymousPiece> enabled, boolean[] isEnabled, Environment configuration) {
+        var best = -1;
+        var bestSize = enabled.size();
+        for (var seed : enabled) {
+            var index = independence.indexOf(seed);
+            if (visible[index]) continue;
+            var size = stubborn(index, isEnabled, new boolean[isEnabled.length], bestSize, configuration);
+            if (size < bestSize) {
+                best = index;
+                bestSize = size;
+                if (size == 1) break;
+            }
+        }
+        if (best < 0) return null;
+        var reduced = stubbornEnabled(best, isEnabled, bestSize + 1, configuration);
+        for (var piece : reduced) {
+            // the cycle proviso
+            for (var successor : pure.execute(piece, configuration)) {
+                if (visited.test(successor)) return null;
+            }
+        }
+        return reduced;
+    }
+
+    /**
+     * @return the enabled pieces of the stubborn set of the seed, the seed first
+     */
+    List<AnonymousPiece> stubbornEnabled(int seed, boolean[] isEnabled, int bound, Environment configuration) {
+        var stubborn = new boolean[isEnabled.length];
+        stubborn(seed, isEnabled, stubborn, bound, configuration);
+        var reduced = new ArrayList<AnonymousPiece>();
+        reduced.add(model.pieces.get(seed));
+        for (int i = 0; i < stubborn.length; i++) {
+            if (stubborn[i] && isEnabled[i] && i != seed) reduced.add(model.pieces.get(i));
+        }
+        return reduced;
+    }
+
+    /**
+     * Closes the stubborn set of a seed, giving up as soon as it holds a visible enabled piece or {@code bound}
+     * enabled pieces.
+     *
+     * @return the number of enabled pieces in the set, {@code bound} if given up
+     */
+    int stubborn(int seed, boolean[] isEnabled, boolean[] stubborn, int bound, Environment configuration) {
+        var pending = new ArrayDeque<Integer>();
+        stubborn[seed] = true;
+        pending.add(seed);
+        var size = 0;
+        while (!pending.isEmpty()) {
+            var piece = pending.poll();
+            int[] next;
+            if (isEnabled[piece]) {
+                if (visible[piece] || ++size >= bound) return bound;
+                next = independence.dependents(piece);
+            } else {
+                next = enablers(piece, configuration);
+            }
+            for (var other : next) {
+                if (stubborn[other]) continue;
+                stubborn[other] = true;
+                pending.add(other);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the pieces writing the variables of a conjunct of the disabled piece's guard that is false, or of the
+     * whole guard if no conjunct can be shown false
+     */
+    int[] enablers(int piece, Environment configuration) {
+        for (int i = 0; i < conjuncts[piece].length; i++) {
+            Object value;
+            try {
+                value = evaluator.evaluate(conjuncts[piece][i], configuration);
+            } catch (RuntimeException e) {
+                continue;
+            }
+            if (Boolean.FALSE.equals(value)) return enablers[piece][i];
+        }
+        return independence.writers(independence.reads(piece));
+    }
+
+    @Override
+    public List<Environment> execute(AnonymousPiece action, Environment configuration) {
+        var successors = pure.execute(action, configuration);
+        if (generated != null) generated.addAll(successors);
+        return successors;
+    }
+}
@@ -0,0 +1,256 @@
+package soup.semantics.base;
+
+import soup.analysis.TypeInference;
+import soup.syntax.model.expressions.ConditionalExpression;
+import soup.syntax.model.expressions.Expression;
+import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.Type;
+import soup.syntax.model.expressions.binary.BinaryExpression;
+import soup.syntax.model.expressions.binary.arithmetic.*;
+import soup.syntax.model.expressions.binary.propositional.*;
+import soup.syntax.model.expressions.binary.relational.*;
+import soup.syntax.model.expressions.literals.BooleanLiteral;
+import soup.syntax.model.expressions.literals.DoubleLiteral;
+import soup.syntax.model.expressions.literals.IntegerLiteral;
+import soup.syntax.model.expressions.unary.MinusExpression;
+import soup.syntax.model.expressions.unary.NotExpression;
+import soup.syntax.model.expressions.unary.ParenExpression;
+import soup.syntax.model.expressions.unary.PlusExpression;
+
+/**
+ * Evaluates expressions to {@code int}, {@code double}, {@code boolean} or {@link SlotValues} words without boxing,
+ * with the same results and errors as {@link ExpressionSemantics}.
+ * <p>
+ * The static types looked up with {@link TypeInference#typeOf} select the evaluation: an integer-typed expression is
+ * computed with {@code int} arithmetic end to end, a double-typed one with {@code double} arithmetic, reading the variables as
+ * words from the {@link Environment}. Expressions whose type is only known at runtime are evaluated as words whose
+ * tags are checked on the fly. Nodes this evaluator does not know are delegated to the boxed semantics.
+ */
+public class PrimitiveExpressionSemantics {
+    final TypeInference types;
+    final ExpressionSemantics boxed;
+
+    public PrimitiveExpressionSemantics(TypeInference types) {
+        this(types, new ExpressionSemantics());
+    }
+
+    public PrimitiveExpressionSemantics(TypeInference types, ExpressionSemantics boxed) {
+        this.types = types;
+        this.boxed = boxed;
+    }
+
+    public TypeInference types() {
+        return types;
+    }
+
+    /**
+     * @return true for a plain variable reference, false for the primed, input and piece references
+     */
+    public static boolean isVariable(Expression expression) {
+        return expression.getClass() == Reference.class;
+    }
+
+    static UnsupportedOperationException expected(String operator, String type, long word) {
+        return new UnsupportedOperationException(operator + " expected " + type + " but got " + SlotValues.decode(word));
+    }
+
+    /**
+     * Unwraps a word, failing like {@link ExpressionSemantics} if it holds a value of another type.
+     */
+    public static boolean asBoolean(String operator, long word) {
+        if (SlotValues.isBoolean(word)) return (word & 1L) != 0;
+        throw expected(operator, "a boolean", word);
+    }
+
+    public static int asInteger(String operator, long word) {
+        if (SlotValues.isInteger(word)) return (int) word;
+        throw expected(operator, "an integer", word);
+    }
+
+    public static double asDouble(String operator, long word) {
+        if (SlotValues.isInteger(word)) return (int) word;
+        if (SlotValues.isDouble(word)) return Double.longBitsToDouble(word);
+        throw expected(operator, "a double", word);
+    }
+
+    public boolean evaluateBoolean(Expression expression, Environment environment) {
+        return switch (expression) {
+            case BooleanLiteral literal -> literal.value;
+            case Reference<?> reference when isVariable(reference) ->
+                    asBoolean(reference.name, environment.lookupWord(reference));
+            case ParenExpression paren -> evaluateBoolean(paren.operand, environment);
+            case NotExpression not -> !evaluateBoolean(not.operand, environment);
+            case Conjunction node -> evaluateBoolean(node.left, environment) & evaluateBoolean(node.right, environment);
+            case Disjunction node -> evaluateBoolean(node.left, environment) | evaluateBoolean(node.right, environment);
+            case Implication node -> !evaluateBoolean(node.left, environment) | evaluateBoolean(node.right, environment);
+            case Equivalence node -> evaluateBoolean(node.left, environment) == evaluateBoolean(node.right, environment);
+            case ExclusiveDisjunction node -> evaluateBoolean(node.left, environment) ^ evaluateBoolean(node.right, environment);
+            case Equal node -> equal(node, environment);
+            case NotEqual node -> !equal(node, environment);
+            case LessThan node -> relational(node, environment);
+            case LessThanOrEqual node -> relational(node, environment);
+            case GreaterThan node -> relational(node, environment);
+            case GreaterThanOrEqual node -> relational(node, environment);
+            case ConditionalExpression node -> evaluateBoolean(node.condition, environment)
+                    ? evaluateBoolean(node.thenExpression, environment)
+                    : evaluateBoolean(node.elseExpression, environment);
+            default -> asBoolean("expression", evaluateWord(expression, environment));
+        };
+    }
+
+    /**
+     * Evaluates an expression whose static type is {@link Type#INTEGER}.
+     */
+    public int evaluateInteger(Expression expression, Environment environment) {
+        return switch (expression) {
+            case IntegerLiteral literal -> literal.value;
+            case Reference<?> reference when isVariable(reference) ->
+                    asInteger(reference.name, environment.lookupWord(reference));
+            case ParenExpression paren -> evaluateInteger(paren.operand, environment);
+            case PlusExpression plus -> evaluateInteger(plus.operand, environment);
+            case MinusExpression minus -> -evaluateInteger(minus.operand, environment);
+            case Multiplication node -> evaluateInteger(node.left, environment) * evaluateInteger(node.right, environment);
+            case Division node -> evaluateInteger(node.left, environment) / evaluateInteger(node.right, environment);
+            case Modulus node -> evaluateInteger(node.left, environment) % evaluateInteger(node.right, environment);
+            case Addition node -> evaluateInteger(node.left, environment) + evaluateInteger(node.right, environment);
+            case Substraction node -> evaluateInteger(node.left, environment) - evaluateInteger(node.right, environment);
+            case ConditionalExpression node -> evaluateBoolean(node.condition, environment)
+                    ? evaluateInteger(node.thenExpression, environment)
+                    : evaluateInteger(node.elseExpression, environment);
+            default -> asInteger("expression", evaluateWord(expression, environment));
+        };
+    }
+
+    /**
+     * Evaluates an expression whose static type is numeric, promoting integers.
+     */
+    public double evaluateDouble(Expression expression, Environment environment) {
+        if (types.typeOf(expression) == Type.INTEGER) return evaluateInteger(expression, environment);
+        return switch (expression) {
+            case DoubleLiteral literal -> literal.value;
+            case Reference<?> reference when isVariable(reference) ->
+                    asDouble(reference.name, environment.lookupWord(reference));
+            case ParenExpression paren -> evaluateDouble(paren.operand, environment);
+            case PlusExpression plus -> evaluateDouble(plus.operand, environment);
+            case MinusExpression minus -> -evaluateDouble(minus.operand, environment);
+            case Multiplication node -> evaluateDouble(node.left, environment) * evaluateDouble(node.right, environment);
+            case Division node -> evaluateDouble(node.left, environment) / evaluateDouble(node.right, environment);
+            case Modulus node -> evaluateDouble(node.left, environment) % evaluateDouble(node.right, environment);
+            case Addition node -> evaluateDouble(node.left, environment) + evaluateDouble(node.right, environment);
+            case Substraction node -> evaluateDouble(node.left, environment) - evaluateDouble(node.right, environment);
+            case ConditionalExpression node -> evaluateBoolean(node.condition, environment)
+                    ? evaluateDouble(node.thenExpression, environment)
+                    : evaluateDouble(node.elseExpression, environment);
+            default -> asDouble("expression", evaluateWord(expression, environment));
+        };
+    }
+
+    /**
+     * Evaluates an expression of any type to a {@link SlotValues} word.
+     */
+    public long evaluateWord(Expression expression, Environment environment) {
+        return switch (types.typeOf(expression)) {
+            case BOOLEAN -> SlotValues.encodeBoolean(evaluateBoolean(expression, environment));
+            case INTEGER -> SlotValues.encodeInteger(evaluateInteger(expression, environment));
+            case DOUBLE -> SlotValues.encodeDouble(evaluateDouble(expression, environment));
+            case ANY -> evaluateDynamic(expression, environment);
+        };
+    }
+
+    long evaluateDynamic(Expression expression, Environment environment) {
+        return switch (expression) {
+            case Reference<?> reference when isVariable(reference) -> environment.lookupWord(reference);
+            case ParenExpression paren -> evaluateWord(paren.operand, environment);
+            case PlusExpression plus -> {
+                var operand = evaluateWord(plus.operand, environment);
+                yield SlotValues.isInteger(operand) ? operand : SlotValues.encodeDouble(asDouble(plus.operator, operand));
+            }
+            case MinusExpression minus -> {
+                var operand = evaluateWord(minus.operand, environment);
+                yield SlotValues.isInteger(operand)
+                        ? SlotValues.encodeInteger(-(int) operand)
+                        : SlotValues.encodeDouble(-asDouble(minus.operator, operand));
+            }
+            case Multiplication node -> arithmetic(node, environment);
+            case Division node -> arithmetic(node, environment);
+            case Modulus node -> arithmetic(node, environment);
+            case Addition node -> arithmetic(node, environment);
+            case Substraction node -> arithmetic(node, environment);
+            case ConditionalExpression node -> evaluateBoolean(node.condition, environment)
+                    ? evaluateWord(node.thenExpression, environment)
+                    : evaluateWord(node.elseExpression, environment);
+            default -> SlotValues.encode(boxed.evaluate(expression, environment));
+        };
+    }
+
+    long arithmetic(BinaryExpression node, Environment environment) {
+        var left = evaluateWord(node.left, environment);
+        var right = evaluateWord(node.right, environment);
+        if (SlotValues.isInteger(left) && SlotValues.isInteger(right)) {
+            int l = (int) left, r = (int) right;
+            return SlotValues.encodeInteger(switch (node) {
+                case Multiplication _ -> l * r;
+                case Division _ -> l / r;
+                case Modulus _ -> l % r;
+                case Addition _ -> l + r;
+                default -> l - r;
+            });
+        }
+        double l = asDouble(node.operator, left), r = asDouble(node.operator, right);
+        return SlotValues.encodeDouble(switch (node) {
+            case Multiplication _ -> l * r;
+            case Division _ -> l / r;
+            case Modulus _ -> l % r;
+            case Addition _ -> l + r;
+            default -> l - r;
+        });
+    }
+
+    boolean equal(BinaryExpression node, Environment environment) {
+        var left = types.typeOf(node.left);
+        var right = types.typeOf(node.right);
+        if (left == Type.INTEGER && right == Type.INTEGER) {
+            return evaluateInteger(node.left, environment) == evaluateInteger(node.right, environment);
+        }
+        if (left == Type.BOOLEAN && right == Type.BOOLEAN) {
+            return evaluateBoolean(node.left, environment) == evaluateBoolean(node.right, environment);
+        }
+        // words are equal iff the boxed values are, an integer never equals a double
+        return evaluateWord(node.left, environment) == evaluateWord(node.right, environment);
+    }
+
+    boolean relational(BinaryExpression node, Environment environment) {
+        var left = types.typeOf(node.left);
+        var right = types.typeOf(node.right);
+        if (left == Type.INTEGER && right == Type.INTEGER) {
+            return compare(node, evaluateInteger(node.left, environment), evaluateInteger(node.right, environment));
+        }
+        if (left.isNumeric() && right.isNumeric()) {
+            return compare(node, evaluateDouble(node.left, environment), evaluateDouble(node.right, environment));
+        }
+        var leftWord = evaluateWord(node.left, environment);
+        var rightWord = evaluateWord(node.right, environment);
+        if (SlotValues.isInteger(leftWord) && SlotValues.isInteger(rightWord)) {
+            return compare(node, (int) leftWord, (int) rightWord);
+        }
+        return compare(node, asDouble(node.operator, leftWord), asDouble(node.operator, rightWord));
+    }
+
+    static boolean compare(BinaryExpression node, int left, int right) {
+        return switch (node) {
+            case LessThan _ -> left < right;
+            case LessThanOrEqual _ -> left <= right;
+            case GreaterThan _ -> left > right;
+            default -> left >= right;
+        };
+    }
+
+    static boolean compare(BinaryExpression node, double left, double right) {
+        return switch (node) {
+            case LessThan _ -> left < right;
+            case LessThanOrEqual _ -> left <= right;
+            case GreaterThan _ -> left > right;
+            default -> left >= right;
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package soup.semantics.base;
+
+import soup.syntax.model.statements.Assignment;
+import soup.syntax.model.statements.IfStatement;
+
+/**
+ * Executes statements with a {@link PrimitiveExpressionSemantics}: assigned values travel as {@link SlotValues} words
+ * from the evaluator to the {@link Environment} without being boxed.
+ */
+public class PrimitiveStatementSemantics extends StatementSemantics {
+    PrimitiveExpressionSemantics primitiveSemantics;
+
+    public PrimitiveStatementSemantics(
+            ExpressionSemantics expressionSemantics,
+            PrimitiveExpressionSemantics primitiveSemantics) {
+        super(expressionSemantics);
+        this.primitiveSemantics = primitiveSemantics;
+    }
+
+    @Override
+    public Environment visit(Assignment node, Environment environment) {
+        environment.updateWord(node.target, primitiveSemantics.evaluateWord(node.expression, environment));
+        return environment;
+    }
+
+    @Override
+    public Environment visit(IfStatement node, Environment environment) {
+        if (primitiveSemantics.evaluateBoolean(node.condition, environment)) {
+            return node.thenStatement.accept(this, environment);
+        }
+        return node.elseStatement.accept(this, environment);
+    }
+}
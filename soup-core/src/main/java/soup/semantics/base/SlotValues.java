@@ -0,0 +1,71 @@
+package soup.semantics.base;
+
+/**
+ * Encodes soup runtime values (Boolean, Integer, Double) into a single {@code long} word.
+ * <p>
+ * Doubles are stored as their canonical IEEE-754 bits; integers, booleans and the undefined marker
+ * live in the payload of negative quiet NaNs, a bit range never produced by {@link Double#doubleToLongBits}.
+ * Two words are equal iff the decoded values are {@link Object#equals}.
+ */
+public final class SlotValues {
+    static final long TAG_MASK  = 0xFFFF_0000_0000_0000L;
+    static final long INTEGER   = 0xFFF9_0000_0000_0000L;
+    static final long BOOLEAN   = 0xFFFA_0000_0000_0000L;
+    public static final long UNDEFINED = 0xFFFB_0000_0000_0000L;
+
+    public static final long TRUE = BOOLEAN | 1L;
+    public static final long FALSE = BOOLEAN;
+
+    private SlotValues() {}
+
+    public static long encode(Object value) {
+        if (value instanceof Integer i) return encodeInteger(i);
+        if (value instanceof Boolean b) return encodeBoolean(b);
+        if (value instanceof Double d) return encodeDouble(d);
+        throw new UnsupportedOperationException("Cannot store " + value + " in a soup state");
+    }
+
+    public static long encodeInteger(int value) {
+        return INTEGER | (value & 0xFFFF_FFFFL);
+    }
+
+    public static long encodeBoolean(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    public static long encodeDouble(double value) {
+        return Double.doubleToLongBits(value);
+    }
+
+    public static Object decode(long word) {
+        var tag = word & TAG_MASK;
+        if (tag == INTEGER) return (int) word;
+        if (tag == BOOLEAN) return (word & 1L) != 0;
+        if (word == UNDEFINED) return null;
+        return Double.longBitsToDouble(word);
+    }
+
+    public static boolean isInteger(long word) {
+        return (word & TAG_MASK) == INTEGER;
+    }
+
+    public static boolean isBoolean(long word) {
+        return (word & TAG_MASK) == BOOLEAN;
+    }
+
+    public static boolean isDouble(long word) {
+        var tag = word & TAG_MASK;
+        return tag != INTEGER && tag != BOOLEAN && word != UNDEFINED;
+    }
+
+    /**
+     * The hash code of the decoded value, computed without boxing it.
+     */
+    public static int valueHashCode(long word) {
+        var tag = word & TAG_MASK;
+        if (tag == INTEGER) return (int) word;
+        if (tag == BOOLEAN) return Boolean.hashCode((word & 1L) != 0);
+        if (word == UNDEFINED) return 0;
+        return Long.hashCode(word);
+    }
+}
@@ -1,22 +1,142 @@
 package soup.semantics.base;
 
 import obp3.runtime.sli.SemanticRelation;
+import soup.analysis.PieceDependencies;
+import soup.analysis.TypeChecker;
+import soup.analysis.TypeInference;
+import soup.optimization.ConstantFolding;
+import soup.optimization.LiveVariables;
+import soup.semantics.compiled.BytecodeCompiler;
+import soup.semantics.compiled.ClassTooLargeException;
+import soup.semantics.compiled.ClosureCompiler;
+import soup.semantics.compiled.CompiledPiece;
+import soup.semantics.compiled.DiscriminatorIndex;
+import soup.semantics.compiled.GuardDiagram;
+import soup.semantics.compiled.SoupCode;
+import soup.semantics.compiled.TieredCompiler;
 import soup.syntax.model.declarations.Soup;
 import soup.syntax.model.declarations.pieces.AnonymousPiece;
+import soup.syntax.model.expressions.Expression;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class SoupSemantics implements SemanticRelation<AnonymousPiece, Environment> {
     Soup model;
+    StateLayout layout;
     ExpressionSemantics expressionSemantics;
     StatementSemantics statementSemantics;
+    /**
+     * The unboxed evaluator of the guards, only for well-typed models when the expression semantics is not customized.
+     * Ill-typed models keep failing at runtime, see {@link TypeChecker#check} to reject them up front.
+     */
+    PrimitiveExpressionSemantics primitiveSemantics;
+    /** the compiled pieces of {@link #model}, in order, when the execution mode compiles them */
+    CompiledPiece[] compiledPieces;
+    Map<AnonymousPiece, CompiledPiece> compiled;
+    /** the class generated for {@link #model} in {@link ExecutionMode#BYTECODE} */
+    SoupCode code;
+    /** the promotions of the pieces of {@link #model} in {@link ExecutionMode#TIERED} */
+    TieredCompiler tieredCompiler;
+    Map<AnonymousPiece, TieredCompiler.Tier> tiers;
+    /**
+     * The indices of the pieces, and for each piece those whose guard must be evaluated again after it fires. Only
+     * for well-typed models, the guards of the other pieces are copied from the enabled set of the parent.
+     */
+    Map<AnonymousPiece, Integer> indices;
+    PieceDependencies dependencies;
+    int[][] affected;
+    /** the pieces indexed by the value their guard requires for a program counter, only for well-typed models */
+    DiscriminatorIndex discriminators;
+    /** the shared decision diagram of the guards, null unless enabled by {@link #useGuardDiagram} */
+    GuardDiagram guardDiagram;
+    /** the reset of the dead variables in the successors, null unless enabled by {@link #resetDeadVariables} */
+    DeadVariableReset deadVariableReset;
 
     public SoupSemantics(Soup model) {
+        this(model, ExecutionMode.CLOSURES);
+    }
+
+    public SoupSemantics(Soup model, ExecutionMode mode) {
+        this(model, mode, TieredCompiler.DEFAULT_THRESHOLD, TieredCompiler.BACKGROUND);
+    }
+
+    /**
+     * @param promotionThreshold in {@link ExecutionMode#TIERED}, the number of evaluations after which a piece is compiled
+     * @param compilationExecutor in {@link ExecutionMode#TIERED}, runs the compilations of the promoted pieces
+     */
+    public SoupSemantics(Soup model, ExecutionMode mode, long promotionThreshold, Executor compilationExecutor) {
         this.model = model;
+        this.layout = StateLayout.of(model);
         this.expressionSemantics = new ExpressionSemantics();
         this.statementSemantics = new StatementSemantics(this.expressionSemantics);
+        var checker = new TypeChecker(model, new TypeInference(model, layout.ranges));
+        if (checker.isWellTyped()) {
+            this.primitiveSemantics = new PrimitiveExpressionSemantics(checker.types(), this.expressionSemantics);
+            this.statementSemantics = new PrimitiveStatementSemantics(this.expressionSemantics, this.primitiveSemantics);
+            this.indices = new IdentityHashMap<>();
+            for (int i = 0; i < model.pieces.size(); i++) {
+                indices.put(model.pieces.get(i), i);
+            }
+            this.dependencies = new PieceDependencies(model);
+            this.affected = new int[model.pieces.size()][];
+            for (int i = 0; i < affected.length; i++) {
+                affected[i] = dependencies.affected(dependencies.effectWrites(i));
+            }
+            this.discriminators = DiscriminatorIndex.of(
+                    model, layout, checker.types(), new ConstantFolding(model, checker.types())::cannotFail);
+            switch (mode) {
+                case PRIMITIVE -> { }
+                case CLOSURES -> {
+                    var compiler = new ClosureCompiler(layout, primitiveSemantics, statementSemantics);
+                    compile(index -> compiler.compile(model.pieces.get(index)));
+                }
+                case TIERED -> {
+                    var compiler = new ClosureCompiler(layout, primitiveSemantics, statementSemantics);
+                    var tieredCompiler = new TieredCompiler(
+                            compiler, primitiveSemantics, statementSemantics, promotionThreshold, compilationExecutor);
+                    this.tieredCompiler = tieredCompiler;
+                    this.tiers = new IdentityHashMap<>();
+                    compile(index -> {
+                        var tier = tieredCompiler.tier(model.pieces.get(index));
+                        tiers.put(tier.piece, tier);
+                        return tier.asCompiledPiece();
+                    });
+                }
+                case BYTECODE -> {
+                    SoupCode code;
+                    try {
+                        code = new BytecodeCompiler(layout, primitiveSemantics, statementSemantics).compile(model);
+                    } catch (ClassTooLargeException e) {
+                        // the closures have no such limit
+                        var compiler = new ClosureCompiler(layout, primitiveSemantics, statementSemantics);
+                        compile(index -> compiler.compile(model.pieces.get(index)));
+                        break;
+                    }
+                    this.code = code;
+                    compile(index -> code.piece(index, model.pieces.get(index)));
+                }
+            }
+        }
+    }
+
+    void compile(IntFunction<CompiledPiece> compiler) {
+        this.compiledPieces = new CompiledPiece[model.pieces.size()];
+        this.compiled = new IdentityHashMap<>();
+        for (int i = 0; i < compiledPieces.length; i++) {
+            compiledPieces[i] = compiler.apply(i);
+            compiled.put(compiledPieces[i].piece, compiledPieces[i]);
+        }
     }
 
     public SoupSemantics(Soup model, ExpressionSemantics expressionSemantics) {
@@ -28,13 +148,14 @@ public class SoupSemantics implements SemanticRelation<AnonymousPiece, Environme
             ExpressionSemantics expressionSemantics,
             StatementSemantics statementSemantics) {
         this.model = model;
+        this.layout = StateLayout.of(model);
         this.expressionSemantics = expressionSemantics;
         this.statementSemantics = statementSemantics;
     }
 
     @Override
     public List<Environment> initial() {
-        var environment = new Environment(model);
+        var environment = new Environment(model, layout);
         for (var variable : model.variables) {
             environment.define(
                     variable.name,
@@ -43,21 +164,214 @@ public class SoupSemantics implements SemanticRelation<AnonymousPiece, Environme
         return Collections.singletonList(environment);
     }
 
+    public StateLayout layout() {
+        return layout;
+    }
+
+    public Soup model() {
+        return model;
+    }
+
+    /**
+     * Enables the dead variable reduction: after a piece fires, the variables it leaves dead, see
+     * {@link LiveVariables}, are reset to their initial value. The reachable states are fewer, but no longer hold
+     * the values of these variables.
+     *
+     * @param observed the variables read outside the soup, by the atoms of a property, which are never reset
+     * @return this semantics
+     */
+    public SoupSemantics resetDeadVariables(Collection<String> observed) {
+        this.deadVariableReset = new DeadVariableReset(
+                model, layout, new LiveVariables(model, observed), initial().getFirst());
+        if (affected != null) {
+            for (int i = 0; i < affected.length; i++) {
+                var changed = new HashSet<>(dependencies.effectWrites(i));
+                changed.addAll(deadVariableReset.liveness.deadAfter(model.pieces.get(i)));
+                affected[i] = dependencies.affected(changed);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Compiles the guards into a {@link GuardDiagram}, walked to compute the enabled pieces of a configuration whose
+     * parent is unknown. The atoms are compiled to closures unless the execution mode is the interpreter.
+     *
+     * @return this semantics
+     */
+    public SoupSemantics useGuardDiagram() {
+        if (primitiveSemantics == null) {
+            throw new UnsupportedOperationException("The guard diagram needs a well-typed model");
+        }
+        Function<Expression, Predicate<Environment>> compiler;
+        if (compiledPieces == null) {
+            compiler = atom -> configuration -> primitiveSemantics.evaluateBoolean(atom, configuration);
+        } else {
+            compiler = new ClosureCompiler(layout, primitiveSemantics, statementSemantics)::compileBoolean;
+        }
+        this.guardDiagram = new GuardDiagram(model, compiler, new ConstantFolding(model)::cannotFail);
+        return this;
+    }
+
+    /**
+     * @return the index of the pieces by the value of a discriminator variable, null if the model has none
+     */
+    public DiscriminatorIndex discriminatorIndex() {
+        return discriminators;
+    }
+
+    /**
+     * @return the decision diagram of the guards, null if not enabled
+     */
+    public GuardDiagram guardDiagram() {
+        return guardDiagram;
+    }
+
+    /**
+     * @return the dead variable reduction and its statistics, null if not enabled
+     */
+    public DeadVariableReset deadVariableReset() {
+        return deadVariableReset;
+    }
+
+    /**
+     * @return the compiler promoting the hot pieces in {@link ExecutionMode#TIERED}, null in the other modes
+     */
+    public TieredCompiler tieredCompiler() {
+        return tieredCompiler;
+    }
+
+    /**
+     * @return the evaluation counter and current code of a piece in {@link ExecutionMode#TIERED}, null otherwise
+     */
+    public TieredCompiler.Tier tier(AnonymousPiece piece) {
+        return tiers == null ? null : tiers.get(piece);
+    }
+
+    /**
+     * @return the pieces whose guard may change when the piece fires, empty if the index is not available
+     */
+    public int[] affected(AnonymousPiece piece) {
+        var index = indices == null ? null : indices.get(piece);
+        return index == null ? new int[0] : affected[index].clone();
+    }
+
     @Override
     public List<AnonymousPiece> actions(Environment configuration) {
         if (!(configuration.model instanceof Soup soup)) { return Collections.emptyList(); }
+        if (affected != null && soup == model && configuration.layout() == layout) {
+            var enabled = enabledSet(configuration);
+            var pieces = new ArrayList<AnonymousPiece>(Long.bitCount(enabled[0]));
+            for (int word = 0; word < enabled.length; word++) {
+                for (var bits = enabled[word]; bits != 0; bits &= bits - 1) {
+                    pieces.add(model.pieces.get((word << 6) + Long.numberOfTrailingZeros(bits)));
+                }
+            }
+            return pieces;
+        }
+        if (code != null && soup == model) {
+            var indices = new int[compiledPieces.length];
+            var count = code.enabled(configuration, indices);
+            var enabled = new ArrayList<AnonymousPiece>(count);
+            for (int i = 0; i < count; i++) {
+                enabled.add(compiledPieces[indices[i]].piece);
+            }
+            return enabled;
+        }
+        if (compiledPieces != null && soup == model) {
+            var enabled = new ArrayList<AnonymousPiece>();
+            for (var piece : compiledPieces) {
+                if (piece.compiledGuard.test(configuration)) enabled.add(piece.piece);
+            }
+            return enabled;
+        }
         return soup.pieces.stream().filter(
                 piece -> {
+                    if (primitiveSemantics != null) {
+                        return primitiveSemantics.evaluateBoolean(piece.guard, configuration);
+                    }
                     var guard = piece.guard.accept(expressionSemantics, configuration);
                     return expressionSemantics.ensureBoolean("guard", guard);
                 }).collect(Collectors.toList());
     }
 
+    /**
+     * Computes the enabled pieces of a slot-backed configuration of {@link #model}, one bit per piece. If the
+     * configuration was computed from a parent whose enabled set is known, only the guards reading a variable the fired
+     * piece may have changed are evaluated. The {@link GuardDiagram}, when enabled, evaluates them with each of their
+     * atoms at most once; otherwise the {@link DiscriminatorIndex} skips the guards requiring another value of the
+     * discriminator.
+     */
+    long[] enabledSet(Environment configuration) {
+        var enabled = configuration.enabled;
+        if (enabled != null) return enabled;
+        var parent = configuration.parentEnabled;
+        if (parent != null) {
+            enabled = parent.clone();
+            if (guardDiagram != null) {
+                guardDiagram.update(configuration, enabled, affected[configuration.fired]);
+            } else {
+                var value = discriminators == null ? 0 : discriminators.value(configuration);
+                for (var index : affected[configuration.fired]) {
+                    if (discriminators != null && discriminators.excludes(index, value)) {
+                        enabled[index >>> 6] &= ~(1L << index);
+                    } else if (guard(index, configuration)) {
+                        enabled[index >>> 6] |= 1L << index;
+                    } else {
+                        enabled[index >>> 6] &= ~(1L << index);
+                    }
+                }
+            }
+        } else {
+            enabled = new long[Math.max(1, (model.pieces.size() + 63) >>> 6)];
+            if (guardDiagram != null) {
+                guardDiagram.enabled(configuration, enabled);
+            } else if (discriminators != null) {
+                for (var index : discriminators.candidates(configuration)) {
+                    if (guard(index, configuration)) enabled[index >>> 6] |= 1L << index;
+                }
+            } else if (code != null) {
+                var indices = new int[model.pieces.size()];
+                var count = code.enabled(configuration, indices);
+                for (int i = 0; i < count; i++) {
+                    enabled[indices[i] >>> 6] |= 1L << indices[i];
+                }
+            } else {
+                for (int index = 0; index < model.pieces.size(); index++) {
+                    if (guard(index, configuration)) enabled[index >>> 6] |= 1L << index;
+                }
+            }
+        }
+        configuration.enabled = enabled;
+        configuration.parentEnabled = null;
+        return enabled;
+    }
+
+    boolean guard(int index, Environment configuration) {
+        if (code != null) return code.guard(index, configuration);
+        if (compiledPieces != null) return compiledPieces[index].compiledGuard.test(configuration);
+        return primitiveSemantics.evaluateBoolean(model.pieces.get(index).guard, configuration);
+    }
+
     @Override
     public List<Environment> execute(AnonymousPiece action, Environment configuration) {
-        return Collections.singletonList(
-                statementSemantics.evaluate(action.effect, configuration)
-        );
+        // read before the effect, which discards it
+        var before = configuration.enabled;
+        var piece = compiled == null ? null : compiled.get(action);
+        Environment successor;
+        if (piece != null) {
+            piece.compiledEffect.accept(configuration);
+            successor = configuration;
+        } else {
+            successor = statementSemantics.evaluate(action.effect, configuration);
+        }
+        if (deadVariableReset != null) deadVariableReset.apply(action, successor);
+        var index = indices == null ? null : indices.get(action);
+        if (before != null && index != null && successor.layout() == layout && successor.enabled == null) {
+            successor.parentEnabled = before;
+            successor.fired = index;
+        }
+        return Collections.singletonList(successor);
     }
 
     public SemanticRelation<AnonymousPiece, Environment> pureSemantics() {
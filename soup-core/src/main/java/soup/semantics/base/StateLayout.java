@@ -0,0 +1,214 @@
+package soup.semantics.base;
+
+import soup.analysis.RangeAnalysis;
+import soup.analysis.ValueRange;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.declarations.VariableDeclaration;
+import soup.syntax.model.expressions.Reference;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the variables of a soup to fixed slots of a bit-packed state vector.
+ * <p>
+ * The slot of a variable is its index in {@link Soup#variables}, the same index the {@link soup.syntax.Linker} records
+ * in {@link VariableDeclaration#slot}. Each slot owns a bit field of a {@code long[]} whose width is derived from the
+ * variable's {@link ValueRange}: one bit for a boolean, {@code ceil(log2(max - min + 1))} bits for an integer interval
+ * and a full NaN-boxed word (see {@link SlotValues}) for doubles and unknown values. Fields never straddle two words.
+ */
+public final class StateLayout {
+    final VariableDeclaration[] declarations;
+    final String[] names;
+    final int[] nameHashes;
+    final long[] salts;
+    final Map<String, Integer> slots = new HashMap<>();
+
+    final ValueRange[] ranges;
+    final int[] wordIndex;
+    final int[] shift;
+    final long[] mask;
+    final int wordCount;
+
+    public StateLayout(List<VariableDeclaration> variables) {
+        this(variables, unknownRanges(variables.size()));
+    }
+
+    public StateLayout(List<VariableDeclaration> variables, ValueRange[] ranges) {
+        this.declarations = variables.toArray(new VariableDeclaration[0]);
+        this.names = new String[declarations.length];
+        this.nameHashes = new int[declarations.length];
+        this.salts = new long[declarations.length];
+        for (int i = 0; i < declarations.length; i++) {
+            names[i] = declarations[i].name;
+            nameHashes[i] = names[i].hashCode();
+            salts[i] = salt(names[i]);
+            slots.putIfAbsent(names[i], i);
+        }
+
+        this.ranges = ranges.clone();
+        this.wordIndex = new int[declarations.length];
+        this.shift = new int[declarations.length];
+        this.mask = new long[declarations.length];
+        int words = 0;
+        // full words first, then the bit fields in declaration order
+        for (int i = 0; i < declarations.length; i++) {
+            if (ranges[i].width() < 64) continue;
+            wordIndex[i] = words++;
+            mask[i] = -1L;
+        }
+        int bit = 64;
+        for (int i = 0; i < declarations.length; i++) {
+            var width = ranges[i].width();
+            if (width == 0 || width >= 64) continue;
+            if (bit + width > 64) {
+                words++;
+                bit = 0;
+            }
+            wordIndex[i] = words - 1;
+            shift[i] = bit;
+            mask[i] = (1L << width) - 1;
+            bit += width;
+        }
+        this.wordCount = words;
+    }
+
+    public static StateLayout of(Soup soup) {
+        return new StateLayout(soup.variables, RangeAnalysis.analyze(soup));
+    }
+
+    /**
+     * A 64-bit hash of all the characters of the name: the 32-bit {@link String#hashCode()} would give names such as
+     * {@code Aa} and {@code BB} the same salt, whose Zobrist terms cancel out.
+     */
+    static long salt(String name) {
+        var h = 0x165667B19E3779F9L ^ name.length();
+        for (int i = 0; i < name.length(); i++) {
+            h = Environment.mix(h + name.charAt(i) * 0xC2B2AE3D27D4EB4FL);
+        }
+        return h;
+    }
+
+    static ValueRange[] unknownRanges(int size) {
+        var ranges = new ValueRange[size];
+        Arrays.fill(ranges, ValueRange.ANY);
+        return ranges;
+    }
+
+    public int size() {
+        return declarations.length;
+    }
+
+    /**
+     * @return the number of {@code long} words of a packed state
+     */
+    public int wordCount() {
+        return wordCount;
+    }
+
+    public String name(int slot) {
+        return names[slot];
+    }
+
+    public VariableDeclaration declaration(int slot) {
+        return declarations[slot];
+    }
+
+    public ValueRange range(int slot) {
+        return ranges[slot];
+    }
+
+    /**
+     * @return the slot of the variable named {@code name}, or -1 if the layout does not know it
+     */
+    public int slotOf(String name) {
+        var slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Resolves a reference without hashing its name when it was linked against this layout's soup.
+     * @return the slot of the referenced variable, or -1 if the layout does not know it
+     */
+    public int slotOf(Reference<?> reference) {
+        if (reference.declaration instanceof VariableDeclaration declaration) {
+            var slot = declaration.slot;
+            if (slot >= 0 && slot < declarations.length && declarations[slot] == declaration) {
+                return slot;
+            }
+        }
+        return slotOf(reference.name);
+    }
+
+    /**
+     * @return the index of the packed word holding the field of a slot
+     */
+    public int wordOf(int slot) {
+        return wordIndex[slot];
+    }
+
+    /**
+     * @return true if the slot's field has no bits, its only value being the one its range allows
+     */
+    public boolean isConstant(int slot) {
+        return mask[slot] == 0;
+    }
+
+    /**
+     * Reads the value of a slot as a {@link SlotValues} word.
+     */
+    public long read(long[] words, int slot) {
+        return decode(mask[slot] == 0 ? 0 : words[wordIndex[slot]], slot);
+    }
+
+    /**
+     * Extracts the value of a slot from the packed word that holds its field.
+     */
+    public long decode(long word, int slot) {
+        if (mask[slot] == -1L) return word;
+        var range = ranges[slot];
+        var code = (word >>> shift[slot]) & mask[slot];
+        return switch (range.kind()) {
+            case BOOLEAN -> SlotValues.encodeBoolean(code != 0);
+            case INTEGER -> SlotValues.encodeInteger((int) (code + range.min()));
+            default -> throw new IllegalStateException("unexpected packed range " + range);
+        };
+    }
+
+    /**
+     * @return true if the {@link SlotValues} word can be stored in the field of the slot
+     */
+    public boolean fits(int slot, long value) {
+        if (mask[slot] == -1L) return true;
+        var range = ranges[slot];
+        return switch (range.kind()) {
+            case BOOLEAN -> SlotValues.isBoolean(value);
+            case INTEGER -> SlotValues.isInteger(value) && (int) value >= range.min() && (int) value <= range.max();
+            default -> false;
+        };
+    }
+
+    /**
+     * Replaces the field of a slot in the packed word that holds it. The value must {@link #fits fit}.
+     */
+    public long encode(long word, int slot, long value) {
+        if (mask[slot] == -1L) return value;
+        var range = ranges[slot];
+        var code = range.kind() == ValueRange.Kind.BOOLEAN ? value & 1L : (long) (int) value - range.min();
+        return (word & ~(mask[slot] << shift[slot])) | (code << shift[slot]);
+    }
+
+    /**
+     * Writes a {@link SlotValues} word into the field of a slot.
+     * @return false, leaving {@code words} untouched, if the value does not fit the field
+     */
+    public boolean write(long[] words, int slot, long value) {
+        if (!fits(slot, value)) return false;
+        if (mask[slot] == 0) return true;
+        var index = wordIndex[slot];
+        words[index] = encode(words[index], slot, value);
+        return true;
+    }
+}
@@ -32,7 +32,7 @@ public class StatementSemantics extends FunctionalVisitorBase<Environment, Envir
 
     public Environment visit(Assignment node, Environment environment) {
         var value = node.expression.accept(expressionSemantics, environment);
-        environment.update(node.target.name, value);
+        environment.update(node.target, value);
         return environment;
     }
 
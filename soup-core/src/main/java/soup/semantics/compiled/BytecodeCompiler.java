@@ -0,0 +1,533 @@
+package soup.semantics.compiled;
+
+import soup.analysis.TypeInference;
+import soup.semantics.base.*;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.expressions.ConditionalExpression;
+import soup.syntax.model.expressions.Expression;
+import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.Type;
+import soup.syntax.model.expressions.binary.BinaryExpression;
+import soup.syntax.model.expressions.binary.arithmetic.*;
+import soup.syntax.model.expressions.binary.propositional.*;
+import soup.syntax.model.expressions.binary.relational.*;
+import soup.syntax.model.expressions.literals.BooleanLiteral;
+import soup.syntax.model.expressions.literals.DoubleLiteral;
+import soup.syntax.model.expressions.literals.IntegerLiteral;
+import soup.syntax.model.expressions.unary.MinusExpression;
+import soup.syntax.model.expressions.unary.NotExpression;
+import soup.syntax.model.expressions.unary.ParenExpression;
+import soup.syntax.model.expressions.unary.PlusExpression;
+import soup.syntax.model.statements.*;
+
+import java.lang.classfile.ClassBuilder;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.Label;
+import java.lang.classfile.instruction.SwitchCase;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static java.lang.constant.ConstantDescs.*;
+
+/**
+ * Compiles all the guards and effects of a soup into the methods of one hidden class, with the
+ * {@code java.lang.classfile} API (a preview feature of Java 23: the JVM must run with {@code --enable-preview}).
+ * <p>
+ * Every guard becomes a method {@code guard<i>} and every effect a method {@code effect<i>} made of straight-line code:
+ * variables are read and written through the slots of the {@link StateLayout} resolved at compile time, and every
+ * operator is specialized on the static {@link Type} of its operands the way {@link PrimitiveExpressionSemantics}
+ * evaluates it, whose results and errors the generated code reproduces. {@link SoupCode#enabled} calls the guards in
+ * a row, by batches of {@value #BATCH} pieces, so the JIT sees the enabled-set computation as a few large methods
+ * while each stays well below the 64KB limit of the code of a method; {@link SoupCode#guard} and
+ * {@link SoupCode#effect} dispatch on the batch, then on the piece within it.
+ * Expressions typed {@link Type#ANY} and nodes the compiler does not know call that evaluator back.
+ * <p>
+ * A soup whose class still exceeds a limit of the class file format, such as the size of the constant pool or of the
+ * code of a single guard, is refused with a {@link ClassTooLargeException}.
+ * <p>
+ * The syntax nodes, the layout and the evaluators the code needs are handed to the generated class through its
+ * constructor, as an array of constants.
+ */
+public class BytecodeCompiler {
+    static final ClassDesc CD_SoupCode = desc(SoupCode.class);
+    static final ClassDesc CD_Environment = desc(Environment.class);
+    static final ClassDesc CD_StateLayout = desc(StateLayout.class);
+    static final ClassDesc CD_Reference = desc(Reference.class);
+    static final ClassDesc CD_Expression = desc(Expression.class);
+    static final ClassDesc CD_Statement = desc(Statement.class);
+    static final ClassDesc CD_Primitive = desc(PrimitiveExpressionSemantics.class);
+    static final ClassDesc CD_StatementSemantics = desc(StatementSemantics.class);
+    static final ClassDesc CD_SlotValues = desc(SlotValues.class);
+    static final ClassDesc CD_Generated = ClassDesc.of(BytecodeCompiler.class.getPackageName() + ".GeneratedSoupCode");
+
+    static final MethodTypeDesc MTD_guard = MethodTypeDesc.of(CD_boolean, CD_Environment);
+    static final MethodTypeDesc MTD_effect = MethodTypeDesc.of(CD_void, CD_Environment);
+    static final MethodTypeDesc MTD_lookupWord = MethodTypeDesc.of(CD_long, CD_StateLayout, CD_int, CD_Reference);
+    static final MethodTypeDesc MTD_updateWord = MethodTypeDesc.of(CD_void, CD_StateLayout, CD_int, CD_Reference, CD_long);
+
+    /** the local variable holding the environment in the {@code guard<i>} and {@code effect<i>} methods */
+    static final int ENVIRONMENT = 1;
+    /** the number of pieces of an {@code enabledBatch<b>}, {@code guardBatch<b>} or {@code effectBatch<b>} method */
+    static final int BATCH = 512;
+
+    final StateLayout layout;
+    final TypeInference types;
+    final PrimitiveExpressionSemantics interpreter;
+    final StatementSemantics statementSemantics;
+    final List<Object> constants = new ArrayList<>();
+    final Map<Object, Integer> constantIndices = new IdentityHashMap<>();
+
+    public BytecodeCompiler(StateLayout layout, PrimitiveExpressionSemantics interpreter, StatementSemantics statementSemantics) {
+        this.layout = layout;
+        this.types = interpreter.types();
+        this.interpreter = interpreter;
+        this.statementSemantics = statementSemantics;
+    }
+
+    static ClassDesc desc(Class<?> type) {
+        return ClassDesc.of(type.getName());
+    }
+
+    /**
+     * Generates and loads the code of a soup. A compiler instance compiles a single soup.
+     *
+     * @throws ClassTooLargeException if the class of the soup exceeds a limit of the class file format
+     */
+    public SoupCode compile(Soup soup) {
+        byte[] bytes;
+        try {
+            bytes = generate(soup);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new ClassTooLargeException("The soup does not fit in a class: " + e.getMessage(), e);
+        }
+        try {
+            var lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            var constructor = lookup.findConstructor(
+                    lookup.lookupClass(), MethodType.methodType(void.class, StateLayout.class, Object[].class));
+            return (SoupCode) constructor.invoke(layout, constants.toArray());
+        } catch (ClassFormatError e) {
+            throw new ClassTooLargeException("The soup does not fit in a class: " + e.getMessage(), e);
+        } catch (Throwable e) {
+            throw new RuntimeException("Could not load the code generated for the soup", e);
+        }
+    }
+
+    public byte[] generate(Soup soup) {
+        var pieces = soup.pieces.size();
+        return ClassFile.of().build(CD_Generated, clazz -> {
+            clazz.withFlags(ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC)
+                    .withSuperclass(CD_Object)
+                    .withInterfaceSymbols(CD_SoupCode)
+                    .withField("layout", CD_StateLayout, ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL)
+                    .withField("constants", CD_Object.arrayType(), ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL);
+            clazz.withMethodBody(INIT_NAME, MethodTypeDesc.of(CD_void, CD_StateLayout, CD_Object.arrayType()), ClassFile.ACC_PUBLIC, code -> code
+                    .aload(0)
+                    .invokespecial(CD_Object, INIT_NAME, MTD_void)
+                    .aload(0).aload(1).putfield(CD_Generated, "layout", CD_StateLayout)
+                    .aload(0).aload(2).putfield(CD_Generated, "constants", CD_Object.arrayType())
+                    .return_());
+            for (int i = 0; i < pieces; i++) {
+                var piece = soup.pieces.get(i);
+                clazz.withMethodBody("guard" + i, MTD_guard, ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL, code -> {
+                    booleanCode(code, piece.guard);
+                    code.ireturn();
+                });
+                clazz.withMethodBody("effect" + i, MTD_effect, ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL, code -> {
+                    statementCode(code, piece.effect);
+                    code.return_();
+                });
+            }
+            enabledMethods(clazz, pieces);
+            dispatchMethods(clazz, "guard", MTD_guard, pieces, CodeBuilder::ireturn);
+            dispatchMethods(clazz, "effect", MTD_effect, pieces, CodeBuilder::return_);
+        });
+    }
+
+    static int batches(int pieces) {
+        return (pieces + BATCH - 1) / BATCH;
+    }
+
+    /**
+     * Generates {@code enabledBatch<b>(Environment environment, int[] enabled, int count)}, calling the guards of the
+     * pieces of batch {@code b} and returning the count, and {@code enabled} chaining the batches.
+     */
+    void enabledMethods(ClassBuilder clazz, int pieces) {
+        var batchType = MethodTypeDesc.of(CD_int, CD_Environment, CD_int.arrayType(), CD_int);
+        for (int b = 0; b < batches(pieces); b++) {
+            var first = b * BATCH;
+            var last = Math.min(pieces, first + BATCH);
+            clazz.withMethodBody("enabledBatch" + b, batchType, ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL, code -> {
+                // locals: this, environment, enabled, count
+                for (int i = first; i < last; i++) {
+                    var disabled = code.newLabel();
+                    code.aload(0).aload(1).invokevirtual(CD_Generated, "guard" + i, MTD_guard)
+                            .ifeq(disabled)
+                            .aload(2).iload(3).loadConstant(i).iastore()
+                            .iinc(3, 1)
+                            .labelBinding(disabled);
+                }
+                code.iload(3).ireturn();
+            });
+        }
+        var type = MethodTypeDesc.of(CD_int, CD_Environment, CD_int.arrayType());
+        clazz.withMethodBody("enabled", type, ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL, code -> {
+            code.iconst_0();
+            for (int b = 0; b < batches(pieces); b++) {
+                code.istore(3).aload(0).aload(1).aload(2).iload(3)
+                        .invokevirtual(CD_Generated, "enabledBatch" + b, batchType);
+            }
+            code.ireturn();
+        });
+    }
+
+    /**
+     * Generates {@code name(int piece, Environment environment)}, calling {@code nameBatch<b>} on the batch of the
+     * piece, which calls {@code name<piece>(environment)}.
+     */
+    void dispatchMethods(ClassBuilder clazz, String name, MethodTypeDesc target, int pieces, Consumer<CodeBuilder> returns) {
+        var type = MethodTypeDesc.of(target.returnType(), CD_int, CD_Environment);
+        for (int b = 0; b < batches(pieces); b++) {
+            var first = b * BATCH;
+            var last = Math.min(pieces, first + BATCH);
+            clazz.withMethodBody(name + "Batch" + b, type, ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL, code -> {
+                var outOfBounds = code.newLabel();
+                var cases = new ArrayList<SwitchCase>();
+                for (int i = first; i < last; i++) {
+                    cases.add(SwitchCase.of(i, code.newLabel()));
+                }
+                code.iload(1).tableswitch(first, last - 1, outOfBounds, cases);
+                for (var piece : cases) {
+                    code.labelBinding(piece.target())
+                            .aload(0).aload(2).invokevirtual(CD_Generated, name + piece.caseValue(), target);
+                    returns.accept(code);
+                }
+                outOfBounds(code.labelBinding(outOfBounds));
+            });
+        }
+        clazz.withMethodBody(name, type, ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL, code -> {
+            var outOfBounds = code.newLabel();
+            if (pieces > 0) {
+                var cases = new ArrayList<SwitchCase>();
+                for (int b = 0; b < batches(pieces); b++) {
+                    cases.add(SwitchCase.of(b, code.newLabel()));
+                }
+                // negative pieces fall in batch 0, whose switch rejects them
+                code.iload(1).loadConstant(BATCH).idiv()
+                        .tableswitch(0, cases.size() - 1, outOfBounds, cases);
+                for (var batch : cases) {
+                    code.labelBinding(batch.target())
+                            .aload(0).iload(1).aload(2)
+                            .invokevirtual(CD_Generated, name + "Batch" + batch.caseValue(), type);
+                    returns.accept(code);
+                }
+            }
+            outOfBounds(code.labelBinding(outOfBounds));
+        });
+    }
+
+    static void outOfBounds(CodeBuilder code) {
+        var exception = desc(IndexOutOfBoundsException.class);
+        code.new_(exception).dup().iload(1)
+                .invokespecial(exception, INIT_NAME, MethodTypeDesc.of(CD_void, CD_int))
+                .athrow();
+    }
+
+    /**
+     * Loads a constant object handed to the generated class, cast to {@code type}.
+     */
+    void constant(CodeBuilder code, Object value, ClassDesc type) {
+        var index = constantIndices.computeIfAbsent(value, _ -> {
+            constants.add(value);
+            return constants.size() - 1;
+        });
+        code.aload(0).getfield(CD_Generated, "constants", CD_Object.arrayType())
+                .loadConstant(index).aaload()
+                .checkcast(type);
+    }
+
+    void lookupCode(CodeBuilder code, Reference<?> reference) {
+        code.aload(ENVIRONMENT)
+                .aload(0).getfield(CD_Generated, "layout", CD_StateLayout)
+                .loadConstant(layout.slotOf(reference));
+        constant(code, reference, CD_Reference);
+        code.invokevirtual(CD_Environment, "lookupWord", MTD_lookupWord);
+    }
+
+    /**
+     * Unwraps the word on top of the stack with {@code PrimitiveExpressionSemantics.as<Type>(operator, word)}.
+     */
+    void unwrap(CodeBuilder code, String operator, String method, ClassDesc type, Consumer<CodeBuilder> word) {
+        code.loadConstant(operator);
+        word.accept(code);
+        code.invokestatic(CD_Primitive, method, MethodTypeDesc.of(type, CD_String, CD_long));
+    }
+
+    /**
+     * Pushes 1 or 0 depending on whether {@code jumpIfFalse} jumps to its label.
+     */
+    static void bool(CodeBuilder code, Consumer<Label> jumpIfFalse) {
+        var isFalse = code.newLabel();
+        var end = code.newLabel();
+        jumpIfFalse.accept(isFalse);
+        code.iconst_1().goto_(end)
+                .labelBinding(isFalse).iconst_0()
+                .labelBinding(end);
+    }
+
+    void conditional(CodeBuilder code, ConditionalExpression node, Consumer<Expression> branch) {
+        var elseBranch = code.newLabel();
+        var end = code.newLabel();
+        booleanCode(code, node.condition);
+        code.ifeq(elseBranch);
+        branch.accept(node.thenExpression);
+        code.goto_(end).labelBinding(elseBranch);
+        branch.accept(node.elseExpression);
+        code.labelBinding(end);
+    }
+
+    public void booleanCode(CodeBuilder code, Expression expression) {
+        switch (expression) {
+            case BooleanLiteral literal -> code.loadConstant(literal.value ? 1 : 0);
+            case Reference<?> reference when PrimitiveExpressionSemantics.isVariable(reference) ->
+                    unwrap(code, reference.name, "asBoolean", CD_boolean, c -> lookupCode(c, reference));
+            case ParenExpression paren -> booleanCode(code, paren.operand);
+            case NotExpression not -> {
+                booleanCode(code, not.operand);
+                code.iconst_1().ixor();
+            }
+            case Conjunction node -> {
+                booleanCode(code, node.left);
+                booleanCode(code, node.right);
+                code.iand();
+            }
+            case Disjunction node -> {
+                booleanCode(code, node.left);
+                booleanCode(code, node.right);
+                code.ior();
+            }
+            case Implication node -> {
+                booleanCode(code, node.left);
+                code.iconst_1().ixor();
+                booleanCode(code, node.right);
+                code.ior();
+            }
+            case Equivalence node -> {
+                booleanCode(code, node.left);
+                booleanCode(code, node.right);
+                code.ixor().iconst_1().ixor();
+            }
+            case ExclusiveDisjunction node -> {
+                booleanCode(code, node.left);
+                booleanCode(code, node.right);
+                code.ixor();
+            }
+            case Equal node -> equalCode(code, node);
+            case NotEqual node -> {
+                equalCode(code, node);
+                code.iconst_1().ixor();
+            }
+            case LessThan node -> relationalCode(code, node);
+            case LessThanOrEqual node -> relationalCode(code, node);
+            case GreaterThan node -> relationalCode(code, node);
+            case GreaterThanOrEqual node -> relationalCode(code, node);
+            case ConditionalExpression node -> conditional(code, node, branch -> booleanCode(code, branch));
+            default -> unwrap(code, "expression", "asBoolean", CD_boolean, c -> wordCode(c, expression));
+        }
+    }
+
+    /**
+     * Generates the code of an expression whose static type is {@link Type#INTEGER}.
+     */
+    public void integerCode(CodeBuilder code, Expression expression) {
+        switch (expression) {
+            case IntegerLiteral literal -> code.loadConstant(literal.value);
+            case Reference<?> reference when PrimitiveExpressionSemantics.isVariable(reference) ->
+                    unwrap(code, reference.name, "asInteger", CD_int, c -> lookupCode(c, reference));
+            case ParenExpression paren -> integerCode(code, paren.operand);
+            case PlusExpression plus -> integerCode(code, plus.operand);
+            case MinusExpression minus -> {
+                integerCode(code, minus.operand);
+                code.ineg();
+            }
+            case Multiplication node -> integer(code, node, CodeBuilder::imul);
+            case Division node -> integer(code, node, CodeBuilder::idiv);
+            case Modulus node -> integer(code, node, CodeBuilder::irem);
+            case Addition node -> integer(code, node, CodeBuilder::iadd);
+            case Substraction node -> integer(code, node, CodeBuilder::isub);
+            case ConditionalExpression node -> conditional(code, node, branch -> integerCode(code, branch));
+            default -> unwrap(code, "expression", "asInteger", CD_int, c -> wordCode(c, expression));
+        }
+    }
+
+    void integer(CodeBuilder code, BinaryExpression node, Consumer<CodeBuilder> operator) {
+        integerCode(code, node.left);
+        integerCode(code, node.right);
+        operator.accept(code);
+    }
+
+    /**
+     * Generates the code of an expression whose static type is numeric, promoting integers.
+     */
+    public void doubleCode(CodeBuilder code, Expression expression) {
+        if (types.typeOf(expression) == Type.INTEGER) {
+            integerCode(code, expression);
+            code.i2d();
+            return;
+        }
+        switch (expression) {
+            case DoubleLiteral literal -> code.loadConstant(literal.value);
+            case Reference<?> reference when PrimitiveExpressionSemantics.isVariable(reference) ->
+                    unwrap(code, reference.name, "asDouble", CD_double, c -> lookupCode(c, reference));
+            case ParenExpression paren -> doubleCode(code, paren.operand);
+            case PlusExpression plus -> doubleCode(code, plus.operand);
+            case MinusExpression minus -> {
+                doubleCode(code, minus.operand);
+                code.dneg();
+            }
+            case Multiplication node -> floating(code, node, CodeBuilder::dmul);
+            case Division node -> floating(code, node, CodeBuilder::ddiv);
+            case Modulus node -> floating(code, node, CodeBuilder::drem);
+            case Addition node -> floating(code, node, CodeBuilder::dadd);
+            case Substraction node -> floating(code, node, CodeBuilder::dsub);
+            case ConditionalExpression node -> conditional(code, node, branch -> doubleCode(code, branch));
+            default -> unwrap(code, "expression", "asDouble", CD_double, c -> wordCode(c, expression));
+        }
+    }
+
+    void floating(CodeBuilder code, BinaryExpression node, Consumer<CodeBuilder> operator) {
+        doubleCode(code, node.left);
+        doubleCode(code, node.right);
+        operator.accept(code);
+    }
+
+    /**
+     * Generates the code computing the {@link SlotValues} word of an expression of any type.
+     */
+    public void wordCode(CodeBuilder code, Expression expression) {
+        switch (types.typeOf(expression)) {
+            case BOOLEAN -> {
+                booleanCode(code, expression);
+                code.invokestatic(CD_SlotValues, "encodeBoolean", MethodTypeDesc.of(CD_long, CD_boolean));
+            }
+            case INTEGER -> {
+                integerCode(code, expression);
+                code.invokestatic(CD_SlotValues, "encodeInteger", MethodTypeDesc.of(CD_long, CD_int));
+            }
+            case DOUBLE -> {
+                doubleCode(code, expression);
+                code.invokestatic(CD_SlotValues, "encodeDouble", MethodTypeDesc.of(CD_long, CD_double));
+            }
+            case ANY -> {
+                if (expression instanceof Reference<?> reference && PrimitiveExpressionSemantics.isVariable(reference)) {
+                    lookupCode(code, reference);
+                    return;
+                }
+                interpret(code, "evaluateWord", CD_long, expression);
+            }
+        }
+    }
+
+    /**
+     * Calls the evaluator back on an expression.
+     */
+    void interpret(CodeBuilder code, String method, ClassDesc type, Expression expression) {
+        constant(code, interpreter, CD_Primitive);
+        constant(code, expression, CD_Expression);
+        code.aload(ENVIRONMENT)
+                .invokevirtual(CD_Primitive, method, MethodTypeDesc.of(type, CD_Expression, CD_Environment));
+    }
+
+    void equalCode(CodeBuilder code, BinaryExpression node) {
+        var left = types.typeOf(node.left);
+        var right = types.typeOf(node.right);
+        if (left == Type.INTEGER && right == Type.INTEGER) {
+            integerCode(code, node.left);
+            integerCode(code, node.right);
+            bool(code, code::if_icmpne);
+            return;
+        }
+        if (left == Type.BOOLEAN && right == Type.BOOLEAN) {
+            booleanCode(code, node.left);
+            booleanCode(code, node.right);
+            code.ixor().iconst_1().ixor();
+            return;
+        }
+        // words are equal iff the boxed values are, an integer never equals a double
+        wordCode(code, node.left);
+        wordCode(code, node.right);
+        code.lcmp();
+        bool(code, code::ifne);
+    }
+
+    void relationalCode(CodeBuilder code, BinaryExpression node) {
+        var left = types.typeOf(node.left);
+        var right = types.typeOf(node.right);
+        if (left == Type.INTEGER && right == Type.INTEGER) {
+            integerCode(code, node.left);
+            integerCode(code, node.right);
+            bool(code, switch (node) {
+                case LessThan _ -> code::if_icmpge;
+                case LessThanOrEqual _ -> code::if_icmpgt;
+                case GreaterThan _ -> code::if_icmple;
+                default -> code::if_icmplt;
+            });
+            return;
+        }
+        if (left.isNumeric() && right.isNumeric()) {
+            doubleCode(code, node.left);
+            doubleCode(code, node.right);
+            // NaN compares false: dcmpg answers 1 for the less-than tests, dcmpl -1 for the greater-than ones
+            switch (node) {
+                case LessThan _ -> bool(code.dcmpg(), code::ifge);
+                case LessThanOrEqual _ -> bool(code.dcmpg(), code::ifgt);
+                case GreaterThan _ -> bool(code.dcmpl(), code::ifle);
+                default -> bool(code.dcmpl(), code::iflt);
+            }
+            return;
+        }
+        interpret(code, "evaluateBoolean", CD_boolean, node);
+    }
+
+    public void statementCode(CodeBuilder code, Statement statement) {
+        switch (statement) {
+            case Skip _ -> { }
+            case Assignment node -> {
+                code.aload(ENVIRONMENT)
+                        .aload(0).getfield(CD_Generated, "layout", CD_StateLayout)
+                        .loadConstant(layout.slotOf(node.target));
+                constant(code, node.target, CD_Reference);
+                wordCode(code, node.expression);
+                code.invokevirtual(CD_Environment, "updateWord", MTD_updateWord);
+            }
+            case IfStatement node -> {
+                var elseBranch = code.newLabel();
+                var end = code.newLabel();
+                booleanCode(code, node.condition);
+                code.ifeq(elseBranch);
+                statementCode(code, node.thenStatement);
+                code.goto_(end).labelBinding(elseBranch);
+                statementCode(code, node.elseStatement);
+                code.labelBinding(end);
+            }
+            case Sequence node -> {
+                statementCode(code, node.left);
+                statementCode(code, node.right);
+            }
+            default -> {
+                constant(code, statementSemantics, CD_StatementSemantics);
+                constant(code, statement, CD_Statement);
+                code.aload(ENVIRONMENT)
+                        .invokevirtual(CD_StatementSemantics, "evaluate", MethodTypeDesc.of(CD_Environment, CD_Statement, CD_Environment))
+                        .pop();
+            }
+        }
+    }
+}
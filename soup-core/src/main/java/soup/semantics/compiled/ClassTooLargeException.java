@@ -0,0 +1,12 @@
+package soup.semantics.compiled;
+
+/**
+ * Thrown by {@link BytecodeCompiler#compile} when the class of a soup exceeds a limit of the class file format, such
+ * as the size of the constant pool or of the code of a method. {@link soup.semantics.base.SoupSemantics} catches it to
+ * run the soup on closures instead.
+ */
+public class ClassTooLargeException extends UnsupportedOperationException {
+    public ClassTooLargeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,326 @@
+package soup.semantics.compiled;
+
+import soup.analysis.TypeInference;
+import soup.semantics.base.*;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+import soup.syntax.model.expressions.ConditionalExpression;
+import soup.syntax.model.expressions.Expression;
+import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.Type;
+import soup.syntax.model.expressions.binary.BinaryExpression;
+import soup.syntax.model.expressions.binary.arithmetic.*;
+import soup.syntax.model.expressions.binary.propositional.*;
+import soup.syntax.model.expressions.binary.relational.*;
+import soup.syntax.model.expressions.literals.BooleanLiteral;
+import soup.syntax.model.expressions.literals.DoubleLiteral;
+import soup.syntax.model.expressions.literals.IntegerLiteral;
+import soup.syntax.model.expressions.unary.MinusExpression;
+import soup.syntax.model.expressions.unary.NotExpression;
+import soup.syntax.model.expressions.unary.ParenExpression;
+import soup.syntax.model.expressions.unary.PlusExpression;
+import soup.syntax.model.statements.*;
+
+import java.util.function.*;
+
+import static soup.semantics.base.PrimitiveExpressionSemantics.*;
+
+/**
+ * Compiles guards and effects into trees of pre-bound lambdas.
+ * <p>
+ * Each node becomes one closure capturing the closures of its children, so evaluating a guard is a chain of direct
+ * calls instead of a visitor double dispatch per node. Variable references are resolved to the slots of the
+ * {@link StateLayout} at compile time, and every operator is specialized on the static {@link Type} of its operands
+ * the way {@link PrimitiveExpressionSemantics} evaluates it, whose results and errors the closures reproduce.
+ * Expressions typed {@link Type#ANY} and nodes the compiler does not know run on that evaluator.
+ */
+public class ClosureCompiler {
+    final StateLayout layout;
+    final TypeInference types;
+    final PrimitiveExpressionSemantics interpreter;
+    final StatementSemantics statementSemantics;
+
+    public ClosureCompiler(StateLayout layout, PrimitiveExpressionSemantics interpreter, StatementSemantics statementSemantics) {
+        this.layout = layout;
+        this.types = interpreter.types();
+        this.interpreter = interpreter;
+        this.statementSemantics = statementSemantics;
+    }
+
+    public CompiledPiece compile(AnonymousPiece piece) {
+        return new CompiledPiece(piece, compileBoolean(piece.guard), compileStatement(piece.effect));
+    }
+
+    public Predicate<Environment> compileBoolean(Expression expression) {
+        return switch (expression) {
+            case BooleanLiteral literal -> literal.value ? _ -> true : _ -> false;
+            case Reference<?> reference when isVariable(reference) -> {
+                var slot = layout.slotOf(reference);
+                yield environment -> asBoolean(reference.name, environment.lookupWord(layout, slot, reference));
+            }
+            case ParenExpression paren -> compileBoolean(paren.operand);
+            case NotExpression not -> {
+                var operand = compileBoolean(not.operand);
+                yield environment -> !operand.test(environment);
+            }
+            case Conjunction node -> {
+                var left = compileBoolean(node.left);
+                var right = compileBoolean(node.right);
+                yield environment -> left.test(environment) & right.test(environment);
+            }
+            case Disjunction node -> {
+                var left = compileBoolean(node.left);
+                var right = compileBoolean(node.right);
+                yield environment -> left.test(environment) | right.test(environment);
+            }
+            case Implication node -> {
+                var left = compileBoolean(node.left);
+                var right = compileBoolean(node.right);
+                yield environment -> !left.test(environment) | right.test(environment);
+            }
+            case Equivalence node -> {
+                var left = compileBoolean(node.left);
+                var right = compileBoolean(node.right);
+                yield environment -> left.test(environment) == right.test(environment);
+            }
+            case ExclusiveDisjunction node -> {
+                var left = compileBoolean(node.left);
+                var right = compileBoolean(node.right);
+                yield environment -> left.test(environment) ^ right.test(environment);
+            }
+            case Equal node -> compileEqual(node);
+            case NotEqual node -> {
+                var equal = compileEqual(node);
+                yield environment -> !equal.test(environment);
+            }
+            case LessThan node -> compileRelational(node);
+            case LessThanOrEqual node -> compileRelational(node);
+            case GreaterThan node -> compileRelational(node);
+            case GreaterThanOrEqual node -> compileRelational(node);
+            case ConditionalExpression node -> {
+                var condition = compileBoolean(node.condition);
+                var thenCode = compileBoolean(node.thenExpression);
+                var elseCode = compileBoolean(node.elseExpression);
+                yield environment -> condition.test(environment) ? thenCode.test(environment) : elseCode.test(environment);
+            }
+            default -> {
+                var word = compileWord(expression);
+                yield environment -> asBoolean("expression", word.applyAsLong(environment));
+            }
+        };
+    }
+
+    /**
+     * Compiles an expression whose static type is {@link Type#INTEGER}.
+     */
+    public ToIntFunction<Environment> compileInteger(Expression expression) {
+        return switch (expression) {
+            case IntegerLiteral literal -> {
+                int value = literal.value;
+                yield environment -> value;
+            }
+            case Reference<?> reference when isVariable(reference) -> {
+                var slot = layout.slotOf(reference);
+                yield environment -> asInteger(reference.name, environment.lookupWord(layout, slot, reference));
+            }
+            case ParenExpression paren -> compileInteger(paren.operand);
+            case PlusExpression plus -> compileInteger(plus.operand);
+            case MinusExpression minus -> {
+                var operand = compileInteger(minus.operand);
+                yield environment -> -operand.applyAsInt(environment);
+            }
+            case Multiplication node -> integer(node, (l, r) -> l * r);
+            case Division node -> integer(node, (l, r) -> l / r);
+            case Modulus node -> integer(node, (l, r) -> l % r);
+            case Addition node -> {
+                var left = compileInteger(node.left);
+                var right = compileInteger(node.right);
+                yield environment -> left.applyAsInt(environment) + right.applyAsInt(environment);
+            }
+            case Substraction node -> {
+                var left = compileInteger(node.left);
+                var right = compileInteger(node.right);
+                yield environment -> left.applyAsInt(environment) - right.applyAsInt(environment);
+            }
+            case ConditionalExpression node -> {
+                var condition = compileBoolean(node.condition);
+                var thenCode = compileInteger(node.thenExpression);
+                var elseCode = compileInteger(node.elseExpression);
+                yield environment -> condition.test(environment) ? thenCode.applyAsInt(environment) : elseCode.applyAsInt(environment);
+            }
+            default -> {
+                var word = compileWord(expression);
+                yield environment -> asInteger("expression", word.applyAsLong(environment));
+            }
+        };
+    }
+
+    ToIntFunction<Environment> integer(BinaryExpression node, IntBinaryOperator operator) {
+        var left = compileInteger(node.left);
+        var right = compileInteger(node.right);
+        return environment -> operator.applyAsInt(left.applyAsInt(environment), right.applyAsInt(environment));
+    }
+
+    /**
+     * Compiles an expression whose static type is numeric, promoting integers.
+     */
+    public ToDoubleFunction<Environment> compileDouble(Expression expression) {
+        if (types.typeOf(expression) == Type.INTEGER) {
+            var integer = compileInteger(expression);
+            return environment -> integer.applyAsInt(environment);
+        }
+        return switch (expression) {
+            case DoubleLiteral literal -> {
+                double value = literal.value;
+                yield environment -> value;
+            }
+            case Reference<?> reference when isVariable(reference) -> {
+                var slot = layout.slotOf(reference);
+                yield environment -> asDouble(reference.name, environment.lookupWord(layout, slot, reference));
+            }
+            case ParenExpression paren -> compileDouble(paren.operand);
+            case PlusExpression plus -> compileDouble(plus.operand);
+            case MinusExpression minus -> {
+                var operand = compileDouble(minus.operand);
+                yield environment -> -operand.applyAsDouble(environment);
+            }
+            case Multiplication node -> floating(node, (l, r) -> l * r);
+            case Division node -> floating(node, (l, r) -> l / r);
+            case Modulus node -> floating(node, (l, r) -> l % r);
+            case Addition node -> floating(node, Double::sum);
+            case Substraction node -> floating(node, (l, r) -> l - r);
+            case ConditionalExpression node -> {
+                var condition = compileBoolean(node.condition);
+                var thenCode = compileDouble(node.thenExpression);
+                var elseCode = compileDouble(node.elseExpression);
+                yield environment -> condition.test(environment) ? thenCode.applyAsDouble(environment) : elseCode.applyAsDouble(environment);
+            }
+            default -> {
+                var word = compileWord(expression);
+                yield environment -> asDouble("expression", word.applyAsLong(environment));
+            }
+        };
+    }
+
+    ToDoubleFunction<Environment> floating(BinaryExpression node, DoubleBinaryOperator operator) {
+        var left = compileDouble(node.left);
+        var right = compileDouble(node.right);
+        return environment -> operator.applyAsDouble(left.applyAsDouble(environment), right.applyAsDouble(environment));
+    }
+
+    /**
+     * Compiles an expression of any type to a closure computing its {@link SlotValues} word.
+     */
+    public ToLongFunction<Environment> compileWord(Expression expression) {
+        switch (types.typeOf(expression)) {
+            case BOOLEAN -> {
+                var code = compileBoolean(expression);
+                return environment -> SlotValues.encodeBoolean(code.test(environment));
+            }
+            case INTEGER -> {
+                var code = compileInteger(expression);
+                return environment -> SlotValues.encodeInteger(code.applyAsInt(environment));
+            }
+            case DOUBLE -> {
+                var code = compileDouble(expression);
+                return environment -> SlotValues.encodeDouble(code.applyAsDouble(environment));
+            }
+            case ANY -> {
+                if (expression instanceof Reference<?> reference && isVariable(reference)) {
+                    var slot = layout.slotOf(reference);
+                    return environment -> environment.lookupWord(layout, slot, reference);
+                }
+                return environment -> interpreter.evaluateWord(expression, environment);
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    Predicate<Environment> compileEqual(BinaryExpression node) {
+        var left = types.typeOf(node.left);
+        var right = types.typeOf(node.right);
+        if (left == Type.INTEGER && right == Type.INTEGER) {
+            var l = compileInteger(node.left);
+            var r = compileInteger(node.right);
+            return environment -> l.applyAsInt(environment) == r.applyAsInt(environment);
+        }
+        if (left == Type.BOOLEAN && right == Type.BOOLEAN) {
+            var l = compileBoolean(node.left);
+            var r = compileBoolean(node.right);
+            return environment -> l.test(environment) == r.test(environment);
+        }
+        // words are equal iff the boxed values are, an integer never equals a double
+        var l = compileWord(node.left);
+        var r = compileWord(node.right);
+        return environment -> l.applyAsLong(environment) == r.applyAsLong(environment);
+    }
+
+    interface IntComparison {
+        boolean test(int left, int right);
+    }
+
+    interface DoubleComparison {
+        boolean test(double left, double right);
+    }
+
+    Predicate<Environment> compileRelational(BinaryExpression node) {
+        IntComparison integers;
+        DoubleComparison doubles;
+        switch (node) {
+            case LessThan _ -> { integers = (l, r) -> l < r; doubles = (l, r) -> l < r; }
+            case LessThanOrEqual _ -> { integers = (l, r) -> l <= r; doubles = (l, r) -> l <= r; }
+            case GreaterThan _ -> { integers = (l, r) -> l > r; doubles = (l, r) -> l > r; }
+            default -> { integers = (l, r) -> l >= r; doubles = (l, r) -> l >= r; }
+        }
+        var left = types.typeOf(node.left);
+        var right = types.typeOf(node.right);
+        if (left == Type.INTEGER && right == Type.INTEGER) {
+            var l = compileInteger(node.left);
+            var r = compileInteger(node.right);
+            return environment -> integers.test(l.applyAsInt(environment), r.applyAsInt(environment));
+        }
+        if (left.isNumeric() && right.isNumeric()) {
+            var l = compileDouble(node.left);
+            var r = compileDouble(node.right);
+            return environment -> doubles.test(l.applyAsDouble(environment), r.applyAsDouble(environment));
+        }
+        var l = compileWord(node.left);
+        var r = compileWord(node.right);
+        return environment -> {
+            var leftWord = l.applyAsLong(environment);
+            var rightWord = r.applyAsLong(environment);
+            if (SlotValues.isInteger(leftWord) && SlotValues.isInteger(rightWord)) {
+                return integers.test((int) leftWord, (int) rightWord);
+            }
+            return doubles.test(asDouble(node.operator, leftWord), asDouble(node.operator, rightWord));
+        };
+    }
+
+    public Consumer<Environment> compileStatement(Statement statement) {
+        return switch (statement) {
+            case Skip _ -> _ -> {};
+            case Assignment node -> {
+                var slot = layout.slotOf(node.target);
+                var value = compileWord(node.expression);
+                yield environment -> environment.updateWord(layout, slot, node.target, value.applyAsLong(environment));
+            }
+            case IfStatement node -> {
+                var condition = compileBoolean(node.condition);
+                var thenCode = compileStatement(node.thenStatement);
+                var elseCode = compileStatement(node.elseStatement);
+                yield environment -> {
+                    if (condition.test(environment)) {
+                        thenCode.accept(environment);
+                    } else {
+                        elseCode.accept(environment);
+                    }
+                };
+            }
+            case Sequence node -> {
+                var left = compileStatement(node.left);
+                var right = compileStatement(node.right);
+                yield left.andThen(right);
+            }
+            default -> environment -> statementSemantics.evaluate(statement, environment);
+        };
+    }
+}
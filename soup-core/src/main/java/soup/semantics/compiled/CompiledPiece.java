@@ -0,0 +1,22 @@
+package soup.semantics.compiled;
+
+import soup.semantics.base.Environment;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * The executable form of a piece: its guard as a predicate over states, its effect as an in-place update.
+ */
+public class CompiledPiece {
+    public final AnonymousPiece piece;
+    public final Predicate<Environment> compiledGuard;
+    public final Consumer<Environment> compiledEffect;
+
+    public CompiledPiece(AnonymousPiece piece, Predicate<Environment> compiledGuard, Consumer<Environment> compiledEffect) {
+        this.piece = piece;
+        this.compiledGuard = compiledGuard;
+        this.compiledEffect = compiledEffect;
+    }
+}
@@ -0,0 +1,187 @@
+package soup.semantics.compiled;
+
+import soup.analysis.TypeInference;
+import soup.semantics.base.Environment;
+import soup.semantics.base.SlotValues;
+import soup.semantics.base.StateLayout;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.expressions.Expression;
+import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.Type;
+import soup.syntax.model.expressions.binary.propositional.Conjunction;
+import soup.syntax.model.expressions.binary.relational.Equal;
+import soup.syntax.model.expressions.literals.BooleanLiteral;
+import soup.syntax.model.expressions.literals.IntegerLiteral;
+import soup.syntax.model.expressions.literals.Literal;
+import soup.syntax.model.expressions.unary.ParenExpression;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Indexes the pieces of a soup by the value their guard requires for a discriminator variable, typically a program
+ * counter: a piece whose guard has a conjunct {@code pc == k} can only be enabled when {@code pc} holds {@code k}.
+ * <p>
+ * The discriminator is the variable compared for equality with an integer or boolean literal by the most guards.
+ * Doubles are left out since {@code 0.0 == -0.0}. Only the guards that cannot fail are indexed, the others are
+ * candidates on every state so that their errors still surface.
+ * <p>
+ * The candidates are looked up by the word of the discriminator without boxing: in a table indexed by the word minus
+ * the smallest required word when the required words span at most {@value #DENSE_SPAN} values, by binary search in
+ * the sorted required words otherwise.
+ */
+public class DiscriminatorIndex {
+    static final int DENSE_SPAN = 1 << 12;
+
+    final StateLayout layout;
+    final Reference<?> reference;
+    final int slot;
+    /** the word each piece requires, meaningful for the indexed pieces only */
+    final long[] required;
+    final BitSet indexed;
+    /** the distinct required words, in increasing order */
+    final long[] values;
+    /** for each required word, the indexed pieces requiring it and the pieces not indexed, in increasing order */
+    final int[][] candidates;
+    /** the candidates by word minus {@code values[0]}, null entries for the words nothing requires; null if sparse */
+    final int[][] dense;
+    final int[] others;
+
+    DiscriminatorIndex(StateLayout layout, Reference<?> reference, long[] required, BitSet indexed) {
+        this.layout = layout;
+        this.reference = reference;
+        this.slot = layout.slotOf(reference.name);
+        this.required = required;
+        this.indexed = indexed;
+        var others = new ArrayList<Integer>();
+        var byValue = new TreeMap<Long, List<Integer>>();
+        for (int i = 0; i < required.length; i++) {
+            if (!indexed.get(i)) {
+                others.add(i);
+            } else {
+                byValue.computeIfAbsent(required[i], _ -> new ArrayList<>()).add(i);
+            }
+        }
+        this.others = others.stream().mapToInt(Integer::intValue).toArray();
+        this.values = new long[byValue.size()];
+        this.candidates = new int[byValue.size()][];
+        var index = 0;
+        for (var entry : byValue.entrySet()) {
+            var pieces = new ArrayList<>(entry.getValue());
+            pieces.addAll(others);
+            values[index] = entry.getKey();
+            candidates[index++] = pieces.stream().mapToInt(Integer::intValue).sorted().toArray();
+        }
+        var span = values.length == 0 ? -1 : values[values.length - 1] - values[0];
+        if (span >= 0 && span < DENSE_SPAN) {
+            this.dense = new int[(int) span + 1][];
+            for (int i = 0; i < values.length; i++) {
+                dense[(int) (values[i] - values[0])] = candidates[i];
+            }
+        } else {
+            this.dense = null;
+        }
+    }
+
+    /**
+     * @param types the types of the soup, a variable is only indexed by literals of its own type
+     * @param cannotFail tells the guards whose evaluation cannot throw
+     * @return the index on the best discriminator of the soup, null if no variable is tested by two guards
+     */
+    public static DiscriminatorIndex of(
+            Soup soup, StateLayout layout, TypeInference types, Predicate<Expression> cannotFail) {
+        var tests = new ArrayList<Map<String, Long>>();
+        var counts = new LinkedHashMap<String, Integer>();
+        for (var piece : soup.pieces) {
+            var pieceTests = new LinkedHashMap<String, Long>();
+            if (cannotFail.test(piece.guard)) {
+                equalities(piece.guard, layout, types, pieceTests);
+            }
+            tests.add(pieceTests);
+            for (var name : pieceTests.keySet()) {
+                counts.merge(name, 1, Integer::sum);
+            }
+        }
+        String best = null;
+        for (var entry : counts.entrySet()) {
+            if (best == null || entry.getValue() > counts.get(best)) best = entry.getKey();
+        }
+        if (best == null || counts.get(best) < 2) return null;
+        var required = new long[soup.pieces.size()];
+        var indexed = new BitSet(required.length);
+        for (int i = 0; i < required.length; i++) {
+            var value = tests.get(i).get(best);
+            if (value == null) continue;
+            required[i] = value;
+            indexed.set(i);
+        }
+        return new DiscriminatorIndex(layout, new Reference<>(best, null), required, indexed);
+    }
+
+    static void equalities(Expression guard, StateLayout layout, TypeInference types, Map<String, Long> tests) {
+        switch (guard) {
+            case ParenExpression paren -> equalities(paren.operand, layout, types, tests);
+            case Conjunction node -> {
+                equalities(node.left, layout, types, tests);
+                equalities(node.right, layout, types, tests);
+            }
+            case Equal node -> {
+                var left = unparen(node.left);
+                var right = unparen(node.right);
+                if (right instanceof Reference<?> && left instanceof Literal<?>) {
+                    var swap = left;
+                    left = right;
+                    right = swap;
+                }
+                if (left instanceof Reference<?> reference && reference.getClass() == Reference.class
+                        && layout.slotOf(reference.name) >= 0
+                        && (right instanceof IntegerLiteral && types.typeOf(reference) == Type.INTEGER
+                            || right instanceof BooleanLiteral && types.typeOf(reference) == Type.BOOLEAN)) {
+                    tests.putIfAbsent(reference.name, SlotValues.encode(((Literal<?>) right).value));
+                }
+            }
+            default -> { }
+        }
+    }
+
+    static Expression unparen(Expression expression) {
+        return expression instanceof ParenExpression paren ? unparen(paren.operand) : expression;
+    }
+
+    public String variable() {
+        return reference.name;
+    }
+
+    /**
+     * @return the number of pieces indexed by the value they require
+     */
+    public int indexedCount() {
+        return required.length - others.length;
+    }
+
+    public long value(Environment configuration) {
+        return configuration.lookupWord(layout, slot, reference);
+    }
+
+    /**
+     * @return the pieces that may be enabled in the configuration, in increasing order
+     */
+    public int[] candidates(Environment configuration) {
+        var value = value(configuration);
+        if (dense != null) {
+            var offset = value - values[0];
+            if (offset < 0 || offset >= dense.length) return others;
+            var pieces = dense[(int) offset];
+            return pieces == null ? others : pieces;
+        }
+        var index = Arrays.binarySearch(values, value);
+        return index < 0 ? others : candidates[index];
+    }
+
+    /**
+     * @return true if the piece cannot be enabled while the discriminator holds the value
+     */
+    public boolean excludes(int piece, long value) {
+        return indexed.get(piece) && required[piece] != value;
+    }
+}
@@ -0,0 +1,314 @@
+package soup.semantics.compiled;
+
+import soup.semantics.base.Environment;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.expressions.Expression;
+import soup.syntax.model.expressions.binary.propositional.Conjunction;
+import soup.syntax.model.expressions.literals.BooleanLiteral;
+import soup.syntax.model.expressions.unary.ParenExpression;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The guards of a soup compiled into a shared decision diagram over their conjuncts.
+ * <p>
+ * Each guard is split into its top-level conjuncts, the atoms, and equal atoms are shared between the pieces. A node
+ * tests one atom: on its true edge, the pieces whose last pending atom it was are enabled, and on its false edge the
+ * pieces requiring it are dropped. The nodes are shared by the set of pending pieces and atoms, so computing the
+ * enabled pieces walks a single path and evaluates each atom at most once per state, skipping the atoms of the pieces
+ * already disabled. The atoms that may fail are evaluated first on every state, as the interpreter would.
+ * <p>
+ * The diagram is built iteratively, so that long chains of atoms do not overflow the stack. A node is shared through a
+ * compact key of its pending pieces and of the atoms already found true on the way, one bit each, so the memory of the
+ * construction is bounded by {@link #MAX_NODES} times the number of pieces and atoms, in bits. If the diagram grows
+ * beyond {@link #MAX_NODES} nodes, the pieces are instead checked one after the other, each atom still evaluated at
+ * most once per state.
+ * <p>
+ * {@link #update} recomputes the pieces whose guard a step may have changed, still evaluating each of their atoms at
+ * most once.
+ */
+public class GuardDiagram {
+    public static final int MAX_NODES = 100_000;
+
+    /** the pieces whose guard is true, enabled on every state */
+    final int[] unconditional;
+    final Expression[] atomExpressions;
+    final Predicate<Environment>[] atoms;
+    /** the atoms evaluated first, whatever the path, since evaluating them may fail */
+    final int[] alwaysEvaluated;
+    final boolean[] mayFail;
+    /** the atoms of each piece, null for the pieces whose guard is true */
+    final int[][] pieceAtoms;
+    final Node root;
+    int nodeCount;
+
+    static final class Node {
+        final int atom;
+        int[] thenEnabled;
+        Node thenNode;
+        Node elseNode;
+
+        Node(int atom) {
+            this.atom = atom;
+        }
+    }
+
+    /**
+     * A node to build and the edge to it.
+     *
+     * @param pending the pieces whose guard is still undecided
+     * @param tested the atoms found true on the way, restricted to those of the pending pieces
+     */
+    record Task(Node parent, boolean thenEdge, BitSet pending, BitSet tested) { }
+
+    /** the pending pieces then the tested atoms of a {@link Task}, which determine its node */
+    record Key(long[] bits) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && Arrays.equals(bits, key.bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bits);
+        }
+    }
+
+    /**
+     * @param compiler compiles an atom, a boolean expression of the soup
+     * @param cannotFail tells the atoms whose evaluation cannot throw
+     */
+    @SuppressWarnings("unchecked")
+    public GuardDiagram(Soup soup, Function<Expression, Predicate<Environment>> compiler, Predicate<Expression> cannotFail) {
+        var indices = new HashMap<Expression, Integer>();
+        var expressions = new ArrayList<Expression>();
+        var pending = new BitSet();
+        var unconditional = new ArrayList<Integer>();
+        this.pieceAtoms = new int[soup.pieces.size()][];
+        for (int i = 0; i < soup.pieces.size(); i++) {
+            var conjuncts = new ArrayList<Expression>();
+            conjuncts(soup.pieces.get(i).guard, conjuncts);
+            var atoms = new BitSet();
+            for (var conjunct : conjuncts) {
+                atoms.set(indices.computeIfAbsent(conjunct, expression -> {
+                    expressions.add(expression);
+                    return expressions.size() - 1;
+                }));
+            }
+            if (atoms.isEmpty()) {
+                unconditional.add(i);
+            } else {
+                pending.set(i);
+                pieceAtoms[i] = atoms.stream().toArray();
+            }
+        }
+        this.unconditional = unconditional.stream().mapToInt(Integer::intValue).toArray();
+        this.atomExpressions = expressions.toArray(Expression[]::new);
+        this.atoms = new Predicate[atomExpressions.length];
+        var always = new ArrayList<Integer>();
+        this.mayFail = new boolean[atomExpressions.length];
+        for (int i = 0; i < atomExpressions.length; i++) {
+            atoms[i] = compiler.apply(atomExpressions[i]);
+            mayFail[i] = !cannotFail.test(atomExpressions[i]);
+            if (mayFail[i]) always.add(i);
+        }
+        this.alwaysEvaluated = always.stream().mapToInt(Integer::intValue).toArray();
+        this.root = build(pending);
+    }
+
+    /**
+     * Adds the top-level conjuncts of a guard, leaving out the {@code true} literals.
+     */
+    public static void conjuncts(Expression guard, List<Expression> conjuncts) {
+        switch (guard) {
+            case ParenExpression paren -> conjuncts(paren.operand, conjuncts);
+            case Conjunction node -> {
+                conjuncts(node.left, conjuncts);
+                conjuncts(node.right, conjuncts);
+            }
+            case BooleanLiteral literal when literal.value -> { }
+            default -> conjuncts.add(guard);
+        }
+    }
+
+    /**
+     * @return the root of the diagram, null if no piece is pending or if the diagram exceeds {@link #MAX_NODES} nodes
+     */
+    Node build(BitSet pending) {
+        var shared = new HashMap<Key, Node>();
+        var sentinel = new Node(-1);
+        var tasks = new ArrayDeque<Task>();
+        tasks.push(new Task(sentinel, true, pending, new BitSet()));
+        while (!tasks.isEmpty()) {
+            var task = tasks.pop();
+            if (task.pending().isEmpty()) continue;
+            var key = key(task);
+            var node = shared.get(key);
+            if (node == null) {
+                if (++nodeCount > MAX_NODES) {
+                    nodeCount = 0;
+                    return null;
+                }
+                node = split(task, tasks);
+                shared.put(key, node);
+            }
+            if (task.thenEdge()) {
+                task.parent().thenNode = node;
+            } else {
+                task.parent().elseNode = node;
+            }
+        }
+        return sentinel.thenNode;
+    }
+
+    Key key(Task task) {
+        var pieceWords = (pieceAtoms.length + 63) >>> 6;
+        var bits = new long[pieceWords + ((atoms.length + 63) >>> 6)];
+        var pending = task.pending().toLongArray();
+        var tested = task.tested().toLongArray();
+        System.arraycopy(pending, 0, bits, 0, pending.length);
+        System.arraycopy(tested, 0, bits, pieceWords, tested.length);
+        return new Key(bits);
+    }
+
+    /**
+     * Creates the node of a task and pushes the tasks of its two edges.
+     */
+    Node split(Task task, ArrayDeque<Task> tasks) {
+        var pending = task.pending();
+        var tested = task.tested();
+        // test first the atom most pieces wait for, the earliest one on ties
+        var counts = new int[atomExpressions.length];
+        for (var piece = pending.nextSetBit(0); piece >= 0; piece = pending.nextSetBit(piece + 1)) {
+            for (var atom : pieceAtoms[piece]) {
+                if (!tested.get(atom)) counts[atom]++;
+            }
+        }
+        var atom = 0;
+        for (int i = 1; i < counts.length; i++) {
+            if (counts[i] > counts[atom]) atom = i;
+        }
+
+        var node = new Node(atom);
+        var enabled = new ArrayList<Integer>();
+        var thenPending = (BitSet) pending.clone();
+        var elsePending = (BitSet) pending.clone();
+        var thenTested = (BitSet) tested.clone();
+        thenTested.set(atom);
+        for (var piece = pending.nextSetBit(0); piece >= 0; piece = pending.nextSetBit(piece + 1)) {
+            var waiting = false;
+            var rest = false;
+            for (var other : pieceAtoms[piece]) {
+                if (other == atom) {
+                    waiting = true;
+                } else if (!tested.get(other)) {
+                    rest = true;
+                }
+            }
+            if (!waiting) continue;
+            elsePending.clear(piece);
+            if (!rest) {
+                enabled.add(piece);
+                thenPending.clear(piece);
+            }
+        }
+        node.thenEnabled = enabled.stream().mapToInt(Integer::intValue).toArray();
+        tasks.push(new Task(node, false, elsePending, relevant(tested, elsePending)));
+        tasks.push(new Task(node, true, thenPending, relevant(thenTested, thenPending)));
+        return node;
+    }
+
+    /**
+     * @return the tested atoms some pending piece waits for, so that equal sets of pending pieces and atoms have equal keys
+     */
+    BitSet relevant(BitSet tested, BitSet pending) {
+        var atoms = new BitSet();
+        for (var piece = pending.nextSetBit(0); piece >= 0; piece = pending.nextSetBit(piece + 1)) {
+            for (var atom : pieceAtoms[piece]) {
+                if (tested.get(atom)) atoms.set(atom);
+            }
+        }
+        return atoms;
+    }
+
+    public int atomCount() {
+        return atoms.length;
+    }
+
+    /**
+     * @return the number of nodes of the diagram, 0 if it was too large to build
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Sets the bits of the pieces enabled in the configuration, one bit per piece index.
+     */
+    public void enabled(Environment configuration, long[] enabled) {
+        // 0: not evaluated, 1: false, 2: true
+        var values = new byte[atoms.length];
+        for (var atom : alwaysEvaluated) {
+            values[atom] = atoms[atom].test(configuration) ? (byte) 2 : 1;
+        }
+        for (var piece : unconditional) {
+            enabled[piece >>> 6] |= 1L << piece;
+        }
+        if (root == null) {
+            for (int piece = 0; piece < pieceAtoms.length; piece++) {
+                if (pieceAtoms[piece] == null) continue;
+                var all = true;
+                for (var atom : pieceAtoms[piece]) {
+                    if (!test(atom, configuration, values)) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all) enabled[piece >>> 6] |= 1L << piece;
+            }
+            return;
+        }
+        var node = root;
+        while (node != null) {
+            if (test(node.atom, configuration, values)) {
+                for (var piece : node.thenEnabled) {
+                    enabled[piece >>> 6] |= 1L << piece;
+                }
+                node = node.thenNode;
+            } else {
+                node = node.elseNode;
+            }
+        }
+    }
+
+    /**
+     * Recomputes the bits of the given pieces in the configuration, leaving the others unchanged.
+     */
+    public void update(Environment configuration, long[] enabled, int[] pieces) {
+        // 0: not evaluated, 1: false, 2: true
+        var values = new byte[atoms.length];
+        for (var piece : pieces) {
+            var all = true;
+            if (pieceAtoms[piece] != null) {
+                for (var atom : pieceAtoms[piece]) {
+                    // the atoms that may fail are evaluated even once the guard is known false
+                    if ((all || mayFail[atom]) && !test(atom, configuration, values)) all = false;
+                }
+            }
+            if (all) {
+                enabled[piece >>> 6] |= 1L << piece;
+            } else {
+                enabled[piece >>> 6] &= ~(1L << piece);
+            }
+        }
+    }
+
+    boolean test(int atom, Environment configuration, byte[] values) {
+        if (values[atom] == 0) {
+            values[atom] = atoms[atom].test(configuration) ? (byte) 2 : 1;
+        }
+        return values[atom] == 2;
+    }
+}
@@ -0,0 +1,29 @@
+package soup.semantics.compiled;
+
+import soup.semantics.base.Environment;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+
+/**
+ * The guards and effects of the pieces of a soup, compiled together into one class by {@link BytecodeCompiler}.
+ * Pieces are designated by their index in the soup.
+ */
+public interface SoupCode {
+    /**
+     * Evaluates all the guards in the order of the pieces.
+     *
+     * @param enabled receives the indices of the enabled pieces, it must have room for all the pieces
+     * @return the number of enabled pieces
+     */
+    int enabled(Environment environment, int[] enabled);
+
+    boolean guard(int piece, Environment environment);
+
+    /**
+     * Applies the effect of a piece in place.
+     */
+    void effect(int piece, Environment environment);
+
+    default CompiledPiece piece(int index, AnonymousPiece piece) {
+        return new CompiledPiece(piece, environment -> guard(index, environment), environment -> effect(index, environment));
+    }
+}
@@ -0,0 +1,139 @@
+package soup.semantics.compiled;
+
+import soup.semantics.base.Environment;
+import soup.semantics.base.PrimitiveExpressionSemantics;
+import soup.semantics.base.StatementSemantics;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs every piece on the interpreter until it has been evaluated {@code threshold} times, then compiles it with a
+ * {@link ClosureCompiler} on a background executor, so that the startup cost of a soup is only paid for its hot pieces.
+ * <p>
+ * A {@link Tier} counts the evaluations of the guard and the effect of its piece until its promotion is requested, so
+ * that the compiled pieces touch no shared counter, and holds the code currently running it in a volatile field. The promotion swaps that field once the compiled code is ready: an evaluation in progress
+ * finishes on the code it started with and the next ones use the compiled code, both computing the same result.
+ */
+public class TieredCompiler {
+    public static final int DEFAULT_THRESHOLD = 1_000;
+
+    /** the compilations of all the tiered compilers, one at a time off the exploration threads */
+    public static final Executor BACKGROUND = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("soup-tiered-compiler").daemon().factory());
+
+    final ClosureCompiler compiler;
+    final PrimitiveExpressionSemantics interpreter;
+    final StatementSemantics statementSemantics;
+    final long threshold;
+    final Executor executor;
+    final List<CompletableFuture<Void>> promotions = new ArrayList<>();
+
+    public TieredCompiler(ClosureCompiler compiler, PrimitiveExpressionSemantics interpreter, StatementSemantics statementSemantics) {
+        this(compiler, interpreter, statementSemantics, DEFAULT_THRESHOLD, BACKGROUND);
+    }
+
+    /**
+     * @param threshold the number of guard and effect evaluations after which a piece is compiled, 0 to compile
+     *                  every piece on its first evaluation
+     * @param executor  runs the compilations
+     */
+    public TieredCompiler(
+            ClosureCompiler compiler,
+            PrimitiveExpressionSemantics interpreter,
+            StatementSemantics statementSemantics,
+            long threshold,
+            Executor executor) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("The promotion threshold must not be negative, got " + threshold);
+        }
+        this.compiler = compiler;
+        this.interpreter = interpreter;
+        this.statementSemantics = statementSemantics;
+        this.threshold = threshold;
+        this.executor = executor;
+    }
+
+    public Tier tier(AnonymousPiece piece) {
+        return new Tier(piece);
+    }
+
+    void promote(Tier tier) {
+        var promotion = CompletableFuture.runAsync(() -> tier.current = compiler.compile(tier.piece), executor);
+        synchronized (promotions) {
+            promotions.add(promotion);
+        }
+    }
+
+    /**
+     * Waits for the promotions requested so far to complete.
+     */
+    public void awaitPromotions() {
+        List<CompletableFuture<Void>> pending;
+        synchronized (promotions) {
+            pending = new ArrayList<>(promotions);
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * The execution of one piece, on the interpreter until it is promoted.
+     */
+    public class Tier {
+        public final AnonymousPiece piece;
+        final AtomicLong evaluations = new AtomicLong();
+        final AtomicBoolean promoting = new AtomicBoolean();
+        final CompiledPiece interpreted;
+        volatile CompiledPiece current;
+
+        Tier(AnonymousPiece piece) {
+            this.piece = piece;
+            this.interpreted = new CompiledPiece(
+                    piece,
+                    environment -> interpreter.evaluateBoolean(piece.guard, environment),
+                    environment -> statementSemantics.evaluate(piece.effect, environment));
+            this.current = interpreted;
+        }
+
+        void count() {
+            if (promoting.get()) return;
+            if (evaluations.incrementAndGet() >= threshold && promoting.compareAndSet(false, true)) {
+                promote(this);
+            }
+        }
+
+        public boolean test(Environment environment) {
+            var code = current;
+            if (code == interpreted) count();
+            return code.compiledGuard.test(environment);
+        }
+
+        public void apply(Environment environment) {
+            var code = current;
+            if (code == interpreted) count();
+            code.compiledEffect.accept(environment);
+        }
+
+        /**
+         * @return the number of evaluations of the guard and of the effect of the piece counted before its promotion
+         *         was requested
+         */
+        public long evaluations() {
+            return evaluations.get();
+        }
+
+        public boolean isCompiled() {
+            return current != interpreted;
+        }
+
+        public CompiledPiece asCompiledPiece() {
+            return new CompiledPiece(piece, this::test, this::apply);
+        }
+    }
+}
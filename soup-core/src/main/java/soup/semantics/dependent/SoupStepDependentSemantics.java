@@ -3,6 +3,7 @@ package soup.semantics.dependent;
 import obp3.runtime.sli.DependentSemanticRelation;
 import obp3.runtime.sli.Step;
 import soup.semantics.base.Environment;
+import soup.semantics.base.StateLayout;
 import soup.semantics.base.StatementSemantics;
 import soup.semantics.diagnosis.StepExpressionSemantics;
 import soup.syntax.model.declarations.Soup;
@@ -14,12 +15,14 @@ import java.util.stream.Collectors;
 
 public class SoupStepDependentSemantics implements DependentSemanticRelation<Step<AnonymousPiece, Environment>, AnonymousPiece, Environment> {
     Soup model;
+    StateLayout layout;
     StepExpressionSemantics inputSemantics;
     StepDependentExpressionSemantics expressionSemantics;
     StatementSemantics statementSemantics;
 
     public SoupStepDependentSemantics(Soup model) {
         this.model = model;
+        this.layout = StateLayout.of(model);
         this.inputSemantics = new StepExpressionSemantics();
         this.expressionSemantics = new StepDependentExpressionSemantics(this.inputSemantics);
         this.statementSemantics = new StatementSemantics(this.expressionSemantics);
@@ -31,6 +34,7 @@ public class SoupStepDependentSemantics implements DependentSemanticRelation<Ste
             StepDependentExpressionSemantics expressionSemantics,
             StatementSemantics statementSemantics) {
         this.model = model;
+        this.layout = StateLayout.of(model);
         this.inputSemantics = inputSemantics;
         this.expressionSemantics = expressionSemantics;
         this.statementSemantics = statementSemantics;
@@ -38,7 +42,7 @@ public class SoupStepDependentSemantics implements DependentSemanticRelation<Ste
 
     @Override
     public List<Environment> initial() {
-        var environment = new StepDependentEnvironment(model, null);
+        var environment = new StepDependentEnvironment(model, layout, null);
         for (var variable : model.variables) {
             environment.define(variable.name, expressionSemantics.evaluate(variable.initial, environment));
         }
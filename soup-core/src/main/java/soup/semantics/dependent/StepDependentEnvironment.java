@@ -2,6 +2,7 @@ package soup.semantics.dependent;
 
 import obp3.runtime.sli.Step;
 import soup.semantics.base.Environment;
+import soup.semantics.base.StateLayout;
 import soup.syntax.model.SyntaxTreeElement;
 import soup.syntax.model.declarations.pieces.AnonymousPiece;
 
@@ -13,6 +14,11 @@ public class StepDependentEnvironment extends Environment {
         this.input = input;
     }
 
+    public StepDependentEnvironment(SyntaxTreeElement model, StateLayout layout, Step<AnonymousPiece, Environment> input) {
+        super(model, layout);
+        this.input = input;
+    }
+
     public StepDependentEnvironment(Step<AnonymousPiece, Environment> input, Environment configuration) {
         super(configuration);
         this.input = input;
@@ -15,6 +15,6 @@ public class DiagnosisExpressionSemantics extends ExpressionSemantics {
                 return semantics.actions(environment).isEmpty();
             }
         }
-        return environment.lookup(node.name);
+        return environment.lookup(node);
     }
 }
@@ -29,7 +29,7 @@ public class StepExpressionSemantics extends ExpressionSemantics {
             if (env.isStutter() && ((StepEnvironment) environment).selfLoop()) return true;
             return false;
         }
-        return environment.lookup(node.name);
+        return environment.lookup(node);
     }
 
     @Override
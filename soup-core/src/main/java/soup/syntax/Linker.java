@@ -47,7 +47,9 @@ public class Linker extends FunctionalVisitorBase<Environment, Void> {
         if (environment == null) {
             environment = new Environment();
         }
-        for (var variable : node.variables) {
+        for (int i = 0; i < node.variables.size(); i++) {
+            var variable = node.variables.get(i);
+            variable.slot = i;
             variable.initial.accept(this, environment);
             environment.variableScope.put(variable.name, variable);
         }
@@ -10,6 +10,8 @@ import java.util.Objects;
 public class VariableDeclaration extends SyntaxTreeElement {
     public String name;
     public Expression initial;
+    /** the index of this variable in the state vector, set by the linker */
+    public int slot = -1;
     public VariableDeclaration(
             String name,
             Expression initial,
@@ -0,0 +1,12 @@
+package soup.syntax.model.expressions;
+
+/**
+ * The static type of an expression. {@link #ANY} stands for a type only known at runtime.
+ */
+public enum Type {
+    BOOLEAN, INTEGER, DOUBLE, ANY;
+
+    public boolean isNumeric() {
+        return this == INTEGER || this == DOUBLE;
+    }
+}
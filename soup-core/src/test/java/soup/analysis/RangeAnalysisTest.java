@@ -0,0 +1,54 @@
+package soup.analysis;
+
+import org.junit.jupiter.api.Test;
+import soup.syntax.Reader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RangeAnalysisTest {
+
+    @Test
+    void testLiteralRanges() throws Exception {
+        var soup = Reader.readSoup("""
+                var a = 0; f = false; d = 1.5; k = 7;
+                p1: [a == 0] / a = 1; f = true
+                | p2: [a == 1] / a = 2; d = d * 2.0
+                | p3: [a == 2] / a = 0; f = !f
+                """);
+        var ranges = RangeAnalysis.analyze(soup);
+        assertEquals(ValueRange.integer(0, 2), ranges[0]);
+        assertEquals(2, ranges[0].width());
+        assertEquals(ValueRange.BOOLEAN, ranges[1]);
+        assertEquals(ValueRange.DOUBLE, ranges[2]);
+        assertEquals(ValueRange.of(7), ranges[3]);
+        assertEquals(0, ranges[3].width());
+    }
+
+    @Test
+    void testReferencesAndConditionals() throws Exception {
+        var soup = Reader.readSoup("""
+                var a = 0; b = a;
+                p1: / a = a < 3 ? 3 : -1
+                | p2: / b = a
+                """);
+        var ranges = RangeAnalysis.analyze(soup);
+        assertEquals(ValueRange.integer(-1, 3), ranges[0]);
+        assertEquals(ValueRange.integer(-1, 3), ranges[1]);
+    }
+
+    @Test
+    void testCounterIsWidened() throws Exception {
+        var soup = Reader.readSoup("var c = 0; inc: / c = c + 1");
+        var ranges = RangeAnalysis.analyze(soup);
+        assertEquals(ValueRange.INTEGER, ranges[0]);
+        assertEquals(32, ranges[0].width());
+    }
+
+    @Test
+    void testMixedKinds() throws Exception {
+        var soup = Reader.readSoup("var x = 0; set: / x = true");
+        var ranges = RangeAnalysis.analyze(soup);
+        assertEquals(ValueRange.ANY, ranges[0]);
+        assertEquals(64, ranges[0].width());
+    }
+}
@@ -0,0 +1,76 @@
+package soup.analysis;
+
+import org.junit.jupiter.api.Test;
+import soup.syntax.Reader;
+import soup.syntax.model.expressions.Type;
+import soup.syntax.model.expressions.binary.BinaryExpression;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TypeCheckerTest {
+
+    @Test
+    void testWellTyped() throws Exception {
+        var soup = Reader.readSoup("""
+                var x = 0; d = 0.5; f = false; m = 1;
+                inc: [x < 3 && !f] / x = x + 1; d = d * 2.0
+                | flip: [d >= 1.0 || x == 3] / f = !f; m = m == 1 ? 2.5 : 1
+                """);
+        var types = TypeChecker.check(soup);
+        var inc = soup.pieces.getFirst();
+        assertEquals(Type.BOOLEAN, types.typeOf(inc.guard));
+        assertEquals(Type.INTEGER, types.typeOf("x"));
+        assertEquals(Type.DOUBLE, types.typeOf("d"));
+        assertEquals(Type.BOOLEAN, types.typeOf("f"));
+        assertEquals(Type.ANY, types.typeOf("m"));
+    }
+
+    @Test
+    void testRejectsNumericGuard() throws Exception {
+        var soup = Reader.readSoup("var x = 23; inc: [ x ] / x = 42");
+        var checker = new TypeChecker(soup);
+        assertFalse(checker.isWellTyped());
+        assertEquals(1, checker.errors().size());
+        assertThrows(RuntimeException.class, () -> TypeChecker.check(soup));
+    }
+
+    @Test
+    void testRejectsMisusedOperands() throws Exception {
+        var soup = Reader.readSoup("""
+                var x = 1; b = true; y = 0;
+                a1: [b + 1 > 0] / skip
+                | a2: [!x] / skip
+                | a3: [b == x] / skip
+                | a4: [true] / if x then skip else skip
+                | a5: [true] / y = b ? 1 : false
+                """);
+        var checker = new TypeChecker(soup);
+        assertEquals(5, checker.errors().size(), checker.errors().toString());
+    }
+
+    @Test
+    void testRejectsMixedAssignments() throws Exception {
+        var checker = new TypeChecker(Reader.readSoup("var x = 1; set: / x = true"));
+        assertEquals(1, checker.errors().size());
+        assertTrue(checker.errors().getFirst().contains("'x'"));
+    }
+
+    @Test
+    void testRejectsUndeclaredVariables() throws Exception {
+        var checker = new TypeChecker(Reader.readSoup("var x = 1; set: [y > 0] / x = 2"));
+        assertEquals(1, checker.errors().size());
+    }
+
+    @Test
+    void testSharedNodes() throws Exception {
+        var integers = Reader.readSoup("var x = 0; inc: [x < 3] / x = x + 1");
+        var doubles = Reader.readSoup("var x = 0.5; inc: [x < 3.0] / x = x + 1.0");
+        var integerTypes = new TypeInference(integers);
+        var doubleTypes = new TypeInference(doubles);
+        // the left operand of the integer guard, read against the other soup
+        var x = ((BinaryExpression) integers.pieces.getFirst().guard).left;
+        assertEquals(Type.INTEGER, integerTypes.typeOf(x));
+        assertEquals(Type.DOUBLE, doubleTypes.typeOf(x));
+        assertEquals(Type.INTEGER, integerTypes.typeOf(x));
+    }
+}
@@ -0,0 +1,114 @@
+package soup.optimization;
+
+import org.junit.jupiter.api.Test;
+import soup.syntax.Reader;
+import soup.syntax.model.statements.Skip;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConeOfInfluenceTest {
+    static final String MODEL = """
+            var x = 0; y = 0; z = 0; w = 0;
+            incY: [y < 2] / y = y + 1; w = y
+            | copy: [x < y] / x = y
+            | noise: [z < 3] / z = z + 1; w = z
+            | reset: [x == 2 && y == 2] / x = 0; y = 0; z = 0
+            """;
+
+    @Test
+    void testRelevantVariables() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var cone = new ConeOfInfluence(soup, Set.of("x"));
+        assertEquals(Set.of("x", "y"), cone.relevantVariables());
+        assertTrue(cone.isRelevant(soup.pieces.get(0)));
+        assertTrue(cone.isRelevant(soup.pieces.get(1)));
+        assertFalse(cone.isRelevant(soup.pieces.get(2)));
+        assertTrue(cone.isRelevant(soup.pieces.get(3)));
+    }
+
+    @Test
+    void testSlicedSoup() throws Exception {
+        var optimized = ConeOfInfluence.slice(Reader.readSoup(MODEL), Reader.readExpression("x == 2"));
+        var soup = optimized.soup();
+        assertEquals(List.of("x", "y"), soup.variables.stream().map(v -> v.name).toList());
+        assertEquals(4, soup.pieces.size());
+        assertEquals(Reader.readStatement("y = y + 1").toString(), soup.pieces.get(0).effect.toString());
+        assertEquals(Reader.readStatement("x = 0; y = 0").toString(), soup.pieces.get(2).effect.toString());
+        // 'noise' guard reads z, so the stutter piece is always enabled
+        var stutter = soup.pieces.getLast();
+        assertEquals("true", stutter.guard.toString());
+        assertInstanceOf(Skip.class, stutter.effect);
+        assertTrue(optimized.eliminatedNodes() > 0);
+    }
+
+    @Test
+    void testPreservesTheRelevantStates() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var sliced = ConeOfInfluence.slice(soup, Set.of("x")).soup();
+        var original = ConstantFoldingTest.reachable(soup).stream()
+                .map(state -> {
+                    var kept = new HashMap<>(state);
+                    kept.keySet().retainAll(Set.of("x", "y"));
+                    return kept;
+                })
+                .collect(Collectors.toSet());
+        assertEquals(original, ConstantFoldingTest.reachable(sliced));
+    }
+
+    @Test
+    void testExactStutterGuard() throws Exception {
+        var soup = Reader.readSoup("var a = 0; b = 0; inc: [a < 2] / a = a + 1 | other: [a == 2] / b = 1 - b");
+        var sliced = ConeOfInfluence.slice(soup, Set.of("a")).soup();
+        assertEquals(List.of("a"), sliced.variables.stream().map(v -> v.name).toList());
+        assertEquals(Reader.readExpression("a == 2").toString(), sliced.pieces.getLast().guard.toString());
+    }
+
+    @Test
+    void testLivenessKeepsTheStutterGuardExact() throws Exception {
+        // 'other' stops once b reaches 3: a true stutter guard would loop forever in a == 2
+        var soup = Reader.readSoup("var a = 0; b = 0; c = 0; inc: [a < 2] / a = a + 1 | other: [b < 3] / b = b + 1; c = b");
+        assertEquals("true", ConeOfInfluence.slice(soup, Set.of("a")).soup().pieces.getLast().guard.toString());
+        var cone = new ConeOfInfluence(soup, Set.of("a"), true);
+        assertEquals(Set.of("a", "b"), cone.relevantVariables());
+        var sliced = ConeOfInfluence.slice(soup, Set.of("a"), true).soup();
+        assertEquals(List.of("a", "b"), sliced.variables.stream().map(v -> v.name).toList());
+        assertEquals(2, sliced.pieces.size());
+        assertEquals(Reader.readStatement("b = b + 1").toString(), sliced.pieces.getLast().effect.toString());
+    }
+
+    @Test
+    void testObservedPieces() throws Exception {
+        var soup = Reader.readSoup("var a = 0; b = 0; inc: [a < 2] / a = a + 1 | other: [b < 1] / b = b + 1");
+        var cone = new ConeOfInfluence(soup, Set.of("other"));
+        assertEquals(Set.of("b"), cone.relevantVariables());
+        assertTrue(cone.isRelevant(soup.pieces.get(1)));
+        assertFalse(cone.isRelevant(soup.pieces.get(0)));
+    }
+
+    @Test
+    void testKeepsTheFailures() throws Exception {
+        var soup = Reader.readSoup("var a = 0; d = 1; r = 0; inc: [a < 2] / a = a + 1; r = 10 / d");
+        var cone = new ConeOfInfluence(soup, Set.of("a"));
+        assertEquals(Set.of("a", "r", "d"), cone.relevantVariables());
+    }
+
+    @Test
+    void testDeadlockKeepsEverything() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var sliced = ConeOfInfluence.slice(soup, ConeOfInfluence.observedNames("τ[true]* ⋅ τ [deadlock]")).soup();
+        assertEquals(4, sliced.variables.size());
+        assertEquals(4, sliced.pieces.size());
+    }
+
+    @Test
+    void testObservedNames() {
+        assertEquals(Set.of("p", "a", "b"), ConeOfInfluence.observedNames("p=! !|a==2 && b'==2|"));
+        assertEquals(Set.of("a", "b"), ConeOfInfluence.observedNames("τ[true]* ⋅ τ[a == 2 ∧ b == 2]").stream()
+                .filter(name -> !name.equals("true")).collect(Collectors.toSet()));
+    }
+}
@@ -0,0 +1,120 @@
+package soup.optimization;
+
+import org.junit.jupiter.api.Test;
+import soup.semantics.base.SoupSemantics;
+import soup.syntax.Reader;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.expressions.Reference;
+import soup.syntax.model.expressions.binary.BinaryExpression;
+import soup.syntax.model.statements.Skip;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConstantFoldingTest {
+
+    static String fold(String soup, String guard) throws Exception {
+        var folded = ConstantFolding.optimize(Reader.readSoup(soup + " p1: [" + guard + "] / skip")).soup();
+        return folded.pieces.getFirst().guard.toString();
+    }
+
+    static String expression(String text) throws Exception {
+        return Reader.readExpression(text).toString();
+    }
+
+    /**
+     * The reachable states of a soup, as maps from variable names to values.
+     */
+    static Set<Map<String, Object>> reachable(Soup soup) {
+        var semantics = new SoupSemantics(soup).pureSemantics();
+        var known = new HashSet<Map<String, Object>>();
+        var frontier = new ArrayDeque<>(semantics.initial());
+        while (!frontier.isEmpty()) {
+            var state = frontier.pop();
+            var values = new HashMap<String, Object>();
+            for (var variable : soup.variables) {
+                values.put(variable.name, state.lookup(variable.name));
+            }
+            if (!known.add(values)) continue;
+            for (var action : semantics.actions(state)) {
+                frontier.addAll(semantics.execute(action, state));
+            }
+        }
+        return known;
+    }
+
+    @Test
+    void testFoldsLiterals() throws Exception {
+        var variables = "var x = 0; d = 0.5; b = false; z = 0;";
+        assertEquals(expression("(x == 1)"), fold(variables, "(true && x == 1) || false"));
+        assertEquals(expression("x < 7"), fold(variables, "x < 1 + 2 * 3"));
+        assertEquals(expression("d > 2.5"), fold(variables, "d > (1 + 1.5)"));
+        assertEquals(expression("b"), fold(variables, "!!b"));
+        assertEquals(expression("true"), fold(variables, "b || !false"));
+        assertEquals(expression("x == 2"), fold(variables, "x == (false ? 1 : 2)"));
+        assertEquals(expression("false"), fold(variables, "true => false"));
+    }
+
+    @Test
+    void testSimplifiesIdentities() throws Exception {
+        var variables = "var x = 0; d = 0.5; b = false; z = 0;";
+        assertEquals(expression("x > 0"), fold(variables, "x + 0 > 0"));
+        assertEquals(expression("x > 0"), fold(variables, "1 * x > 0"));
+        assertEquals(expression("true"), fold(variables, "x * 0 == 0"));
+        assertEquals(expression("d > 0.0"), fold(variables, "d - 0.0 > 0.0"));
+        assertEquals(expression("b"), fold(variables, "b <=> true"));
+        assertEquals(expression("b"), fold(variables, "b xor false"));
+    }
+
+    @Test
+    void testKeepsOperationsThatMatter() throws Exception {
+        var variables = "var x = 0; d = 0.5; b = false; z = 0;";
+        // -0.0 + 0 is 0.0
+        assertEquals(expression("d + 0 > 0.0"), fold(variables, "d + 0 > 0.0"));
+        // the division by zero must still throw
+        assertEquals(expression("false && x / z == 1"), fold(variables, "false && x / z == 1"));
+        assertEquals(expression("x / 0 == 1"), fold(variables, "x / 0 == 1"));
+    }
+
+    @Test
+    void testSimplifiesStatements() throws Exception {
+        var soup = Reader.readSoup("var x = 0; y = 0; p1: / skip; if true then x = 1 else x = 2; skip | p2: / if x > 0 then skip else skip");
+        var optimized = ConstantFolding.optimize(soup);
+        assertEquals(Reader.readStatement("x = 1").toString(), optimized.soup().pieces.getFirst().effect.toString());
+        assertSame(Skip.INSTANCE, optimized.soup().pieces.getLast().effect);
+        assertEquals(NodeCount.of(soup) - NodeCount.of(optimized.soup()), optimized.eliminatedNodes());
+        assertTrue(optimized.eliminatedNodes() > 0);
+    }
+
+    @Test
+    void testPreservesTheStateSpace() throws Exception {
+        var soup = Reader.readSoup("""
+                var x = 0; y = 0.0; f = false;
+                inc: [(true && x < 2 + 3) || false] / x = x + 0 + 1; y = y < 0.0 ? -x / 2.0 : x / (1 + 1.0)
+                | toggle: [!f || x % 2 == 0 * x] / f = !!(!f); if f && true then y = -y * 1.0 else skip
+                | reset: [x == 5 && y > 1.0 && !false] / x = 0 * x; y = 0.0 - 0.0
+                """);
+        var optimized = ConstantFolding.optimize(soup);
+        assertTrue(optimized.eliminatedNodes() > 10);
+        assertEquals(reachable(soup), reachable(optimized.soup()));
+    }
+
+    @Test
+    void testLeavesTheInputUntouched() throws Exception {
+        var text = "var x = 0; p1: [true && x < 1 + 1] / x = x + 0";
+        var soup = Reader.readSoup(text);
+        ConstantFolding.optimize(soup);
+        assertEquals(Reader.readSoup(text).toString(), soup.toString());
+    }
+
+    @Test
+    void testLinkedSoup() throws Exception {
+        var soup = Reader.link(Reader.readSoup("var x = 0; p1: [true && x < 1 + 1] / x = x + 1"));
+        var folded = ConstantFolding.optimize(soup).soup();
+        var guard = folded.pieces.getFirst().guard;
+        assertEquals(expression("x < 2"), guard.toString());
+        var reference = (Reference<?>) ((BinaryExpression) guard).left;
+        assertSame(folded.variables.getFirst(), reference.declaration);
+    }
+}
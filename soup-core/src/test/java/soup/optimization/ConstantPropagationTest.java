@@ -0,0 +1,68 @@
+package soup.optimization;
+
+import org.junit.jupiter.api.Test;
+import soup.semantics.base.SoupSemantics;
+import soup.syntax.Reader;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConstantPropagationTest {
+    static final String MODEL = """
+            var N = 3; K = 2.5; on = true; LIMIT = N * 2; x = 0; d = 0.0;
+            inc: [on && x < N] / x = x + 1; d = d + K
+            | reset: [x == LIMIT - N || !on] / x = 0; d = 0.0
+            """;
+
+    @Test
+    void testFindsTheConstants() throws Exception {
+        var propagation = new ConstantPropagation(Reader.readSoup(MODEL));
+        assertEquals(Map.of("N", 3, "K", 2.5, "on", true, "LIMIT", 6), propagation.constants());
+    }
+
+    @Test
+    void testSubstitutesAndDropsTheConstants() throws Exception {
+        var optimized = ConstantPropagation.optimize(Reader.readSoup(MODEL));
+        var soup = optimized.soup();
+        assertEquals(2, soup.variables.size());
+        assertEquals("x", soup.variables.get(0).name);
+        assertEquals("d", soup.variables.get(1).name);
+        assertEquals(Reader.readExpression("x < 3").toString(), soup.pieces.get(0).guard.toString());
+        assertEquals(Reader.readExpression("x == 3").toString(), soup.pieces.get(1).guard.toString());
+        assertEquals(Reader.readStatement("x = x + 1; d = d + 2.5").toString(), soup.pieces.get(0).effect.toString());
+        assertTrue(optimized.eliminatedNodes() > 0);
+        assertEquals(2, new SoupSemantics(soup).layout().size());
+    }
+
+    @Test
+    void testPreservesTheStateSpace() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var optimized = ConstantPropagation.optimize(soup).soup();
+        var original = ConstantFoldingTest.reachable(soup).stream()
+                .map(state -> {
+                    var kept = new HashMap<>(state);
+                    kept.keySet().retainAll(Set.of("x", "d"));
+                    return kept;
+                })
+                .collect(Collectors.toSet());
+        assertEquals(original, ConstantFoldingTest.reachable(optimized));
+    }
+
+    @Test
+    void testKeepsAssignedAndPrimedVariables() throws Exception {
+        var soup = Reader.readSoup("var a = 1; b = 2; c = 3; p1: [a' == 1] / b = c");
+        var propagation = new ConstantPropagation(soup);
+        assertEquals(Map.of("c", 3), propagation.constants());
+    }
+
+    @Test
+    void testRewritesProperties() throws Exception {
+        var propagation = new ConstantPropagation(Reader.readSoup(MODEL));
+        assertEquals(Reader.readExpression("x == 3").toString(),
+                propagation.fold(Reader.readExpression("x == N && on")).toString());
+    }
+}
@@ -0,0 +1,136 @@
+package soup.semantics;
+
+import org.junit.jupiter.api.Test;
+import soup.analysis.TypeInference;
+import soup.semantics.base.*;
+import soup.semantics.compiled.BytecodeCompiler;
+import soup.semantics.compiled.ClassTooLargeException;
+import soup.syntax.Reader;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.expressions.Type;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential tests of the generated bytecode against the visitor interpreter {@link ExpressionSemantics}, the
+ * reference semantics, and against the primitive interpreter.
+ */
+public class BytecodeCompilerTest {
+
+    @Test
+    void testGuardsMatchInterpreter() throws Exception {
+        var types = new TypeInference(Reader.readSoup(PrimitiveExpressionSemanticsTest.MODEL));
+        var model = new StringBuilder(PrimitiveExpressionSemanticsTest.MODEL);
+        var index = 0;
+        for (var text : PrimitiveExpressionSemanticsTest.EXPRESSIONS) {
+            var type = types.typeOf(Reader.readExpression(text));
+            var guard = type == Type.BOOLEAN ? text : "(" + text + ") > 1";
+            model.append(" | g").append(index++).append(": [").append(guard).append("] / skip");
+        }
+        var soup = Reader.readSoup(model.toString());
+        var reference = new SoupSemantics(soup, new ExpressionSemantics());
+        var interpreted = new SoupSemantics(soup, ExecutionMode.PRIMITIVE);
+        var compiled = new SoupSemantics(soup, ExecutionMode.BYTECODE);
+        var states = PrimitiveExpressionSemanticsTest.reachable(reference);
+        assertEquals(2, states.size());
+        assertEquals(states, PrimitiveExpressionSemanticsTest.reachable(compiled));
+        for (var state : states) {
+            assertEquals(reference.actions(state), compiled.actions(state));
+            assertEquals(interpreted.actions(state), compiled.actions(state));
+        }
+    }
+
+    @Test
+    void testEffects() throws Exception {
+        var soup = Reader.readSoup("var x = 1; d = 0.5; f = false; s: / x = x * 3; if x > 2 then d = d + x else f = true");
+        var semantics = new SoupSemantics(soup, ExecutionMode.BYTECODE);
+        var next = semantics.pureSemantics().execute(soup.pieces.getFirst(), semantics.initial().getFirst()).getFirst();
+        assertEquals(3, next.lookup("x"));
+        assertEquals(3.5, next.lookup("d"));
+        assertEquals(false, next.lookup("f"));
+    }
+
+    @Test
+    void testErrorsMatchInterpreter() throws Exception {
+        var soup = Reader.readSoup("var i = 3; z = 0; m = 1; div: / i = i / z | mix: [m < 2] / m = m == 1 ? 2.5 : 1");
+        for (var mode : ExecutionMode.values()) {
+            var semantics = new SoupSemantics(soup, mode).pureSemantics();
+            var initial = semantics.initial().getFirst();
+            assertThrows(ArithmeticException.class, () -> semantics.execute(soup.pieces.getFirst(), initial), mode.name());
+            var mixed = semantics.execute(soup.pieces.getLast(), initial).getFirst();
+            assertEquals(2.5, mixed.lookup("m"), mode.name());
+        }
+        var reference = new SoupSemantics(soup, new ExpressionSemantics()).pureSemantics();
+        var initial = reference.initial().getFirst();
+        assertThrows(ArithmeticException.class, () -> reference.execute(soup.pieces.getFirst(), initial));
+        assertEquals(2.5, reference.execute(soup.pieces.getLast(), initial).getFirst().lookup("m"));
+    }
+
+    @Test
+    void testModesReachTheSameStates() throws Exception {
+        var soup = Reader.readSoup("""
+                var x = 0; y = 0.0; f = false;
+                inc: [x < 5] / x = x + 1; y = y < 0.0 ? -x / 2.0 : x / 2.0
+                | toggle: [!f || x % 2 == 0] / f = !f; if f then y = -y else skip
+                | reset: [x == 5 && y > 1.0] / x = 0; y = 0.0
+                """);
+        var interpreter = new SoupSemantics(soup, ExecutionMode.PRIMITIVE);
+        var bytecode = new SoupSemantics(soup, ExecutionMode.BYTECODE);
+        var reference = new SoupSemantics(soup, new ExpressionSemantics());
+        var interpreted = PrimitiveExpressionSemanticsTest.reachable(interpreter);
+        var compiled = PrimitiveExpressionSemanticsTest.reachable(bytecode);
+        assertEquals(PrimitiveExpressionSemanticsTest.reachable(reference), compiled);
+        assertEquals(interpreted, compiled);
+        for (var state : compiled) {
+            assertEquals(reference.actions(state), bytecode.actions(state));
+            assertEquals(interpreter.actions(state), bytecode.actions(state));
+        }
+    }
+
+    static Soup manyPieces(int pieces) throws Exception {
+        var model = new StringBuilder("var x = 0; d = 0.5; ");
+        for (int i = 0; i < pieces; i++) {
+            if (i > 0) model.append(" | ");
+            model.append("a").append(i).append(": [x == ").append(i % 10).append(" && d < ").append(i).append(".5] / ")
+                    .append("x = (x + ").append(i).append(") % 10; d = d + 1.0 > 9.5 ? 0.5 : d + 1.0");
+        }
+        return Reader.readSoup(model.toString());
+    }
+
+    @Test
+    void testLargeSoup() throws Exception {
+        // thousands of pieces, beyond the 64KB of code a single enabled-set method could hold
+        var soup = manyPieces(4_000);
+        var interpreter = new SoupSemantics(soup, ExecutionMode.PRIMITIVE);
+        var primitive = new PrimitiveExpressionSemantics(new TypeInference(soup));
+        var code = new BytecodeCompiler(
+                StateLayout.of(soup), primitive, new PrimitiveStatementSemantics(new ExpressionSemantics(), primitive))
+                .compile(soup);
+        var enabled = new int[soup.pieces.size()];
+        for (var state : PrimitiveExpressionSemanticsTest.reachable(interpreter)) {
+            var actions = interpreter.actions(state);
+            assertEquals(actions.size(), code.enabled(state, enabled));
+            for (int i = 0; i < actions.size(); i++) {
+                assertSame(actions.get(i), soup.pieces.get(enabled[i]));
+                assertTrue(code.guard(enabled[i], state));
+            }
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> code.guard(-1, interpreter.initial().getFirst()));
+        assertThrows(IndexOutOfBoundsException.class, () -> code.effect(4_000, interpreter.initial().getFirst()));
+    }
+
+    @Test
+    void testFallsBackToClosures() throws Exception {
+        // too many methods for the constant pool of one class
+        var soup = manyPieces(12_000);
+        var interpreter = new SoupSemantics(soup, ExecutionMode.PRIMITIVE);
+        var primitive = new PrimitiveExpressionSemantics(new TypeInference(soup));
+        var compiler = new BytecodeCompiler(
+                StateLayout.of(soup), primitive, new PrimitiveStatementSemantics(new ExpressionSemantics(), primitive));
+        assertThrows(ClassTooLargeException.class, () -> compiler.compile(soup));
+        var bytecode = new SoupSemantics(soup, ExecutionMode.BYTECODE);
+        var initial = interpreter.initial().getFirst();
+        assertEquals(interpreter.actions(initial), bytecode.actions(initial));
+        assertEquals(PrimitiveExpressionSemanticsTest.reachable(interpreter), PrimitiveExpressionSemanticsTest.reachable(bytecode));
+    }
+}
@@ -0,0 +1,72 @@
+package soup.semantics;
+
+import org.junit.jupiter.api.Test;
+import soup.analysis.TypeInference;
+import soup.semantics.base.*;
+import soup.semantics.compiled.ClosureCompiler;
+import soup.syntax.Reader;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClosureCompilerTest {
+
+    static ClosureCompiler compiler(SoupSemantics semantics, TypeInference types) {
+        var primitive = new PrimitiveExpressionSemantics(types);
+        return new ClosureCompiler(semantics.layout(), primitive, new StatementSemantics(new ExpressionSemantics()));
+    }
+
+    @Test
+    void testMatchesBoxedSemantics() throws Exception {
+        var soup = Reader.readSoup(PrimitiveExpressionSemanticsTest.MODEL);
+        var semantics = new SoupSemantics(soup);
+        var compiler = compiler(semantics, new TypeInference(soup));
+        var boxed = new ExpressionSemantics();
+        var environment = semantics.initial().getFirst();
+        var flipped = semantics.pureSemantics().execute(soup.pieces.getFirst(), environment).getFirst();
+        for (var env : List.of(environment, flipped, new Environment(soup, new java.util.HashMap<>(environment.environment)))) {
+            for (var text : PrimitiveExpressionSemanticsTest.EXPRESSIONS) {
+                var expression = Reader.readExpression(text);
+                var expected = boxed.evaluate(expression, env);
+                assertEquals(SlotValues.encode(expected), compiler.compileWord(expression).applyAsLong(env), text);
+            }
+        }
+    }
+
+    @Test
+    void testErrorsMatchBoxedSemantics() throws Exception {
+        var soup = Reader.readSoup(PrimitiveExpressionSemanticsTest.MODEL);
+        var semantics = new SoupSemantics(soup);
+        var compiler = compiler(semantics, new TypeInference(soup));
+        var environment = semantics.initial().getFirst();
+        assertThrows(ArithmeticException.class, () -> compiler.compileWord(Reader.readExpression("i / z")).applyAsLong(environment));
+        assertThrows(UnsupportedOperationException.class, () -> compiler.compileWord(Reader.readExpression("b + 1")).applyAsLong(environment));
+        assertThrows(UnsupportedOperationException.class, () -> compiler.compileBoolean(Reader.readExpression("i")).test(environment));
+        assertThrows(RuntimeException.class, () -> compiler.compileWord(Reader.readExpression("unknown + 1")).applyAsLong(environment));
+    }
+
+    @Test
+    void testEffects() throws Exception {
+        var soup = Reader.readSoup("var x = 1; d = 0.5; f = false; s: / x = x * 3; if x > 2 then d = d + x else f = true");
+        var semantics = new SoupSemantics(soup, ExecutionMode.CLOSURES);
+        var next = semantics.pureSemantics().execute(soup.pieces.getFirst(), semantics.initial().getFirst()).getFirst();
+        assertEquals(3, next.lookup("x"));
+        assertEquals(3.5, next.lookup("d"));
+        assertEquals(false, next.lookup("f"));
+    }
+
+    @Test
+    void testModesReachTheSameStates() throws Exception {
+        var soup = Reader.readSoup("""
+                var x = 0; y = 0.0; f = false;
+                inc: [x < 5] / x = x + 1; y = y < 0.0 ? -x / 2.0 : x / 2.0
+                | toggle: [!f || x % 2 == 0] / f = !f; if f then y = -y else skip
+                | reset: [x == 5 && y > 1.0] / x = 0; y = 0.0
+                """);
+        var interpreted = PrimitiveExpressionSemanticsTest.reachable(new SoupSemantics(soup, ExecutionMode.PRIMITIVE));
+        var compiled = PrimitiveExpressionSemanticsTest.reachable(new SoupSemantics(soup, ExecutionMode.CLOSURES));
+        assertEquals(interpreted, compiled);
+        assertEquals(interpreted, PrimitiveExpressionSemanticsTest.reachable(new SoupSemantics(soup, new ExpressionSemantics())));
+    }
+}
@@ -0,0 +1,115 @@
+package soup.semantics;
+
+import org.junit.jupiter.api.Test;
+import soup.optimization.LiveVariables;
+import soup.semantics.base.Environment;
+import soup.semantics.base.ExecutionMode;
+import soup.semantics.base.SoupSemantics;
+import soup.syntax.Reader;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeadVariableResetTest {
+    static final String MODEL = """
+            var pc = 0; t = 0; r = 0;
+            pick1: [pc == 0] / t = 1; pc = 1
+            | pick2: [pc == 0] / t = 2; pc = 1
+            | use: [pc == 1] / r = (r + t) % 3; pc = 2
+            | back: [pc == 2] / pc = 0
+            """;
+
+    @Test
+    void testLiveVariables() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var liveness = new LiveVariables(soup);
+        var pick1 = soup.pieces.get(0);
+        var use = soup.pieces.get(2);
+        var back = soup.pieces.get(3);
+        assertEquals(Set.of(), liveness.deadAfter(pick1));
+        assertEquals(Set.of("t"), liveness.deadAfter(use));
+        assertEquals(Set.of("t"), liveness.deadAfter(back));
+        assertTrue(liveness.mayFollow(use, back));
+        assertFalse(liveness.mayFollow(use, pick1));
+        assertFalse(liveness.mayFollow(use, use));
+    }
+
+    @Test
+    void testObservedVariablesStayLive() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var liveness = new LiveVariables(soup, Set.of("t"));
+        for (var piece : soup.pieces) {
+            assertEquals(Set.of(), liveness.deadAfter(piece));
+        }
+    }
+
+    @Test
+    void testUnsafeGuardsKeepTheirVariables() throws Exception {
+        var soup = Reader.readSoup("""
+                var pc = 0; d = 1;
+                set: [pc == 0] / d = 0; pc = 1
+                | div: [pc == 2 && 10 / d > 1] / pc = 0
+                | loop: [pc == 1] / pc = 1
+                """);
+        var liveness = new LiveVariables(soup);
+        assertTrue(liveness.liveAfter(soup.pieces.getFirst()).contains("d"));
+    }
+
+    @Test
+    void testMergesStates() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        for (var mode : List.of(ExecutionMode.PRIMITIVE, ExecutionMode.CLOSURES)) {
+            var full = PrimitiveExpressionSemanticsTest.reachable(new SoupSemantics(soup, mode));
+            var semantics = new SoupSemantics(soup, mode).resetDeadVariables(Set.of());
+            var reduced = PrimitiveExpressionSemanticsTest.reachable(semantics);
+            assertEquals(19, full.size());
+            assertEquals(12, reduced.size());
+            assertEquals(project(full), project(reduced));
+            var reset = semantics.deadVariableReset();
+            assertTrue(reset.resets() > 0);
+            assertTrue(reset.resets() <= reset.rewritten());
+        }
+    }
+
+    @Test
+    void testCountsMergedStates() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var semantics = new SoupSemantics(soup).resetDeadVariables(Set.of());
+        var relation = semantics.pureSemantics();
+        var reset = semantics.deadVariableReset();
+        var known = new HashSet<>(relation.initial());
+        var frontier = new ArrayDeque<>(known);
+        while (!frontier.isEmpty()) {
+            var state = frontier.pop();
+            for (var action : relation.actions(state)) {
+                for (var successor : relation.execute(action, state)) {
+                    if (reset.visited(successor, known.add(successor))) frontier.push(successor);
+                }
+            }
+        }
+        assertEquals(12, known.size());
+        assertTrue(reset.merged() > 0);
+        assertTrue(reset.merged() <= reset.resets());
+    }
+
+    @Test
+    void testObservedVariablesAreNotReset() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var semantics = new SoupSemantics(soup).resetDeadVariables(Set.of("t"));
+        assertEquals(19, PrimitiveExpressionSemanticsTest.reachable(semantics).size());
+        assertEquals(0, semantics.deadVariableReset().rewritten());
+        assertEquals(0, semantics.deadVariableReset().resets());
+    }
+
+    static Set<Map<String, Object>> project(Set<Environment> states) {
+        return states.stream()
+                .map(state -> Map.of("pc", state.lookup("pc"), "r", state.lookup("r")))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,93 @@
+package soup.semantics;
+
+import org.junit.jupiter.api.Test;
+import soup.semantics.base.Environment;
+import soup.semantics.base.ExecutionMode;
+import soup.semantics.base.ExpressionSemantics;
+import soup.semantics.base.SoupSemantics;
+import soup.syntax.Reader;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscriminatorIndexTest {
+    static final String MODEL = """
+            var pc = 0; x = 0; done = false;
+            up: [pc == 0 && x < 3] / x = x + 1
+            | toDown: [pc == 0 && x == 3] / pc = 1
+            | down: [1 == pc && x > 0] / x = x - 1
+            | toIdle: [(pc == 1) && x == 0] / pc = 2
+            | idle: [pc == 2 && !done] / pc = 0; done = true
+            | any: [x == 2] / skip
+            """;
+
+    @Test
+    void testIndex() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var semantics = new SoupSemantics(soup);
+        var index = semantics.discriminatorIndex();
+        assertEquals("pc", index.variable());
+        assertEquals(5, index.indexedCount());
+        var state = semantics.initial().getFirst();
+        // up, toDown and the piece not testing pc
+        assertArrayEquals(new int[] {0, 1, 5}, index.candidates(state));
+        state.update("pc", 2);
+        assertArrayEquals(new int[] {4, 5}, index.candidates(state));
+        state.update("pc", 7);
+        assertArrayEquals(new int[] {5}, index.candidates(state));
+    }
+
+    @Test
+    void testSparseValues() throws Exception {
+        // required values too far apart for a dense table
+        var soup = Reader.readSoup(
+                "var pc = 0; a: [pc == 0] / pc = 100000 | b: [pc == 100000] / pc = 200000 | c: [pc == 200000] / pc = 0");
+        var semantics = new SoupSemantics(soup);
+        var index = semantics.discriminatorIndex();
+        assertEquals(3, index.indexedCount());
+        var state = semantics.initial().getFirst();
+        assertArrayEquals(new int[] {0}, index.candidates(state));
+        state.update("pc", 100000);
+        assertArrayEquals(new int[] {1}, index.candidates(state));
+        state.update("pc", 200000);
+        assertArrayEquals(new int[] {2}, index.candidates(state));
+        state.update("pc", 7);
+        assertArrayEquals(new int[] {}, index.candidates(state));
+    }
+
+    @Test
+    void testSameEnabledPieces() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var reference = new SoupSemantics(soup, new ExpressionSemantics());
+        for (var mode : ExecutionMode.values()) {
+            var semantics = new SoupSemantics(soup, mode).pureSemantics();
+            var frontier = new ArrayDeque<>(semantics.initial());
+            var known = new HashSet<Environment>();
+            while (!frontier.isEmpty()) {
+                var state = frontier.pop();
+                if (!known.add(state)) continue;
+                var actions = semantics.actions(state);
+                assertEquals(reference.actions(state), actions);
+                for (var action : actions) {
+                    frontier.addAll(semantics.execute(action, state));
+                }
+            }
+            assertEquals(18, known.size());
+        }
+    }
+
+    @Test
+    void testNoDiscriminator() throws Exception {
+        // a single test, a double variable and a guard that may fail
+        assertNull(new SoupSemantics(Reader.readSoup("var pc = 0; a: [pc == 0] / pc = 1 | b: [pc < 1] / skip"))
+                .discriminatorIndex());
+        assertNull(new SoupSemantics(Reader.readSoup("var d = 0.0; a: [d == 0.0] / d = 1.0 | b: [d == 1.0] / d = 0.0"))
+                .discriminatorIndex());
+        var semantics = new SoupSemantics(Reader.readSoup(
+                "var pc = 0; z = 0; a: [pc == 0] / pc = 1 | b: [pc == 1] / pc = 0 | c: [pc == 2 && 1 / z > 0] / skip"));
+        assertEquals(2, semantics.discriminatorIndex().indexedCount());
+        assertThrows(RuntimeException.class, () -> semantics.actions(semantics.initial().getFirst()));
+    }
+}
@@ -2,14 +2,16 @@ package soup.semantics;
 
 import org.junit.jupiter.api.Test;
 import soup.semantics.base.Environment;
+import soup.semantics.base.SoupSemantics;
 import soup.semantics.diagnosis.StepEnvironment;
+import soup.syntax.Reader;
 import soup.syntax.model.expressions.literals.BooleanLiteral;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class EnvironmentTest {
 
@@ -46,4 +48,141 @@ public class EnvironmentTest {
         se2.environment = Map.of("y", 42);
         assertNotEquals(se1, se2);
     }
+
+    @Test
+    void testSlotBackedMatchesMapBacked() throws Exception {
+        var soup = Reader.readSoup("var x = 23; y = true; z = 2.5");
+        var slotEnv = new SoupSemantics(soup).initial().getFirst();
+        var mapEnv = new Environment(soup, Map.of("x", 23, "y", true, "z", 2.5));
+
+        assertTrue(slotEnv.isSlotBacked());
+        assertEquals(slotEnv, mapEnv);
+        assertEquals(mapEnv, slotEnv);
+        assertEquals(mapEnv.hashCode(), slotEnv.hashCode());
+        assertEquals(mapEnv.environment, slotEnv.environment);
+    }
+
+    @Test
+    void testSlotBackedCopy() throws Exception {
+        var soup = Reader.link(Reader.readSoup("var x = 23; y = 42"));
+        var e1 = new SoupSemantics(soup).initial().getFirst();
+        var e2 = new Environment(e1);
+        assertEquals(e1, e2);
+        assertEquals(e1.hashCode(), e2.hashCode());
+
+        e2.update("y", 43);
+        assertNotEquals(e1, e2);
+        assertEquals(42, e1.lookup("y"));
+        assertEquals(43, e2.lookup("y"));
+        assertThrows(RuntimeException.class, () -> e2.update("z", 1));
+        assertThrows(RuntimeException.class, () -> e2.define("x", 1));
+    }
+
+    @Test
+    void testSlotBackedDefineUnknown() throws Exception {
+        var soup = Reader.readSoup("var x = 23");
+        var env = new SoupSemantics(soup).initial().getFirst();
+        env.define("y", 42);
+        assertFalse(env.isSlotBacked());
+        assertEquals(23, env.lookup("x"));
+        assertEquals(42, env.lookup("y"));
+    }
+
+    @Test
+    void testPackedState() throws Exception {
+        var soup = Reader.readSoup("""
+                var a = 0; f = false; g = true; h = false;
+                p1: [a < 3] / a = a < 2 ? a + 1 : 3; f = !f
+                """);
+        var semantics = new SoupSemantics(soup);
+        assertEquals(1, semantics.layout().wordCount());
+
+        var e0 = semantics.initial().getFirst();
+        var e1 = new Environment(e0);
+        semantics.execute(semantics.actions(e1).getFirst(), e1);
+        assertEquals(1, e1.lookup("a"));
+        assertEquals(true, e1.lookup("f"));
+        assertEquals(true, e1.lookup("g"));
+        assertEquals(1, e1.packed().length);
+        assertNotEquals(e0, e1);
+
+        //a value outside the inferred range falls back to a map
+        e1.update("g", 42);
+        assertFalse(e1.isSlotBacked());
+        assertEquals(42, e1.lookup("g"));
+        assertEquals(1, e1.lookup("a"));
+        assertEquals(true, e1.lookup("f"));
+    }
+
+    @Test
+    void testIncrementalHash() throws Exception {
+        var soup = Reader.readSoup("var x = 0; y = false; z = 0.5");
+        var env = new SoupSemantics(soup).initial().getFirst();
+        var initialHash = env.hash64();
+
+        env.update("x", 3);
+        env.update("y", true);
+        env.update("z", 2.5);
+        assertEquals(new Environment(soup, new HashMap<>(env.environment)).hash64(), env.hash64());
+
+        env.update("x", 0);
+        env.update("y", false);
+        env.update("z", 0.5);
+        assertEquals(initialHash, env.hash64());
+    }
+
+    @Test
+    void testCollidingNames() throws Exception {
+        // "Aa" and "BB" have the same String.hashCode()
+        var soup = Reader.readSoup("var Aa = 0; BB = 0");
+        var semantics = new SoupSemantics(soup);
+        var e1 = semantics.initial().getFirst();
+        var e2 = new Environment(e1);
+        e1.update("Aa", 1);
+        e1.update("BB", 2);
+        e2.update("Aa", 2);
+        e2.update("BB", 1);
+        assertNotEquals(e1.hash64(), e2.hash64());
+        assertNotEquals(
+                new Environment(soup, Map.of("Aa", 1, "BB", 2)).hash64(),
+                new Environment(soup, Map.of("Aa", 2, "BB", 1)).hash64());
+    }
+
+    @Test
+    void testModelIdentity() throws Exception {
+        var e1 = new Environment(Reader.readSoup("var x = 1"), Map.of("x", 1));
+        var e2 = new Environment(Reader.readSoup("var x = 1"), Map.of("x", 1));
+        assertNotEquals(e1, e2);
+        e2.model = e1.model;
+        assertEquals(e1, e2);
+        assertEquals(e1.hashCode(), e2.hashCode());
+    }
+
+    @Test
+    void testCopyOnWriteChunks() throws Exception {
+        var declarations = new StringBuilder("var ");
+        for (int i = 0; i < 20; i++) {
+            declarations.append("d").append(i).append(" = ").append(i).append(".5; ");
+        }
+        var soup = Reader.readSoup(declarations.toString());
+        var parent = new SoupSemantics(soup).initial().getFirst();
+        assertEquals(20, parent.layout().wordCount());
+
+        var child = new Environment(parent);
+        assertEquals(parent, child);
+        child.update("d0", 42.0);
+        parent.update("d19", 42.0);
+
+        assertEquals(0.5, parent.lookup("d0"));
+        assertEquals(42.0, child.lookup("d0"));
+        assertEquals(19.5, child.lookup("d19"));
+        assertEquals(42.0, parent.lookup("d19"));
+        assertEquals(20, child.packed().length);
+        assertEquals(42.0, Double.longBitsToDouble(child.packedWord(0)));
+
+        child.update("d0", 0.5);
+        child.update("d19", 42.0);
+        assertEquals(parent, child);
+        assertEquals(parent.hashCode(), child.hashCode());
+    }
 }
@@ -0,0 +1,139 @@
+package soup.semantics;
+
+import org.junit.jupiter.api.Test;
+import soup.optimization.ConstantFolding;
+import soup.semantics.base.Environment;
+import soup.semantics.base.ExecutionMode;
+import soup.semantics.base.ExpressionSemantics;
+import soup.semantics.base.SoupSemantics;
+import soup.semantics.compiled.GuardDiagram;
+import soup.syntax.Reader;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GuardDiagramTest {
+    static final String MODEL = """
+            var pc = 0; x = 0;
+            up: [pc == 0 && x < 3] / x = x + 1
+            | toDown: [pc == 0 && x == 3] / pc = 1
+            | down: [pc == 1 && x > 0] / x = x - 1
+            | toIdle: [(pc == 1) && x == 0] / pc = 2
+            | idle: [pc == 2] / pc = 0
+            | any: [true] / skip
+            """;
+
+    @Test
+    void testSharedAtoms() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var evaluations = new AtomicInteger();
+        var evaluator = new ExpressionSemantics();
+        var diagram = new GuardDiagram(soup, atom -> configuration -> {
+            evaluations.incrementAndGet();
+            return (boolean) evaluator.evaluate(atom, configuration);
+        }, new ConstantFolding(soup)::cannotFail);
+        assertEquals(7, diagram.atomCount());
+        assertTrue(diagram.nodeCount() > 0);
+
+        var semantics = new SoupSemantics(soup);
+        var state = semantics.initial().getFirst();
+        var enabled = new long[1];
+        diagram.enabled(state, enabled);
+        // up and any
+        assertEquals(0b100001L, enabled[0]);
+        // pc == 1 is false, so x > 0 and x == 0 are skipped
+        assertEquals(5, evaluations.get());
+    }
+
+    @Test
+    void testSameEnabledPieces() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var reference = new SoupSemantics(soup, new ExpressionSemantics());
+        for (var mode : List.of(ExecutionMode.PRIMITIVE, ExecutionMode.CLOSURES, ExecutionMode.BYTECODE)) {
+            var semantics = new SoupSemantics(soup, mode).useGuardDiagram().pureSemantics();
+            var frontier = new ArrayDeque<>(semantics.initial());
+            var known = new HashSet<Environment>();
+            while (!frontier.isEmpty()) {
+                var state = frontier.pop();
+                if (!known.add(state)) continue;
+                var actions = semantics.actions(new Environment(state));
+                assertEquals(reference.actions(state), actions);
+                for (var action : actions) {
+                    frontier.addAll(semantics.execute(action, state));
+                }
+            }
+            assertEquals(9, known.size());
+        }
+    }
+
+    @Test
+    void testIncrementalUpdate() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var evaluations = new AtomicInteger();
+        var evaluator = new ExpressionSemantics();
+        var diagram = new GuardDiagram(soup, atom -> configuration -> {
+            evaluations.incrementAndGet();
+            return (boolean) evaluator.evaluate(atom, configuration);
+        }, new ConstantFolding(soup)::cannotFail);
+        var semantics = new SoupSemantics(soup);
+        var state = semantics.initial().getFirst();
+        state.update("x", 3);
+        // up and any enabled before x changed
+        var enabled = new long[] {0b100001L};
+        diagram.update(state, enabled, new int[] {0, 1, 2, 3});
+        // toDown and any
+        assertEquals(0b100010L, enabled[0]);
+        // pc == 0, x < 3, x == 3 and pc == 1, each once
+        assertEquals(4, evaluations.get());
+    }
+
+    @Test
+    void testIncrementalPathMatches() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var reference = new SoupSemantics(soup, new ExpressionSemantics());
+        var semantics = new SoupSemantics(soup).useGuardDiagram().pureSemantics();
+        var frontier = new ArrayDeque<>(semantics.initial());
+        var known = new HashSet<Environment>();
+        while (!frontier.isEmpty()) {
+            var state = frontier.pop();
+            if (!known.add(state)) continue;
+            // the successors keep the enabled set of their parent, recomputed through the diagram
+            var actions = semantics.actions(state);
+            assertEquals(reference.actions(state), actions);
+            for (var action : actions) {
+                frontier.addAll(semantics.execute(action, new Environment(state)));
+            }
+        }
+        assertEquals(9, known.size());
+    }
+
+    @Test
+    void testLongChains() throws Exception {
+        // one node per piece along the false edges, deeper than a recursive construction could go
+        var model = new StringBuilder("var x = 0; ");
+        for (int i = 0; i < 8_000; i++) {
+            if (i > 0) model.append(" | ");
+            model.append("a").append(i).append(": [x == ").append(i).append("] / x = x + 1");
+        }
+        var soup = Reader.readSoup(model.toString());
+        var semantics = new SoupSemantics(soup).useGuardDiagram();
+        assertEquals(8_000, semantics.guardDiagram().nodeCount());
+        var state = semantics.initial().getFirst();
+        assertEquals(List.of(soup.pieces.getFirst()), semantics.actions(state));
+        var next = semantics.execute(soup.pieces.getFirst(), state).getFirst();
+        assertEquals(List.of(soup.pieces.get(1)), semantics.actions(next));
+    }
+
+    @Test
+    void testFailingAtomsAreEvaluated() throws Exception {
+        var soup = Reader.readSoup("var pc = 0; d = 0; a: [pc == 5 && 10 / d > 1] / pc = 0 | b: [pc == 0] / pc = 1");
+        var semantics = new SoupSemantics(soup).useGuardDiagram();
+        var state = semantics.initial().getFirst();
+        assertThrows(RuntimeException.class, () -> new SoupSemantics(soup).actions(state));
+        assertThrows(RuntimeException.class, () -> semantics.actions(state));
+    }
+}
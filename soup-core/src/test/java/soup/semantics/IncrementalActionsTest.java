@@ -0,0 +1,75 @@
+package soup.semantics;
+
+import org.junit.jupiter.api.Test;
+import soup.analysis.PieceDependencies;
+import soup.semantics.base.Environment;
+import soup.semantics.base.ExecutionMode;
+import soup.semantics.base.ExpressionSemantics;
+import soup.semantics.base.SoupSemantics;
+import soup.syntax.Reader;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalActionsTest {
+    static final String MODEL = """
+            var x = 0; y = 0; f = false;
+            incX: [x < 3] / x = x + 1
+            | incY: [y < 3 && !f] / y = y + 1
+            | flip: [true] / f = !f
+            | both: [x == 3 && y == 3] / x = 0; y = 0
+            """;
+
+    @Test
+    void testDependencies() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var dependencies = new PieceDependencies(soup);
+        assertEquals(Set.of("y", "f"), dependencies.guardReads(1));
+        assertEquals(Set.of(), dependencies.guardReads(2));
+        assertEquals(Set.of("x", "y"), dependencies.effectWrites(3));
+        assertArrayEquals(new int[] {0, 3}, dependencies.affected(List.of("x")));
+        assertArrayEquals(new int[] {1}, dependencies.affected(List.of("f")));
+
+        var semantics = new SoupSemantics(soup);
+        assertArrayEquals(new int[] {1}, semantics.affected(soup.pieces.get(2)));
+        assertArrayEquals(new int[] {0, 1, 3}, semantics.affected(soup.pieces.get(3)));
+    }
+
+    @Test
+    void testSameEnabledSets() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        // a custom expression semantics evaluates every guard on every state
+        var reference = new SoupSemantics(soup, new ExpressionSemantics());
+        for (var mode : ExecutionMode.values()) {
+            var semantics = new SoupSemantics(soup, mode).pureSemantics();
+            var interpreted = reference.pureSemantics();
+            var frontier = new ArrayDeque<>(semantics.initial());
+            var known = new HashSet<Environment>();
+            while (!frontier.isEmpty()) {
+                var state = frontier.pop();
+                if (!known.add(state)) continue;
+                var actions = semantics.actions(state);
+                assertEquals(interpreted.actions(state), actions);
+                for (var action : actions) {
+                    frontier.addAll(semantics.execute(action, state));
+                }
+            }
+            assertEquals(32, known.size());
+        }
+    }
+
+    @Test
+    void testUpdatesDiscardTheEnabledSet() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var semantics = new SoupSemantics(soup);
+        var state = semantics.initial().getFirst();
+        assertEquals(List.of(soup.pieces.get(0), soup.pieces.get(1), soup.pieces.get(2)), semantics.actions(state));
+        state.update("x", 3);
+        state.update("y", 3);
+        assertEquals(List.of(soup.pieces.get(2), soup.pieces.get(3)), semantics.actions(state));
+    }
+}
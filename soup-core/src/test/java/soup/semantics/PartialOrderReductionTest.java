@@ -0,0 +1,123 @@
+package soup.semantics;
+
+import obp3.runtime.sli.SemanticRelation;
+import org.junit.jupiter.api.Test;
+import soup.analysis.Independence;
+import soup.semantics.base.Environment;
+import soup.semantics.base.PartialOrderReduction;
+import soup.semantics.base.SoupSemantics;
+import soup.syntax.Reader;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartialOrderReductionTest {
+    static final String COUNTERS = """
+            var a = 0; b = 0; c = 0;
+            incA: [a < 2] / a = a + 1
+            | incB: [b < 2] / b = b + 1
+            | incC: [c < 2] / c = c + 1
+            """;
+
+    static Set<Environment> reachable(SemanticRelation<AnonymousPiece, Environment> semantics) {
+        var known = new HashSet<Environment>();
+        var frontier = new ArrayDeque<>(semantics.initial());
+        while (!frontier.isEmpty()) {
+            var state = frontier.pop();
+            if (!known.add(state)) continue;
+            for (var action : semantics.actions(state)) {
+                frontier.addAll(semantics.execute(action, state));
+            }
+        }
+        return known;
+    }
+
+    @Test
+    void testIndependence() throws Exception {
+        var soup = Reader.readSoup("var x = 0; y = 0; z = 0; p1: [x < 1] / x = 1 | p2: [y < 1] / y = x | p3: [z < 1] / z = 1");
+        var independence = new Independence(soup);
+        assertFalse(independence.independent(0, 1));
+        assertTrue(independence.independent(0, 2));
+        assertTrue(independence.independent(1, 2));
+        assertArrayEquals(new int[] {0, 1}, independence.dependents(0));
+        assertArrayEquals(new int[] {0}, independence.writers(Set.of("x")));
+    }
+
+    @Test
+    void testReducesIndependentInterleavings() throws Exception {
+        var soup = Reader.readSoup(COUNTERS);
+        assertEquals(27, reachable(new SoupSemantics(soup).pureSemantics()).size());
+        var reduction = new PartialOrderReduction(new SoupSemantics(soup), Set.of("a"));
+        var reduced = reachable(reduction);
+        assertTrue(reduced.size() < 27);
+        assertTrue(reduction.reducedExpansions() > 0);
+        // the deadlock and every value of the observed variable are still reached
+        assertTrue(reduced.stream().anyMatch(state ->
+                state.lookup("a").equals(2) && state.lookup("b").equals(2) && state.lookup("c").equals(2)));
+        assertEquals(Set.of(0, 1, 2), reduced.stream().map(state -> state.lookup("a")).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testVisiblePiecesAreNotReduced() throws Exception {
+        var soup = Reader.readSoup(COUNTERS);
+        var reduction = new PartialOrderReduction(new SoupSemantics(soup), Set.of("a", "b", "c"));
+        assertEquals(27, reachable(reduction).size());
+        assertEquals(0, reduction.reducedExpansions());
+    }
+
+    @Test
+    void testCycleProviso() throws Exception {
+        // without the proviso, t2 alone would be explored forever and x would never change
+        var soup = Reader.readSoup("var x = 0; y = 0; t1: [true] / x = 1 - x | t2: [true] / y = 1 - y");
+        var reduction = new PartialOrderReduction(new SoupSemantics(soup), Set.of("x"));
+        var reduced = reachable(reduction);
+        assertTrue(reduced.stream().anyMatch(state -> state.lookup("x").equals(1)));
+        assertTrue(reduction.fullExpansions() > 0);
+    }
+
+    @Test
+    void testDisabledPiecesPullTheirEnablers() throws Exception {
+        // 'go' is disabled until 'arm' fires: a stubborn set holding 'go' must hold 'arm'
+        var soup = Reader.readSoup("""
+                var armed = false; fired = false; n = 0;
+                arm: [!armed] / armed = true
+                | go: [armed && !fired] / fired = true
+                | count: [n < 2] / n = n + 1
+                """);
+        var reduction = new PartialOrderReduction(new SoupSemantics(soup), Set.of("fired"));
+        var reduced = reachable(reduction);
+        assertTrue(reduced.stream().anyMatch(state -> state.lookup("fired").equals(true)));
+        assertTrue(reduced.stream().anyMatch(state -> state.lookup("fired").equals(true) && state.lookup("n").equals(2)));
+    }
+
+    @Test
+    void testTraversalVisitedSet() throws Exception {
+        var soup = Reader.readSoup("var x = 0; y = 0; t1: [true] / x = 1 - x | t2: [true] / y = 1 - y");
+        // the states are marked as soon as they are generated, as the proviso expects
+        var visited = new HashSet<Environment>();
+        var reduction = new PartialOrderReduction(new SoupSemantics(soup), Set.of("x"), visited::contains);
+        var frontier = new ArrayDeque<Environment>();
+        for (var state : reduction.initial()) {
+            if (visited.add(state)) frontier.push(state);
+        }
+        while (!frontier.isEmpty()) {
+            var state = frontier.pop();
+            var actions = reduction.actions(state);
+            // a second expansion gets the same pieces
+            assertEquals(actions, reduction.actions(state));
+            for (var action : actions) {
+                for (var successor : reduction.execute(action, state)) {
+                    if (visited.add(successor)) frontier.push(successor);
+                }
+            }
+        }
+        assertTrue(visited.stream().anyMatch(state -> state.lookup("x").equals(1)));
+        assertTrue(reduction.reducedExpansions() > 0);
+        assertTrue(reduction.fullExpansions() > 0);
+    }
+}
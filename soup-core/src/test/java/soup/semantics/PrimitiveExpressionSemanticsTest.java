@@ -0,0 +1,98 @@
+package soup.semantics;
+
+import org.junit.jupiter.api.Test;
+import soup.analysis.TypeInference;
+import soup.syntax.model.expressions.Type;
+import soup.semantics.base.*;
+import soup.syntax.Reader;
+import soup.syntax.model.declarations.Soup;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrimitiveExpressionSemanticsTest {
+    static final String MODEL = """
+            var i = 3; j = -2; d = 1.5; b = true; z = 0; m = 1;
+            flip: / m = m == 1 ? 2.5 : 1
+            """;
+
+    static final List<String> EXPRESSIONS = List.of(
+            "i + j * 2", "i / j", "i % j", "-i", "+j", "(i - j)",
+            "d * 2.0", "d + i", "i / 2.0", "d % 1.0", "-d", "+d",
+            "i < j", "i <= 3", "j > d", "d >= 1.5", "i == 3", "i != j", "d == 1.5", "i == 3.0",
+            "b && i > 0", "b || false", "b => false", "b <=> true", "b xor true", "!b",
+            "b ? i : j", "b ? d : i", "b ? 1 : 2.0",
+            "m + 1", "m * 2.0", "m == 1", "-m", "m < 2", "m > i ? m : i");
+
+    static Environment state(Soup soup) {
+        return new SoupSemantics(soup).initial().getFirst();
+    }
+
+    @Test
+    void testMatchesBoxedSemantics() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var types = new TypeInference(soup);
+        var primitive = new PrimitiveExpressionSemantics(types);
+        var boxed = new ExpressionSemantics();
+        var environment = state(soup);
+        var flipped = new SoupSemantics(soup).pureSemantics().execute(soup.pieces.getFirst(), environment).getFirst();
+        for (var env : List.of(environment, flipped)) {
+            for (var text : EXPRESSIONS) {
+                var expression = Reader.readExpression(text);
+                var expected = boxed.evaluate(expression, env);
+                assertEquals(SlotValues.encode(expected), primitive.evaluateWord(expression, env), text);
+            }
+        }
+    }
+
+    @Test
+    void testStaticTypes() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var types = new TypeInference(soup);
+        assertEquals(Type.INTEGER, types.typeOf(Reader.readExpression("i + j * 2")));
+        assertEquals(Type.DOUBLE, types.typeOf(Reader.readExpression("d + i")));
+        assertEquals(Type.BOOLEAN, types.typeOf(Reader.readExpression("i < d")));
+        assertEquals(Type.ANY, types.typeOf(Reader.readExpression("m + 1")));
+        assertEquals(Type.ANY, types.typeOf(Reader.readExpression("b ? 1 : 2.0")));
+        assertEquals(Type.ANY, types.typeOf(Reader.readExpression("unknown")));
+    }
+
+    @Test
+    void testErrorsMatchBoxedSemantics() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var primitive = new PrimitiveExpressionSemantics(new TypeInference(soup));
+        var environment = state(soup);
+        assertThrows(ArithmeticException.class, () -> primitive.evaluateWord(Reader.readExpression("i / z"), environment));
+        assertThrows(UnsupportedOperationException.class, () -> primitive.evaluateWord(Reader.readExpression("b + 1"), environment));
+        assertThrows(UnsupportedOperationException.class, () -> primitive.evaluateWord(Reader.readExpression("!i"), environment));
+        assertThrows(UnsupportedOperationException.class, () -> primitive.evaluateWord(Reader.readExpression("b < 1"), environment));
+        assertThrows(RuntimeException.class, () -> primitive.evaluateWord(Reader.readExpression("unknown + 1"), environment));
+    }
+
+    @Test
+    void testSoupSemanticsMatchesBoxedSemantics() throws Exception {
+        var soup = Reader.readSoup("""
+                var x = 0; y = 0.0; f = false;
+                inc: [x < 5] / x = x + 1; y = y < 0.0 ? -x / 2.0 : x / 2.0
+                | toggle: [!f || x % 2 == 0] / f = !f; if f then y = -y else skip
+                | reset: [x == 5 && y > 1.0] / x = 0; y = 0.0
+                """);
+        assertEquals(reachable(new SoupSemantics(soup)), reachable(new SoupSemantics(soup, new ExpressionSemantics())));
+    }
+
+    static HashSet<Environment> reachable(SoupSemantics semantics) {
+        var relation = semantics.pureSemantics();
+        var known = new HashSet<Environment>();
+        var frontier = new java.util.ArrayDeque<>(relation.initial());
+        while (!frontier.isEmpty()) {
+            var state = frontier.pop();
+            if (!known.add(state)) continue;
+            for (var action : relation.actions(state)) {
+                frontier.addAll(relation.execute(action, state));
+            }
+        }
+        return known;
+    }
+}
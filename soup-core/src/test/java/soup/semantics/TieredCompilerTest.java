@@ -0,0 +1,69 @@
+package soup.semantics;
+
+import org.junit.jupiter.api.Test;
+import soup.semantics.base.ExecutionMode;
+import soup.semantics.base.SoupSemantics;
+import soup.semantics.compiled.TieredCompiler;
+import soup.syntax.Reader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredCompilerTest {
+    static final String MODEL = """
+            var x = 0; y = 0.0; f = false;
+            inc: [x < 5] / x = x + 1; y = y < 0.0 ? -x / 2.0 : x / 2.0
+            | toggle: [!f || x % 2 == 0] / f = !f; if f then y = -y else skip
+            | reset: [x == 5 && y > 1.0] / x = 0; y = 0.0
+            | never: [x > 10] / x = 0
+            """;
+
+    @Test
+    void testHotPiecesArePromoted() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var interpreted = PrimitiveExpressionSemanticsTest.reachable(new SoupSemantics(soup, ExecutionMode.PRIMITIVE));
+        var semantics = new SoupSemantics(soup, ExecutionMode.TIERED, 10, Runnable::run);
+        assertEquals(interpreted, PrimitiveExpressionSemanticsTest.reachable(semantics));
+
+        var never = semantics.tier(soup.pieces.getLast());
+        assertTrue(semantics.tier(soup.pieces.getFirst()).isCompiled());
+        assertTrue(semantics.tier(soup.pieces.get(1)).isCompiled());
+        // the guard of 'never' is evaluated again after the pieces writing x, its effect never
+        assertTrue(never.isCompiled());
+        // promoted at once by the caller's thread, the compiled code is not counted
+        assertEquals(10, never.evaluations());
+        assertEquals(10, semantics.tier(soup.pieces.getFirst()).evaluations());
+    }
+
+    @Test
+    void testColdPiecesStayInterpreted() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var semantics = new SoupSemantics(soup, ExecutionMode.TIERED, Long.MAX_VALUE, Runnable::run);
+        var interpreted = PrimitiveExpressionSemanticsTest.reachable(new SoupSemantics(soup, ExecutionMode.PRIMITIVE));
+        assertEquals(interpreted, PrimitiveExpressionSemanticsTest.reachable(semantics));
+        for (var piece : soup.pieces) {
+            assertFalse(semantics.tier(piece).isCompiled());
+            assertTrue(semantics.tier(piece).evaluations() > 0);
+        }
+    }
+
+    @Test
+    void testPromotionDuringExploration() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        var interpreted = PrimitiveExpressionSemanticsTest.reachable(new SoupSemantics(soup, ExecutionMode.PRIMITIVE));
+        var semantics = new SoupSemantics(soup, ExecutionMode.TIERED, 0, TieredCompiler.BACKGROUND);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(interpreted, PrimitiveExpressionSemanticsTest.reachable(semantics));
+        }
+        semantics.tieredCompiler().awaitPromotions();
+        for (var piece : soup.pieces) {
+            assertTrue(semantics.tier(piece).isCompiled());
+        }
+        assertEquals(interpreted, PrimitiveExpressionSemanticsTest.reachable(semantics));
+    }
+
+    @Test
+    void testNegativeThreshold() throws Exception {
+        var soup = Reader.readSoup(MODEL);
+        assertThrows(IllegalArgumentException.class, () -> new SoupSemantics(soup, ExecutionMode.TIERED, -1, Runnable::run));
+    }
+}
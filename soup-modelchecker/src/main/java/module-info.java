@@ -7,4 +7,7 @@ module language.soup.modelchecker {
     requires language.rege.core;
     requires language.rege.modelchecker;
     exports soup.modelchecker;
+    exports soup.modelchecker.emptiness;
+    exports soup.modelchecker.reachability;
+    exports soup.modelchecker.store;
 }
\ No newline at end of file
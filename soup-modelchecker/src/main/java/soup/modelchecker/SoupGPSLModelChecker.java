@@ -5,27 +5,85 @@ import gpsl.syntax.model.State;
 import obp3.modelchecking.EmptinessCheckerAnswer;
 import obp3.modelchecking.EmptinessCheckerStatus;
 import obp3.runtime.IExecutable;
+import obp3.runtime.sli.DependentSemanticRelation;
 import obp3.runtime.sli.Step;
 import obp3.sli.core.operators.product.Product;
+import soup.analysis.TypeChecker;
+import soup.modelchecker.emptiness.LassoResult;
+import soup.modelchecker.emptiness.ParallelNestedDfs;
+import soup.modelchecker.emptiness.StepProduct;
+import soup.optimization.ConeOfInfluence;
 import soup.semantics.base.Environment;
+import soup.semantics.base.PartialOrderReduction;
 import soup.semantics.base.SoupSemantics;
 import soup.semantics.diagnosis.StepEnvironment;
 import soup.semantics.diagnosis.StepExpressionSemantics;
 import soup.syntax.model.declarations.Soup;
 import soup.syntax.model.declarations.pieces.AnonymousPiece;
 
+import java.util.function.Predicate;
+
 public class SoupGPSLModelChecker {
 
     public static IExecutable<EmptinessCheckerStatus, EmptinessCheckerAnswer<Product<Environment, State>>> soupGPSLModelChecker(
             Soup modelSoup,
             String property) {
+        return soupGPSLModelChecker(modelSoup, property, false);
+    }
+
+    /**
+     * @param slice if true, the model is first reduced to the cone of influence of the identifiers of the property,
+     *              see {@link ConeOfInfluence}
+     */
+    public static IExecutable<EmptinessCheckerStatus, EmptinessCheckerAnswer<Product<Environment, State>>> soupGPSLModelChecker(
+            Soup modelSoup,
+            String property,
+            boolean slice) {
+        return soupGPSLModelChecker(modelSoup, property, slice, false);
+    }
+
+    /**
+     * @param slice if true, the model is first reduced to the cone of influence of the identifiers of the property,
+     *              see {@link ConeOfInfluence}
+     * @param partialOrderReduction if true, the model is explored with a {@link PartialOrderReduction} whose visible
+     *                              pieces are those touching the identifiers of the property. The verdicts are only
+     *                              preserved for stutter-insensitive properties, without the next operator.
+     */
+    public static IExecutable<EmptinessCheckerStatus, EmptinessCheckerAnswer<Product<Environment, State>>> soupGPSLModelChecker(
+            Soup modelSoup,
+            String property,
+            boolean slice,
+            boolean partialOrderReduction) {
+        TypeChecker.check(modelSoup);
+        var observed = ConeOfInfluence.observedNames(property);
+        if (slice) {
+            modelSoup = ConeOfInfluence.slice(modelSoup, observed, true).soup();
+        }
+        var semantics = new SoupSemantics(modelSoup);
         var checker = new StepModelChecker<>(
-                new SoupSemantics(modelSoup).pureSemantics(),
+                partialOrderReduction ? new PartialOrderReduction(semantics, observed) : semantics.pureSemantics(),
                 SoupGPSLModelChecker::stepAtomEvaluator,
                 property);
         return checker.modelChecker();
     }
 
+    /**
+     * Checks a property automaton against the model with {@code threads} workers, see {@link ParallelNestedDfs}.
+     * The property is given by its semantics over the model steps, such as the GPSL automaton semantics evaluating
+     * its atoms with {@link #stepAtomEvaluator}, and by its accepting states.
+     */
+    public static <PA, PC> LassoResult<StepProduct.Move<AnonymousPiece, Environment, PA>, StepProduct.State<Environment, PC>>
+            parallelEmptiness(
+                    Soup modelSoup,
+                    DependentSemanticRelation<Step<AnonymousPiece, Environment>, PA, PC> propertySemantics,
+                    Predicate<PC> accepting,
+                    int threads,
+                    long seed) {
+        TypeChecker.check(modelSoup);
+        var product = new StepProduct<>(new SoupSemantics(modelSoup).pureSemantics(), propertySemantics);
+        return new ParallelNestedDfs<>(product, state -> accepting.test(state.property()), threads, seed).run();
+    }
+
     public static boolean stepAtomEvaluator(String atom, Step<AnonymousPiece, Environment> step) {
         try {
             return (boolean) StepExpressionSemantics.evaluate(atom, new StepEnvironment(step.start(), step.action(), step.end()));
@@ -8,6 +8,8 @@ import obp3.modelchecking.EmptinessCheckerAnswer;
 import obp3.runtime.IExecutable;
 import obp3.runtime.sli.Step;
 import rege.syntax.model.Expression;
+import soup.analysis.TypeChecker;
+import soup.optimization.ConeOfInfluence;
 import soup.semantics.base.Environment;
 import soup.semantics.base.SoupSemantics;
 import soup.semantics.diagnosis.StepEnvironment;
@@ -19,6 +21,21 @@ public class SoupRegeModelChecker {
     public static IExecutable<EmptinessCheckerStatus, EmptinessCheckerAnswer<Product<Environment, Expression>>> soupRegeModelChecker(
             Soup modelSoup,
             String property) {
+        return soupRegeModelChecker(modelSoup, property, false);
+    }
+
+    /**
+     * @param slice if true, the model is first reduced to the cone of influence of the identifiers of the property,
+     *              see {@link ConeOfInfluence}
+     */
+    public static IExecutable<EmptinessCheckerStatus, EmptinessCheckerAnswer<Product<Environment, Expression>>> soupRegeModelChecker(
+            Soup modelSoup,
+            String property,
+            boolean slice) {
+        TypeChecker.check(modelSoup);
+        if (slice) {
+            modelSoup = ConeOfInfluence.slice(modelSoup, ConeOfInfluence.observedNames(property), true).soup();
+        }
         var checker = new StepModelChecker<>(
                 new SoupSemantics(modelSoup).pureSemantics(),
                 SoupRegeModelChecker::stepAtomEvaluator,
@@ -11,6 +11,20 @@ import obp3.runtime.sli.Step;
 import obp3.sli.core.operators.product.Product;
 import obp3.traversal.dfs.DepthFirstTraversal;
 import obp3.utils.Either;
+import soup.modelchecker.emptiness.LassoResult;
+import soup.modelchecker.emptiness.ParallelNestedDfs;
+import soup.modelchecker.emptiness.StepProduct;
+import soup.modelchecker.reachability.ParallelReachability;
+import soup.modelchecker.reachability.Reachability;
+import soup.modelchecker.reachability.ReachabilityResult;
+import soup.modelchecker.reachability.StatelessSearch;
+import soup.modelchecker.reachability.SwarmSearch;
+import soup.modelchecker.store.BitstateStore;
+import soup.modelchecker.store.HashCompactionStore;
+import soup.modelchecker.store.StateStore;
+import soup.analysis.TypeChecker;
+import soup.analysis.VariableAccesses;
+import soup.optimization.ConeOfInfluence;
 import soup.semantics.base.Environment;
 import soup.semantics.base.SoupSemantics;
 import soup.semantics.dependent.SoupStepDependentSemantics;
@@ -45,6 +59,25 @@ public class SoupSoupModelChecker {
             Expression acceptingPredicateExpression,
             DepthFirstTraversal.Algorithm traversal,
             int depthBound) {
+        this(modelSoup, propertySoup, isBuchi, acceptingPredicateExpression, traversal, depthBound, false);
+    }
+
+    /**
+     * @param slice if true, the model is first reduced to the cone of influence of the property soup and of the
+     *              accepting predicate, see {@link ConeOfInfluence}
+     */
+    public SoupSoupModelChecker(
+            Soup modelSoup,
+            Soup propertySoup,
+            boolean isBuchi,
+            Expression acceptingPredicateExpression,
+            DepthFirstTraversal.Algorithm traversal,
+            int depthBound,
+            boolean slice) {
+        TypeChecker.check(modelSoup);
+        if (slice) {
+            modelSoup = ConeOfInfluence.slice(modelSoup, isBuchi, propertySoup, acceptingPredicateExpression).soup();
+        }
         this.modelSoup = modelSoup;
         this.propertySoup = propertySoup;
         this.isBuchi = isBuchi;
@@ -87,6 +120,92 @@ public class SoupSoupModelChecker {
         return builder.modelChecker();
     }
 
+    /**
+     * Checks the accepting predicate over the model alone, storing the visited states in {@code store}
+     * instead of the OBP3 traversal's known set. With a safety property soup, the predicate is checked over the
+     * property states of the product, whose states {@code store} keeps as pairs, see {@link Reachability#product}.
+     */
+    public ReachabilityResult reachability(StateStore store) {
+        if (propertySoup != null) {
+            if (isBuchi) {
+                throw new UnsupportedOperationException("The state store exploration does not check Büchi properties");
+            }
+            var product = new StepProduct<>(getModelSemantics(), getPropertySemantics());
+            return Reachability.product(
+                    product, state -> acceptingPredicate(state.property()), store, depthBound).run();
+        }
+        return Reachability.of(getModelSemantics(), this::acceptingPredicate, store, depthBound).run();
+    }
+
+    /**
+     * Checks the accepting predicate, or the safety property soup, storing {@code hashes} bits per state in a bit
+     * array of {@code megabytes}, see {@link BitstateStore}. The search may miss states, the report estimates how
+     * many.
+     */
+    public ReachabilityResult bitstate(long megabytes, int hashes) {
+        return reachability(new BitstateStore(megabytes, hashes));
+    }
+
+    /**
+     * Checks the accepting predicate, or the safety property soup, storing a 64-bit fingerprint per state, see
+     * {@link HashCompactionStore}.
+     */
+    public ReachabilityResult hashCompaction() {
+        return reachability(new HashCompactionStore());
+    }
+
+    /**
+     * Checks the accepting predicate over the model alone with {@code threads} workers sharing {@code store}, which
+     * must be thread-safe, see {@link ParallelReachability}.
+     */
+    public ReachabilityResult parallelReachability(StateStore store, int threads) {
+        if (propertySoup != null) {
+            throw new UnsupportedOperationException("The parallel exploration only checks predicates over the model");
+        }
+        // the evaluator keeps no state between evaluations, it is shared by the workers
+        return new ParallelReachability(
+                getModelSemantics(), this::acceptingPredicate, store, threads, depthBound).run();
+    }
+
+    /**
+     * Hunts for a state satisfying the accepting predicate with a swarm of {@code workers} randomized searches of at
+     * most {@code memoryBytes} each, bounded by the depth bound of this checker, which must not be negative, see
+     * {@link SwarmSearch}.
+     */
+    public ReachabilityResult swarm(int workers, long seed, long memoryBytes) {
+        if (propertySoup != null) {
+            throw new UnsupportedOperationException("The swarm exploration only checks predicates over the model");
+        }
+        return new SwarmSearch(
+                getModelSemantics(), this::acceptingPredicate, workers, seed, depthBound, memoryBytes).run();
+    }
+
+    /**
+     * Searches for a state satisfying the accepting predicate without storing the visited states, up to the depth
+     * bound of this checker, which must not be negative, see {@link StatelessSearch}.
+     */
+    public ReachabilityResult stateless() {
+        if (propertySoup != null) {
+            throw new UnsupportedOperationException("The stateless search only checks predicates over the model");
+        }
+        var observed = VariableAccesses.of(acceptingPredicateExpression).reads;
+        return new StatelessSearch(
+                new SoupSemantics(modelSoup), this::acceptingPredicate, observed, depthBound).run();
+    }
+
+    /**
+     * Checks the Büchi property soup against the model with {@code threads} workers, see {@link ParallelNestedDfs}.
+     * The accepting predicate is evaluated over the property states of the product.
+     */
+    public LassoResult<StepProduct.Move<AnonymousPiece, Environment, AnonymousPiece>, StepProduct.State<Environment, Environment>>
+            parallelEmptiness(int threads, long seed) {
+        if (propertySoup == null || !isBuchi) {
+            throw new UnsupportedOperationException("The parallel emptiness check needs a Büchi property soup");
+        }
+        var product = new StepProduct<>(getModelSemantics(), getPropertySemantics());
+        return new ParallelNestedDfs<>(product, state -> acceptingPredicate(state.property()), threads, seed).run();
+    }
+
     public static void main(String[] args) throws IOException, ParseException {
         var modelCode = new BufferedReader(new FileReader(args[0]));
         var model = Reader.read(modelCode);
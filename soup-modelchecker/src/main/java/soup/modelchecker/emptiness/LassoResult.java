@@ -0,0 +1,28 @@
+package soup.modelchecker.emptiness;
+
+import java.util.List;
+
+/**
+ * The verdict of an emptiness check.
+ * @param holds true if no accepting cycle was found
+ * @param trace the states from an initial state around the accepting cycle, the last one equal to the state at
+ *              {@code cycleStart}; empty if the property holds
+ * @param actions the actions fired along the trace, one less than the states
+ * @param cycleStart the index in the trace of the first state of the cycle, -1 if the property holds
+ * @param states the number of states visited
+ * @param transitions the number of transitions explored, by the outer and the nested searches
+ */
+public record LassoResult<A, C>(
+        boolean holds,
+        List<C> trace,
+        List<A> actions,
+        int cycleStart,
+        long states,
+        long transitions) {
+    @Override
+    public String toString() {
+        return (holds ? "holds" : "violated by a lasso of prefix " + cycleStart + " and cycle "
+                + (trace.size() - 1 - cycleStart))
+                + " [" + states + " states, " + transitions + " transitions]";
+    }
+}
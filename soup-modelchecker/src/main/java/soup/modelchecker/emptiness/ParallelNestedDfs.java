@@ -0,0 +1,221 @@
+package soup.modelchecker.emptiness;
+
+import obp3.runtime.sli.SemanticRelation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A multi-threaded Büchi emptiness check, the CNDFS algorithm of Evangelista, Laarman, Petrucci and van de Pol.
+ * <p>
+ * Every worker runs a full nested depth-first search from the initial states, each in its own order of the
+ * successors: the first worker keeps the order of the semantics, the others shuffle it. The blue and red colours are
+ * shared, so that a worker skips the states another has finished, while the cyan states, those on the stack of the
+ * outer search, are local. When the outer search leaves an accepting seed, the nested search looks for a path back to
+ * a cyan state, which closes an accepting cycle; the states it visited only turn red once the other accepting states
+ * among them are red, so that no cycle through a seed still pending in another worker is missed.
+ * <p>
+ * The first cycle found stops the workers. The lasso is the outer stack up to the seed, the nested stack, and the
+ * edge back to the cyan state.
+ * <p>
+ * The check runs outside the OBP3 {@code ModelCheckerBuilder}, so it returns a {@link LassoResult}, not an
+ * {@code EmptinessCheckerAnswer}; plugging it into the builder is left out.
+ */
+public class ParallelNestedDfs<A, C> {
+    final SemanticRelation<A, C> semantics;
+    final Predicate<C> accepting;
+    final int threads;
+    final long seed;
+
+    final Set<C> blue = ConcurrentHashMap.newKeySet();
+    final Set<C> red = ConcurrentHashMap.newKeySet();
+    final AtomicReference<LassoResult<A, C>> found = new AtomicReference<>();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    volatile boolean stop;
+
+    final LongAdder transitions = new LongAdder();
+
+    /**
+     * @param threads the number of workers
+     * @param seed the seed of the successor orders of the workers
+     */
+    public ParallelNestedDfs(SemanticRelation<A, C> semantics, Predicate<C> accepting, int threads, long seed) {
+        if (threads < 1) throw new IllegalArgumentException("At least one worker is needed, got " + threads);
+        this.semantics = semantics;
+        this.accepting = accepting;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    record Transition<A, C>(A action, C target) {}
+
+    static final class Frame<A, C> {
+        final A action;
+        final C state;
+        final List<Transition<A, C>> successors;
+        int next;
+
+        Frame(A action, C state, List<Transition<A, C>> successors) {
+            this.action = action;
+            this.state = state;
+            this.successors = successors;
+        }
+    }
+
+    public LassoResult<A, C> run() {
+        var workers = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            var worker = new Worker(i == 0 ? null : new Random(seed + i));
+            workers.add(Thread.ofPlatform().name("cndfs-" + i).start(worker::run));
+        }
+        for (var worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                stop = true;
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the emptiness check workers", e);
+            }
+        }
+        switch (failure.get()) {
+            case null -> { }
+            case RuntimeException e -> throw e;
+            case Error e -> throw e;
+            case Throwable e -> throw new RuntimeException(e);
+        }
+        var lasso = found.get();
+        if (lasso != null) return lasso;
+        return new LassoResult<>(true, List.of(), List.of(), -1, blue.size(), transitions.sum());
+    }
+
+    final class Worker {
+        final Random random;
+        final Set<C> cyan = new HashSet<>();
+        final List<Frame<A, C>> blueStack = new ArrayList<>();
+        final List<Frame<A, C>> redStack = new ArrayList<>();
+        final Set<C> visitedRed = new HashSet<>();
+        final List<C> acceptingRed = new ArrayList<>();
+
+        Worker(Random random) {
+            this.random = random;
+        }
+
+        List<Transition<A, C>> successors(C state) {
+            var result = new ArrayList<Transition<A, C>>();
+            for (var action : semantics.actions(state)) {
+                for (var target : semantics.execute(action, state)) {
+                    result.add(new Transition<>(action, target));
+                }
+            }
+            transitions.add(result.size());
+            if (random != null) Collections.shuffle(result, random);
+            return result;
+        }
+
+        void run() {
+            try {
+                for (var initial : semantics.initial()) {
+                    if (stop) return;
+                    if (!blue.contains(initial)) blue(initial);
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+                stop = true;
+            }
+        }
+
+        void blue(C initial) {
+            cyan.add(initial);
+            blueStack.add(new Frame<>(null, initial, successors(initial)));
+            while (!blueStack.isEmpty() && !stop) {
+                var frame = blueStack.getLast();
+                if (frame.next < frame.successors.size()) {
+                    var transition = frame.successors.get(frame.next++);
+                    var target = transition.target();
+                    if (!cyan.contains(target) && !blue.contains(target)) {
+                        cyan.add(target);
+                        blueStack.add(new Frame<>(transition.action(), target, successors(target)));
+                    }
+                    continue;
+                }
+                var state = frame.state;
+                blue.add(state);
+                if (accepting.test(state)) {
+                    if (red(state)) return;
+                }
+                cyan.remove(state);
+                blueStack.removeLast();
+            }
+        }
+
+        /**
+         * Searches for a cycle through the seed, then colours the visited states red.
+         *
+         * @return true if a cycle was found or the search was stopped
+         */
+        boolean red(C seed) {
+            visitedRed.clear();
+            acceptingRed.clear();
+            visitedRed.add(seed);
+            redStack.add(new Frame<>(null, seed, successors(seed)));
+            while (!redStack.isEmpty()) {
+                if (stop) return true;
+                var frame = redStack.getLast();
+                if (frame.next == frame.successors.size()) {
+                    redStack.removeLast();
+                    continue;
+                }
+                var transition = frame.successors.get(frame.next++);
+                var target = transition.target();
+                if (cyan.contains(target)) {
+                    found.compareAndSet(null, lasso(transition));
+                    stop = true;
+                    return true;
+                }
+                if (!visitedRed.contains(target) && !red.contains(target)) {
+                    visitedRed.add(target);
+                    if (accepting.test(target)) acceptingRed.add(target);
+                    redStack.add(new Frame<>(transition.action(), target, successors(target)));
+                }
+            }
+            // wait for the other workers still searching from the accepting states met
+            for (var state : acceptingRed) {
+                while (!red.contains(state)) {
+                    if (stop) return true;
+                    Thread.onSpinWait();
+                }
+            }
+            red.addAll(visitedRed);
+            return false;
+        }
+
+        /**
+         * @param closing the transition from the top of the nested stack to a cyan state
+         */
+        LassoResult<A, C> lasso(Transition<A, C> closing) {
+            var trace = new ArrayList<C>();
+            var actions = new ArrayList<A>();
+            var cycleStart = -1;
+            for (var frame : blueStack) {
+                if (frame.action != null) actions.add(frame.action);
+                if (frame.state.equals(closing.target()) && cycleStart < 0) cycleStart = trace.size();
+                trace.add(frame.state);
+            }
+            for (int i = 1; i < redStack.size(); i++) {
+                actions.add(redStack.get(i).action);
+                trace.add(redStack.get(i).state);
+            }
+            actions.add(closing.action());
+            trace.add(closing.target());
+            return new LassoResult<>(false, trace, actions, cycleStart, blue.size(), transitions.sum());
+        }
+    }
+}
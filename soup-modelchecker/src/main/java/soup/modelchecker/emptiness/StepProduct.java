@@ -0,0 +1,67 @@
+package soup.modelchecker.emptiness;
+
+import obp3.runtime.sli.DependentSemanticRelation;
+import obp3.runtime.sli.SemanticRelation;
+import obp3.runtime.sli.Step;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The synchronous product of a model with a property reading its steps: each move fires a model step, or a stutter
+ * step on a model deadlock, together with a property action enabled on that step.
+ */
+public class StepProduct<MA, MC, PA, PC> implements SemanticRelation<StepProduct.Move<MA, MC, PA>, StepProduct.State<MC, PC>> {
+    final SemanticRelation<MA, MC> model;
+    final DependentSemanticRelation<Step<MA, MC>, PA, PC> property;
+
+    public StepProduct(SemanticRelation<MA, MC> model, DependentSemanticRelation<Step<MA, MC>, PA, PC> property) {
+        this.model = model;
+        this.property = property;
+    }
+
+    public record State<MC, PC>(MC model, PC property) {}
+
+    public record Move<MA, MC, PA>(Step<MA, MC> step, PA property) {}
+
+    @Override
+    public List<State<MC, PC>> initial() {
+        var result = new ArrayList<State<MC, PC>>();
+        for (var modelState : model.initial()) {
+            for (var propertyState : property.initial()) {
+                result.add(new State<>(modelState, propertyState));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Move<MA, MC, PA>> actions(State<MC, PC> configuration) {
+        var steps = new ArrayList<Step<MA, MC>>();
+        for (var action : model.actions(configuration.model())) {
+            for (var target : model.execute(action, configuration.model())) {
+                steps.add(new Step<>(configuration.model(), Optional.of(action), target));
+            }
+        }
+        if (steps.isEmpty()) {
+            steps.add(new Step<>(configuration.model(), Optional.empty(), configuration.model()));
+        }
+        var result = new ArrayList<Move<MA, MC, PA>>();
+        for (var step : steps) {
+            for (var action : property.actions(step, configuration.property())) {
+                result.add(new Move<>(step, action));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<State<MC, PC>> execute(Move<MA, MC, PA> action, State<MC, PC> configuration) {
+        var result = new ArrayList<State<MC, PC>>();
+        for (var target : property.execute(action.property(), action.step(), configuration.property())) {
+            result.add(new State<>(action.step().end(), target));
+        }
+        return result;
+    }
+}
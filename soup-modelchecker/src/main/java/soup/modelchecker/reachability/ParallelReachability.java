@@ -0,0 +1,248 @@
+package soup.modelchecker.reachability;
+
+import obp3.runtime.sli.SemanticRelation;
+import soup.modelchecker.store.StateStore;
+import soup.semantics.base.Environment;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * A multi-threaded search for a state satisfying the accepting predicate, over a {@link StateStore} shared by the
+ * workers, which must then be thread-safe: {@link soup.modelchecker.store.HashStateStore},
+ * {@link soup.modelchecker.store.OffHeapStateStore}, {@link soup.modelchecker.store.TreeCompressionStore},
+ * {@link soup.modelchecker.store.BitstateStore} or {@link soup.modelchecker.store.HashCompactionStore}.
+ * <p>
+ * Each worker owns a deque of states to expand: it pushes the new successors and pops them from the same end, which
+ * keeps its search depth-first, while idle workers steal from the other end of a random victim. A state is expanded
+ * by the worker whose {@link StateStore#add} first inserted it. The search ends when no state is pending, or as soon
+ * as a worker reaches an accepting state, which stops the others.
+ * <p>
+ * A worker that finds nothing to steal spins briefly, then parks for a time that doubles up to
+ * {@link #MAX_PARK_NANOS}; a worker pushing new states wakes a parked one, and the end of the search wakes them all.
+ * <p>
+ * Each pending state links to the state it was generated from by the piece fired, so the counterexample is the path of
+ * the first accepting state found, not necessarily the shortest one. Once expanded, a state is dropped from its link,
+ * which only keeps the piece and the index of the successor: the states of the counterexample are rebuilt by
+ * {@link Reachability#replay}, so that the links cost little next to a compact store such as
+ * {@link soup.modelchecker.store.HashCompactionStore}.
+ */
+public class ParallelReachability {
+    /** the number of failed steals after which an idle worker parks */
+    static final int SPINS = 64;
+    static final long MIN_PARK_NANOS = 10_000;
+    static final long MAX_PARK_NANOS = 1_000_000;
+
+    final SemanticRelation<AnonymousPiece, Environment> semantics;
+    final Predicate<Environment> accepting;
+    final StateStore store;
+    final int threads;
+    final int depthBound;
+
+    final List<ConcurrentLinkedDeque<Node>> deques = new ArrayList<>();
+    /** the states pushed and not expanded yet, the search is over when it drops to zero */
+    final AtomicLong pending = new AtomicLong();
+    final AtomicReference<Node> found = new AtomicReference<>();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    volatile boolean stop;
+    final List<Thread> workers = new ArrayList<>();
+    /** the workers parked or about to park */
+    final ConcurrentLinkedQueue<Thread> parked = new ConcurrentLinkedQueue<>();
+
+    final LongAdder transitions = new LongAdder();
+    final LongAdder steals = new LongAdder();
+
+    /**
+     * @param threads the number of workers
+     * @param depthBound the depth beyond which states are not expanded, negative for none
+     */
+    public ParallelReachability(
+            SemanticRelation<AnonymousPiece, Environment> semantics,
+            Predicate<Environment> accepting,
+            StateStore store,
+            int threads,
+            int depthBound) {
+        if (threads < 1) throw new IllegalArgumentException("At least one worker is needed, got " + threads);
+        this.semantics = semantics;
+        this.accepting = accepting;
+        this.store = store;
+        this.threads = threads;
+        this.depthBound = depthBound;
+    }
+
+    static final class Node {
+        final Node parent;
+        final AnonymousPiece action;
+        /** the index of this state among the successors of the action */
+        final int successor;
+        final int depth;
+        /** the state, dropped once expanded except for the initial states */
+        Environment state;
+
+        Node(Node parent, AnonymousPiece action, int successor, Environment state, int depth) {
+            this.parent = parent;
+            this.action = action;
+            this.successor = successor;
+            this.state = state;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * @return the number of states a worker took from the deque of another
+     */
+    public long steals() {
+        return steals.sum();
+    }
+
+    public ReachabilityResult run() {
+        for (int i = 0; i < threads; i++) {
+            deques.add(new ConcurrentLinkedDeque<>());
+        }
+        var initials = semantics.initial();
+        for (int i = 0; i < initials.size(); i++) {
+            var initial = initials.get(i);
+            if (!store.add(initial)) continue;
+            var node = new Node(null, null, 0, initial, 0);
+            if (accepting.test(initial)) return counterexample(node);
+            pending.incrementAndGet();
+            deques.get(i % threads).push(node);
+        }
+
+        for (int i = 0; i < threads; i++) {
+            var id = i;
+            workers.add(Thread.ofPlatform().name("reachability-" + i).unstarted(() -> work(id)));
+        }
+        workers.forEach(Thread::start);
+        for (var worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                stop();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the reachability workers", e);
+            }
+        }
+        switch (failure.get()) {
+            case null -> { }
+            case RuntimeException e -> throw e;
+            case Error e -> throw e;
+            case Throwable e -> throw new RuntimeException(e);
+        }
+        var node = found.get();
+        if (node != null) return counterexample(node);
+        return new ReachabilityResult(true, List.of(), List.of(), store.size(), transitions.sum(), store.report());
+    }
+
+    void work(int id) {
+        var own = deques.get(id);
+        var misses = 0;
+        var park = MIN_PARK_NANOS;
+        try {
+            while (!stop) {
+                var node = own.pollFirst();
+                if (node == null) node = steal(id);
+                if (node == null) {
+                    if (pending.get() == 0) return;
+                    if (++misses < SPINS) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    var self = Thread.currentThread();
+                    parked.add(self);
+                    // parks with a timeout: states pushed just before it registered do not wake it
+                    LockSupport.parkNanos(this, park);
+                    parked.remove(self);
+                    park = Math.min(park << 1, MAX_PARK_NANOS);
+                    continue;
+                }
+                misses = 0;
+                park = MIN_PARK_NANOS;
+                expand(node, own);
+                if (pending.decrementAndGet() == 0) wakeAll();
+            }
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            stop();
+        }
+    }
+
+    void stop() {
+        stop = true;
+        wakeAll();
+    }
+
+    void wakeAll() {
+        for (var worker : workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    void wakeOne() {
+        var worker = parked.poll();
+        if (worker != null) LockSupport.unpark(worker);
+    }
+
+    Node steal(int id) {
+        var start = ThreadLocalRandom.current().nextInt(threads);
+        for (int i = 0; i < threads; i++) {
+            var victim = (start + i) % threads;
+            if (victim == id) continue;
+            var node = deques.get(victim).pollLast();
+            if (node != null) {
+                steals.increment();
+                return node;
+            }
+        }
+        return null;
+    }
+
+    void expand(Node node, ConcurrentLinkedDeque<Node> own) {
+        var pushed = false;
+        var state = node.state;
+        if (node.parent != null) node.state = null;
+        if (depthBound >= 0 && node.depth >= depthBound) return;
+        for (var action : semantics.actions(state)) {
+            var targets = semantics.execute(action, state);
+            for (int i = 0; i < targets.size(); i++) {
+                var target = targets.get(i);
+                transitions.increment();
+                if (!store.add(target)) continue;
+                var child = new Node(node, action, i, target, node.depth + 1);
+                if (accepting.test(target)) {
+                    found.compareAndSet(null, child);
+                    stop();
+                    return;
+                }
+                pending.incrementAndGet();
+                own.push(child);
+                pushed = true;
+            }
+        }
+        if (pushed) wakeOne();
+    }
+
+    ReachabilityResult counterexample(Node node) {
+        var actions = new ArrayList<AnonymousPiece>();
+        var successors = new ArrayList<Integer>();
+        var root = node;
+        for (; root.parent != null; root = root.parent) {
+            actions.add(root.action);
+            successors.add(root.successor);
+        }
+        Collections.reverse(actions);
+        Collections.reverse(successors);
+        var trace = Reachability.replay(semantics, root.state, actions, successors);
+        return new ReachabilityResult(false, trace, actions, store.size(), transitions.sum(), store.report());
+    }
+}
@@ -0,0 +1,196 @@
+package soup.modelchecker.reachability;
+
+import obp3.runtime.sli.SemanticRelation;
+import soup.modelchecker.emptiness.StepProduct;
+import soup.modelchecker.store.StateStore;
+import soup.semantics.base.Environment;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A depth-first search for a state satisfying the accepting predicate, over a pluggable {@link StateStore}.
+ * The stack holds the current path, which is the counterexample when an accepting state is reached.
+ * <p>
+ * The search runs over any semantics: {@code add} puts one of its states in the store, and the counterexample is
+ * projected on the model by {@code model}, which gives the environment of a state, and {@code piece}, which gives the
+ * piece of an action, or nothing for a step left out of the counterexample. {@link #of} searches a soup,
+ * {@link #product} the product of a soup with a safety property soup, whose states are stored as pairs.
+ */
+public class Reachability<A, C> {
+    final SemanticRelation<A, C> semantics;
+    final Predicate<C> accepting;
+    final StateStore store;
+    final BiPredicate<StateStore, C> add;
+    final Function<C, Environment> model;
+    final Function<A, Optional<AnonymousPiece>> piece;
+    final int depthBound;
+
+    long transitions;
+    volatile boolean stopped;
+
+    /**
+     * @param add adds a state to the store, true if it was not there before
+     * @param model the environment of a state in the counterexample
+     * @param piece the piece of an action in the counterexample, empty to leave the step out
+     * @param depthBound the depth beyond which states are not expanded, negative for none
+     */
+    public Reachability(
+            SemanticRelation<A, C> semantics,
+            Predicate<C> accepting,
+            StateStore store,
+            BiPredicate<StateStore, C> add,
+            Function<C, Environment> model,
+            Function<A, Optional<AnonymousPiece>> piece,
+            int depthBound) {
+        this.semantics = semantics;
+        this.accepting = accepting;
+        this.store = store;
+        this.add = add;
+        this.model = model;
+        this.piece = piece;
+        this.depthBound = depthBound;
+    }
+
+    public static Reachability<AnonymousPiece, Environment> of(
+            SemanticRelation<AnonymousPiece, Environment> semantics,
+            Predicate<Environment> accepting,
+            StateStore store,
+            int depthBound) {
+        return new Reachability<>(
+                semantics, accepting, store, StateStore::add, Function.identity(), Optional::of, depthBound);
+    }
+
+    /**
+     * Searches the product of a model with a safety property soup; the stutter steps of the property are left out of
+     * the counterexample.
+     */
+    public static Reachability<StepProduct.Move<AnonymousPiece, Environment, AnonymousPiece>,
+            StepProduct.State<Environment, Environment>> product(
+            StepProduct<AnonymousPiece, Environment, AnonymousPiece, Environment> product,
+            Predicate<StepProduct.State<Environment, Environment>> accepting,
+            StateStore store,
+            int depthBound) {
+        return new Reachability<>(
+                product,
+                accepting,
+                store,
+                (states, state) -> states.add(state.model(), state.property()),
+                StepProduct.State::model,
+                move -> move.step().action(),
+                depthBound);
+    }
+
+    /**
+     * Makes the search return as soon as possible, as if no accepting state was found; the caller knows the
+     * result is then incomplete.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    record Transition<A, C>(A action, C target) {}
+
+    static final class Frame<A, C> {
+        final A action;
+        final C state;
+        List<Transition<A, C>> successors;
+        int next;
+
+        Frame(A action, C state) {
+            this.action = action;
+            this.state = state;
+        }
+    }
+
+    List<Transition<A, C>> successors(C state) {
+        var result = new ArrayList<Transition<A, C>>();
+        for (var action : semantics.actions(state)) {
+            for (var target : semantics.execute(action, state)) {
+                result.add(new Transition<>(action, target));
+            }
+        }
+        return result;
+    }
+
+    public ReachabilityResult run() {
+        var stack = new ArrayDeque<Frame<A, C>>();
+        for (var initial : semantics.initial()) {
+            if (stopped) break;
+            if (!add.test(store, initial)) continue;
+            stack.push(new Frame<>(null, initial));
+            if (accepting.test(initial)) return counterexample(stack);
+            while (!stack.isEmpty() && !stopped) {
+                var frame = stack.peek();
+                if (frame.successors == null) {
+                    frame.successors = depthBound >= 0 && stack.size() > depthBound ? List.of() : successors(frame.state);
+                }
+                if (frame.next == frame.successors.size()) {
+                    stack.pop();
+                    continue;
+                }
+                var transition = frame.successors.get(frame.next++);
+                transitions++;
+                if (!add.test(store, transition.target())) continue;
+                stack.push(new Frame<>(transition.action(), transition.target()));
+                if (accepting.test(transition.target())) return counterexample(stack);
+            }
+        }
+        return new ReachabilityResult(true, List.of(), List.of(), store.size(), transitions, store.report());
+    }
+
+    /**
+     * Rebuilds the states of a path by re-executing its pieces from its initial state, for the searches that do not
+     * keep the states, such as those over a {@link soup.modelchecker.store.HashCompactionStore}.
+     *
+     * @param successors for each piece, the index of the state taken among those of {@link SemanticRelation#execute}
+     * @return the states of the path, the initial one first
+     */
+    public static List<Environment> replay(
+            SemanticRelation<AnonymousPiece, Environment> semantics,
+            Environment initial,
+            List<AnonymousPiece> actions,
+            List<Integer> successors) {
+        var trace = new ArrayList<Environment>();
+        trace.add(initial);
+        var state = initial;
+        for (int i = 0; i < actions.size(); i++) {
+            var action = actions.get(i);
+            if (!semantics.actions(state).contains(action)) {
+                throw new IllegalStateException("The piece " + action + " is not enabled at step " + i + " of the replay");
+            }
+            var targets = semantics.execute(action, state);
+            if (successors.get(i) >= targets.size()) {
+                throw new IllegalStateException("The piece " + action + " has no successor " + successors.get(i)
+                        + " at step " + i + " of the replay");
+            }
+            state = targets.get(successors.get(i));
+            trace.add(state);
+        }
+        return trace;
+    }
+
+    ReachabilityResult counterexample(ArrayDeque<Frame<A, C>> stack) {
+        var trace = new ArrayList<Environment>();
+        var actions = new ArrayList<AnonymousPiece>();
+        var frames = stack.descendingIterator();
+        while (frames.hasNext()) {
+            var frame = frames.next();
+            if (frame.action == null) {
+                trace.add(model.apply(frame.state));
+                continue;
+            }
+            var fired = piece.apply(frame.action);
+            if (fired.isEmpty()) continue;
+            actions.add(fired.get());
+            trace.add(model.apply(frame.state));
+        }
+        return new ReachabilityResult(false, trace, actions, store.size(), transitions, store.report());
+    }
+}
@@ -0,0 +1,29 @@
+package soup.modelchecker.reachability;
+
+import soup.semantics.base.Environment;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+
+import java.util.List;
+
+/**
+ * The verdict of a reachability check.
+ * @param holds true if no accepting state was found
+ * @param trace the states from an initial state to the accepting one, empty if the property holds
+ * @param actions the pieces fired along the trace, one less than the states
+ * @param states the number of states stored
+ * @param transitions the number of transitions explored
+ * @param storeReport the {@link soup.modelchecker.store.StateStore#report()} of the visited set
+ */
+public record ReachabilityResult(
+        boolean holds,
+        List<Environment> trace,
+        List<AnonymousPiece> actions,
+        long states,
+        long transitions,
+        String storeReport) {
+    @Override
+    public String toString() {
+        return (holds ? "holds" : "violated at depth " + (trace.size() - 1))
+                + " [" + states + " states, " + transitions + " transitions, " + storeReport + "]";
+    }
+}
@@ -0,0 +1,225 @@
+package soup.modelchecker.reachability;
+
+import obp3.runtime.sli.SemanticRelation;
+import soup.analysis.Independence;
+import soup.semantics.base.Environment;
+import soup.semantics.base.SoupSemantics;
+import soup.syntax.model.declarations.Soup;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A depth-bounded stateless search for a state satisfying the accepting predicate: the executions of the soup are
+ * explored without a visited set, so the memory only grows with the depth, and interleavings equivalent up to the
+ * order of independent pieces are pruned by dynamic partial-order reduction with sleep sets.
+ * <p>
+ * Each piece is seen as a process whose next transition is the piece itself. Two pieces depend on each other if
+ * they are not {@link Independence independent}, or if both write variables observed by the accepting predicate, so
+ * that these variables go through the same values in every explored interleaving. When a state is reached, every
+ * piece is checked for a race with the last piece of the trace it depends on and that does not happen before it; the
+ * state the racing piece fired from then backtracks on the piece, or on all its enabled pieces if the piece was
+ * disabled there. Only one enabled piece is explored from a state unless a race asks for more. The sleep set of a
+ * state holds the pieces already explored from an ancestor whose interleavings with the pieces fired since would be
+ * equivalent; they are not fired again.
+ * <p>
+ * Within the depth bound, every deadlock and every valuation of the observed variables reachable by some execution is
+ * covered. Beyond it the search is incomplete: {@link ReachabilityResult#holds()} only means that no accepting state
+ * was found. The bound is mandatory: without a visited set, the search would never leave a cycle of the soup.
+ */
+public class StatelessSearch {
+    final SemanticRelation<AnonymousPiece, Environment> semantics;
+    final Soup model;
+    final Independence independence;
+    /** the pieces writing an observed variable */
+    final BitSet visible = new BitSet();
+    final Predicate<Environment> accepting;
+    final int depthBound;
+
+    long states;
+    long transitions;
+    long executions;
+    long sleepBlocked;
+    long truncated;
+
+    /**
+     * @param observed the variables read by the accepting predicate
+     * @param depthBound the length of the longest explored execution
+     */
+    public StatelessSearch(
+            SoupSemantics semantics,
+            Predicate<Environment> accepting,
+            Collection<String> observed,
+            int depthBound) {
+        if (depthBound < 0) {
+            throw new IllegalArgumentException("The stateless search needs a depth bound, got " + depthBound);
+        }
+        this.semantics = semantics.pureSemantics();
+        this.model = semantics.model();
+        this.independence = new Independence(model);
+        for (int i = 0; i < model.pieces.size(); i++) {
+            if (independence.writes(i).stream().anyMatch(observed::contains)) visible.set(i);
+        }
+        this.accepting = accepting;
+        this.depthBound = depthBound;
+    }
+
+    static final class Frame {
+        final Environment state;
+        final BitSet enabled = new BitSet();
+        final BitSet backtrack = new BitSet();
+        final BitSet done = new BitSet();
+        final BitSet sleep;
+        /** the piece fired from this state, -1 before the first */
+        int piece = -1;
+        List<Environment> targets = List.of();
+        int next;
+        /** the positions of the trace whose piece happens before the piece fired here, this one included */
+        BitSet happensBefore;
+        BitSet childSleep;
+        boolean fired;
+
+        Frame(Environment state, BitSet sleep) {
+            this.state = state;
+            this.sleep = sleep;
+        }
+    }
+
+    boolean dependent(int first, int second) {
+        return !independence.independent(first, second) || visible.get(first) && visible.get(second);
+    }
+
+    public ReachabilityResult run() {
+        for (var initial : semantics.initial()) {
+            var stack = new ArrayList<Frame>();
+            if (push(stack, new Frame(initial, new BitSet()))) return counterexample(stack);
+            while (!stack.isEmpty()) {
+                var frame = stack.getLast();
+                if (frame.next < frame.targets.size()) {
+                    var target = frame.targets.get(frame.next++);
+                    transitions++;
+                    if (push(stack, new Frame(target, (BitSet) frame.childSleep.clone()))) {
+                        return counterexample(stack);
+                    }
+                    continue;
+                }
+                if (frame.piece >= 0) frame.sleep.set(frame.piece);
+                if (!fire(stack, frame)) {
+                    if (!frame.fired) executions++;
+                    stack.removeLast();
+                }
+            }
+        }
+        return new ReachabilityResult(true, List.of(), List.of(), states, transitions, report());
+    }
+
+    /**
+     * Pushes a new state, records its races and picks the first piece to explore from it, unless it lies at the depth
+     * bound: its races still make the states above it backtrack.
+     *
+     * @return true if the state is accepting
+     */
+    boolean push(List<Frame> stack, Frame frame) {
+        states++;
+        stack.add(frame);
+        if (accepting.test(frame.state)) return true;
+        for (var action : semantics.actions(frame.state)) {
+            frame.enabled.set(independence.indexOf(action));
+        }
+        for (int piece = 0; piece < model.pieces.size(); piece++) {
+            race(stack, piece);
+        }
+        if (stack.size() > depthBound) {
+            if (!frame.enabled.isEmpty()) truncated++;
+            return false;
+        }
+        var first = frame.enabled.stream().filter(piece -> !frame.sleep.get(piece)).findFirst();
+        if (first.isPresent()) {
+            frame.backtrack.set(first.getAsInt());
+        } else if (!frame.enabled.isEmpty()) {
+            sleepBlocked++;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the last piece of the trace that depends on the piece and does not happen before it, and makes its state
+     * backtrack on the piece.
+     */
+    void race(List<Frame> stack, int piece) {
+        var trace = stack.size() - 1;
+        var last = -1;
+        for (int i = trace - 1; i >= 0; i--) {
+            if (stack.get(i).piece == piece) {
+                last = i;
+                break;
+            }
+        }
+        for (int i = trace - 1; i >= 0; i--) {
+            var frame = stack.get(i);
+            if (!dependent(frame.piece, piece)) continue;
+            if (last >= 0 && stack.get(last).happensBefore.get(i)) continue;
+            if (frame.enabled.get(piece)) {
+                frame.backtrack.set(piece);
+            } else {
+                frame.backtrack.or(frame.enabled);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Fires the next piece the state backtracks on, skipping the explored and sleeping ones.
+     *
+     * @return false if none is left
+     */
+    boolean fire(List<Frame> stack, Frame frame) {
+        var pending = (BitSet) frame.backtrack.clone();
+        pending.andNot(frame.done);
+        pending.andNot(frame.sleep);
+        pending.and(frame.enabled);
+        var piece = pending.nextSetBit(0);
+        if (piece < 0) return false;
+        frame.done.set(piece);
+        frame.fired = true;
+        frame.piece = piece;
+        frame.targets = semantics.execute(model.pieces.get(piece), frame.state);
+        frame.next = 0;
+
+        var position = stack.size() - 1;
+        frame.happensBefore = new BitSet(position + 1);
+        frame.happensBefore.set(position);
+        for (int i = 0; i < position; i++) {
+            var before = stack.get(i);
+            if (!frame.happensBefore.get(i) && dependent(before.piece, piece)) {
+                frame.happensBefore.or(before.happensBefore);
+            }
+        }
+        frame.childSleep = new BitSet();
+        for (var sleeping = frame.sleep.nextSetBit(0); sleeping >= 0; sleeping = frame.sleep.nextSetBit(sleeping + 1)) {
+            if (!dependent(sleeping, piece)) frame.childSleep.set(sleeping);
+        }
+        return true;
+    }
+
+    String report() {
+        return "stateless, %d executions, %d sleep-set blocked, %d truncated at depth %d"
+                .formatted(executions, sleepBlocked, truncated, depthBound);
+    }
+
+    ReachabilityResult counterexample(List<Frame> stack) {
+        var trace = new ArrayList<Environment>();
+        var actions = new ArrayList<AnonymousPiece>();
+        for (var frame : stack) {
+            trace.add(frame.state);
+        }
+        for (int i = 0; i < stack.size() - 1; i++) {
+            actions.add(model.pieces.get(stack.get(i).piece));
+        }
+        return new ReachabilityResult(false, trace, actions, states, transitions, report());
+    }
+}
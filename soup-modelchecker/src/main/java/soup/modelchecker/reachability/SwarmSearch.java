@@ -0,0 +1,188 @@
+package soup.modelchecker.reachability;
+
+import obp3.runtime.sli.SemanticRelation;
+import soup.modelchecker.store.OffHeapStateStore;
+import soup.modelchecker.store.StateStore;
+import soup.modelchecker.store.StateStoreFullException;
+import soup.semantics.base.Environment;
+import soup.syntax.model.declarations.pieces.AnonymousPiece;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * Swarm verification: many independent depth-first searches for an accepting state, each with its own order of the
+ * pieces, depth bound and state store, run in parallel on a small memory budget each. None of them is meant to
+ * finish, but together they cover different parts of a state space too large for an exhaustive search.
+ * <p>
+ * Worker {@code i} draws from the seed {@code seed + i} a random generator that permutes the pieces returned by
+ * {@link SemanticRelation#actions} in every state, a depth bound between half the maximal depth and the maximal depth,
+ * and the hash seed given to the factory of its store. A worker whose store is full, with a
+ * {@link StateStoreFullException}, just ends; any other failure stops the swarm and is rethrown. The first
+ * counterexample found stops all the workers.
+ * <p>
+ * {@link ReachabilityResult#holds()} only means that no worker found an accepting state; the report tells how many
+ * workers exhausted their search and how many ran out of memory.
+ */
+public class SwarmSearch {
+    final SemanticRelation<AnonymousPiece, Environment> semantics;
+    final Predicate<Environment> accepting;
+    final int workers;
+    final long seed;
+    final int maxDepth;
+    final LongFunction<StateStore> stores;
+    final boolean virtualThreads;
+
+    final ConcurrentLinkedQueue<Reachability<?, ?>> running = new ConcurrentLinkedQueue<>();
+    final AtomicReference<ReachabilityResult> found = new AtomicReference<>();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final AtomicInteger winner = new AtomicInteger(-1);
+    final LongAdder states = new LongAdder();
+    final LongAdder transitions = new LongAdder();
+    final AtomicInteger exhausted = new AtomicInteger();
+    final AtomicInteger outOfMemory = new AtomicInteger();
+
+    /**
+     * Runs each worker on an {@link OffHeapStateStore} of at most {@code memoryBytes}, seeded with its hash seed.
+     */
+    public SwarmSearch(
+            SemanticRelation<AnonymousPiece, Environment> semantics,
+            Predicate<Environment> accepting,
+            int workers,
+            long seed,
+            int maxDepth,
+            long memoryBytes) {
+        this(semantics, accepting, workers, seed, maxDepth, hashSeed -> new OffHeapStateStore(1 << 10, memoryBytes, hashSeed), true);
+    }
+
+    /**
+     * @param maxDepth the largest depth bound of a worker; it is mandatory, since the bounds diversify the workers and
+     *                 bound the stacks of states they keep on the heap besides their store
+     * @param stores creates the store of a worker from its hash seed
+     * @param virtualThreads if true, the workers run on virtual threads, else on platform threads
+     */
+    public SwarmSearch(
+            SemanticRelation<AnonymousPiece, Environment> semantics,
+            Predicate<Environment> accepting,
+            int workers,
+            long seed,
+            int maxDepth,
+            LongFunction<StateStore> stores,
+            boolean virtualThreads) {
+        if (workers < 1) throw new IllegalArgumentException("At least one worker is needed, got " + workers);
+        if (maxDepth < 0) throw new IllegalArgumentException("The swarm needs a depth bound, got " + maxDepth);
+        this.semantics = semantics;
+        this.accepting = accepting;
+        this.workers = workers;
+        this.seed = seed;
+        this.maxDepth = maxDepth;
+        this.stores = stores;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * The semantics with the enabled pieces of every state in a random order.
+     */
+    record Shuffled(SemanticRelation<AnonymousPiece, Environment> semantics, Random random)
+            implements SemanticRelation<AnonymousPiece, Environment> {
+        @Override
+        public List<Environment> initial() {
+            return semantics.initial();
+        }
+
+        @Override
+        public List<AnonymousPiece> actions(Environment configuration) {
+            var actions = new ArrayList<>(semantics.actions(configuration));
+            Collections.shuffle(actions, random);
+            return actions;
+        }
+
+        @Override
+        public List<Environment> execute(AnonymousPiece action, Environment configuration) {
+            return semantics.execute(action, configuration);
+        }
+    }
+
+    /**
+     * @return the index of the worker that found the counterexample, -1 if none did
+     */
+    public int winner() {
+        return winner.get();
+    }
+
+    public ReachabilityResult run() {
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < workers; i++) {
+            var id = i;
+            var builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform();
+            threads.add(builder.name("swarm-" + i).start(() -> work(id)));
+        }
+        for (var thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                stopAll();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the swarm", e);
+            }
+        }
+        switch (failure.get()) {
+            case null -> { }
+            case RuntimeException e -> throw e;
+            case Error e -> throw e;
+            case Throwable e -> throw new RuntimeException(e);
+        }
+        var result = found.get();
+        if (result != null) {
+            return new ReachabilityResult(
+                    false, result.trace(), result.actions(), states.sum(), transitions.sum(), report());
+        }
+        return new ReachabilityResult(true, List.of(), List.of(), states.sum(), transitions.sum(), report());
+    }
+
+    void work(int id) {
+        var random = new Random(seed + id);
+        var depthBound = maxDepth / 2 + random.nextInt(maxDepth - maxDepth / 2 + 1);
+        try (var store = stores.apply(random.nextLong())) {
+            var search = Reachability.of(new Shuffled(semantics, random), accepting, store, depthBound);
+            running.add(search);
+            if (found.get() != null || failure.get() != null) return;
+            try {
+                var result = search.run();
+                if (!result.holds()) {
+                    if (found.compareAndSet(null, result)) winner.set(id);
+                    stopAll();
+                } else if (!search.stopped) {
+                    exhausted.incrementAndGet();
+                }
+            } catch (StateStoreFullException e) {
+                outOfMemory.incrementAndGet();
+            } finally {
+                states.add(store.size());
+                transitions.add(search.transitions);
+            }
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            stopAll();
+        }
+    }
+
+    void stopAll() {
+        for (var search : running) {
+            search.stop();
+        }
+    }
+
+    String report() {
+        var summary = "swarm of %d, %d exhausted, %d out of memory".formatted(workers, exhausted.get(), outOfMemory.get());
+        return winner() < 0 ? summary : summary + ", found by worker " + winner();
+    }
+}
@@ -0,0 +1,143 @@
+package soup.modelchecker.store;
+
+import soup.semantics.base.Environment;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bitstate (supertrace) visited set: a Bloom filter keeping {@code k} bits per state in a bit array, instead of
+ * the states themselves.
+ * <p>
+ * The bit positions are derived by double hashing from the state {@link Environment#hash64()} mixed with a seed, so
+ * that stores of different seeds lose different states. A new state whose {@code k} bits happen to be set already is
+ * taken for a visited one and its successors may never be explored: the search is no longer exhaustive, but covers
+ * far more states than an exact store in the same memory.
+ * <p>
+ * The report estimates, from the number of states and the size of the array, the probability that the next new state
+ * is lost, {@code (1 - e^(-kn/m))^k}, and the coverage, the share of the states met that were not lost. Bits are set
+ * with atomic operations, so threads may share the store.
+ */
+public class BitstateStore implements StateStore {
+    static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    final long[] words;
+    final long bits;
+    final int hashes;
+    final long seed;
+    final LongAdder count = new LongAdder();
+    final LongAdder setBits = new LongAdder();
+
+    public BitstateStore(long megabytes, int hashes) {
+        this(megabytes, hashes, 0);
+    }
+
+    /**
+     * @param megabytes the size of the bit array
+     * @param hashes the number {@code k} of bits per state
+     * @param seed the seed of the hash function
+     */
+    public BitstateStore(long megabytes, int hashes, long seed) {
+        if (megabytes < 1 || megabytes > (long) Integer.MAX_VALUE * Long.BYTES >> 20) {
+            throw new IllegalArgumentException("The bit array size must be between 1 MB and 16 GB, got " + megabytes);
+        }
+        if (hashes < 1 || hashes > 32) {
+            throw new IllegalArgumentException("The number of bits per state must be between 1 and 32, got " + hashes);
+        }
+        this.words = new long[(int) (megabytes << 20 >> 3)];
+        this.bits = (long) words.length * Long.SIZE;
+        this.hashes = hashes;
+        this.seed = seed;
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public boolean add(Environment state) {
+        return addHash(state.hash64());
+    }
+
+    @Override
+    public boolean contains(Environment state) {
+        return containsHash(state.hash64());
+    }
+
+    @Override
+    public boolean addHash(long hash) {
+        var h1 = mix(hash ^ seed);
+        var h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        var fresh = false;
+        for (int i = 0; i < hashes; i++) {
+            var bit = Math.unsignedMultiplyHigh(h1 + i * h2, bits);
+            var mask = 1L << bit;
+            var previous = (long) WORDS.getAndBitwiseOr(words, (int) (bit >>> 6), mask);
+            if ((previous & mask) == 0) {
+                fresh = true;
+                setBits.increment();
+            }
+        }
+        if (fresh) count.increment();
+        return fresh;
+    }
+
+    public boolean containsHash(long hash) {
+        var h1 = mix(hash ^ seed);
+        var h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            var bit = Math.unsignedMultiplyHigh(h1 + i * h2, bits);
+            if (((long) WORDS.getVolatile(words, (int) (bit >>> 6)) & 1L << bit) == 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public long size() {
+        return count.sum();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    /**
+     * @return the share of the bits set
+     */
+    public double fill() {
+        return (double) setBits.sum() / bits;
+    }
+
+    /**
+     * @return the probability that a new state is taken for a visited one once {@code states} are stored
+     */
+    public double omissionProbability(long states) {
+        return Math.pow(-Math.expm1(-(double) hashes * states / bits), hashes);
+    }
+
+    /**
+     * @return the estimated share of the new states met that were stored rather than lost, the omissions summed over
+     * the growth of the store
+     */
+    public double coverage() {
+        var stored = size();
+        if (stored == 0) return 1;
+        var steps = 1024;
+        var omitted = 0.0;
+        for (int i = 0; i < steps; i++) {
+            omitted += omissionProbability(stored * (2L * i + 1) / (2L * steps));
+        }
+        omitted *= (double) stored / steps;
+        return stored / (stored + omitted);
+    }
+
+    @Override
+    public String report() {
+        return "%d states, %d bytes, %d bits per state, fill %.4f, omission probability %.2e, estimated coverage %.6f"
+                .formatted(size(), memoryBytes(), hashes, fill(), omissionProbability(size()), coverage());
+    }
+}
@@ -0,0 +1,163 @@
+package soup.modelchecker.store;
+
+import soup.semantics.base.Environment;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A hash compaction visited set: only a 64-bit fingerprint of each state is kept, in an open-addressing table of
+ * {@code long} slots with linear probing, so a state costs 8 bytes over the load factor.
+ * <p>
+ * The fingerprint is the state {@link Environment#hash64()} mixed with a seed, zero meaning an empty slot. Two states
+ * of the same fingerprint are taken for one and the second is omitted with its successors; the report gives the
+ * probability that any state was omitted, {@code 1 - e^(-n(n-1)/2^65)} for {@code n} states, negligible below
+ * billions of states. The store cannot give back the states of a counterexample: the sequential
+ * {@link soup.modelchecker.reachability.Reachability} takes them from the path on its stack, and
+ * {@link soup.modelchecker.reachability.ParallelReachability}, which drops them, rebuilds them with
+ * {@link soup.modelchecker.reachability.Reachability#replay}.
+ * <p>
+ * Insertion claims a slot with a compare-and-set, and the table doubles once it is {@link #LOAD_FACTOR} full under the
+ * write side of a {@link StampedLock}. Every lookup holds its read side, while those of {@link OffHeapStateStore} read
+ * optimistically: the slots are plain Java arrays, so holding the read lock costs little next to probing them.
+ */
+public class HashCompactionStore implements StateStore {
+    static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    static final double LOAD_FACTOR = 0.75;
+    static final int MAX_SLOTS = 1 << 30;
+
+    final long seed;
+    final AtomicLong count = new AtomicLong();
+    final StampedLock resizeLock = new StampedLock();
+    volatile long[] slots;
+    volatile long threshold;
+
+    public HashCompactionStore() {
+        this(1 << 16, 0);
+    }
+
+    /**
+     * @param capacity the initial number of slots, rounded up to a power of two
+     * @param seed the seed of the fingerprints
+     */
+    public HashCompactionStore(int capacity, long seed) {
+        this.seed = seed;
+        var size = Integer.highestOneBit(Math.clamp(capacity - 1, 1, MAX_SLOTS >> 1)) << 1;
+        this.slots = new long[size];
+        this.threshold = (long) (size * LOAD_FACTOR);
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    long fingerprint(long hash) {
+        var fingerprint = mix(hash ^ seed);
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    @Override
+    public boolean add(Environment state) {
+        return addHash(state.hash64());
+    }
+
+    @Override
+    public boolean contains(Environment state) {
+        return containsHash(state.hash64());
+    }
+
+    @Override
+    public boolean addHash(long hash) {
+        var fingerprint = fingerprint(hash);
+        var added = false;
+        var stamp = resizeLock.readLock();
+        try {
+            var table = slots;
+            var mask = table.length - 1;
+            for (var i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                var slot = (long) SLOTS.getVolatile(table, i);
+                if (slot == 0) {
+                    if (SLOTS.compareAndSet(table, i, 0L, fingerprint)) {
+                        added = true;
+                        break;
+                    }
+                    slot = (long) SLOTS.getVolatile(table, i);
+                }
+                if (slot == fingerprint) break;
+            }
+        } finally {
+            resizeLock.unlockRead(stamp);
+        }
+        if (added && count.incrementAndGet() > threshold) {
+            resize();
+        }
+        return added;
+    }
+
+    public boolean containsHash(long hash) {
+        var fingerprint = fingerprint(hash);
+        var stamp = resizeLock.readLock();
+        try {
+            var table = slots;
+            var mask = table.length - 1;
+            for (var i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                var slot = (long) SLOTS.getVolatile(table, i);
+                if (slot == 0) return false;
+                if (slot == fingerprint) return true;
+            }
+        } finally {
+            resizeLock.unlockRead(stamp);
+        }
+    }
+
+    void resize() {
+        var stamp = resizeLock.writeLock();
+        try {
+            if (count.get() <= threshold) return;
+            var old = slots;
+            if (old.length >= MAX_SLOTS) {
+                throw new StateStoreFullException("The hash compaction table is full");
+            }
+            var table = new long[old.length << 1];
+            var mask = table.length - 1;
+            for (var fingerprint : old) {
+                if (fingerprint == 0) continue;
+                var i = (int) fingerprint & mask;
+                while (table[i] != 0) i = (i + 1) & mask;
+                table[i] = fingerprint;
+            }
+            threshold = (long) (table.length * LOAD_FACTOR);
+            slots = table;
+        } finally {
+            resizeLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long size() {
+        return count.get();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    /**
+     * @return the probability that two of the states stored share their fingerprint, one of them being omitted
+     */
+    public double omissionProbability() {
+        var states = (double) size();
+        return -Math.expm1(-states * (states - 1) / 0x1p65);
+    }
+
+    @Override
+    public String report() {
+        return "%d states, %d slots, %d bytes, omission probability %.2e"
+                .formatted(size(), slots.length, memoryBytes(), omissionProbability());
+    }
+}
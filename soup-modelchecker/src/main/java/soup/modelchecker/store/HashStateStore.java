@@ -0,0 +1,45 @@
+package soup.modelchecker.store;
+
+import soup.semantics.base.Environment;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the environments themselves in a concurrent hash set; the exact reference store.
+ * A pair of states is stored as the list of both.
+ */
+public class HashStateStore implements StateStore {
+    final Set<Object> states = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public boolean add(Environment state) {
+        return states.add(state);
+    }
+
+    @Override
+    public boolean add(Environment first, Environment second) {
+        return states.add(List.of(first, second));
+    }
+
+    @Override
+    public boolean contains(Environment state) {
+        return states.contains(state);
+    }
+
+    @Override
+    public long size() {
+        return states.size();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return -1;
+    }
+
+    @Override
+    public String report() {
+        return "%d states".formatted(size());
+    }
+}
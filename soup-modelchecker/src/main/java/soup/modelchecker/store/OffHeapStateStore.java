@@ -0,0 +1,352 @@
+package soup.modelchecker.store;
+
+import soup.semantics.base.Environment;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A visited set keeping the packed state vectors (see {@link Environment#packed()}) outside the Java heap.
+ * <p>
+ * States are appended to fixed-size records {@code [hash64, word_0 .. word_n-1]} in data chunks allocated on demand,
+ * of {@code 2^}{@value #CHUNK_RECORD_BITS} records or an eighth of the memory budget if that is smaller.
+ * The index is an open-addressing table of {@code long} buckets with linear probing; a bucket holds the top
+ * {@value #TAG_BITS} bits of the state hash and the record number plus one, zero meaning empty.
+ * Insertion claims a bucket with a compare-and-set, so threads add states without locking each other.
+ * The table doubles once it is {@link #LOAD_FACTOR} full: resizing takes the write side of a {@link StampedLock}
+ * and rehashes from the hashes stored in the records. Lookups run under an optimistic read of the lock, validated
+ * once done, and only retry under its read side when a resize intervened; an insertion into the old table is then
+ * found again, or redone, in the new one. As optimistic readers may still probe a replaced table, it is only released
+ * by {@link #close()}: the replaced tables stay counted in {@link #memoryBytes()}, and add up to less than the current
+ * one.
+ * <p>
+ * The store only accepts slot-backed environments of a single layout, or pairs of them whose words are put one after
+ * the other. The memory it allocates is reported by
+ * {@link #memoryBytes()}; allocations beyond {@code maxBytes} fail with a {@link StateStoreFullException}.
+ * The memory is released by {@link #close()}.
+ */
+public class OffHeapStateStore implements StateStore {
+    static final VarHandle LONG = ValueLayout.JAVA_LONG.varHandle();
+    static final int TAG_BITS = 24;
+    static final int RECORD_BITS = 64 - TAG_BITS;
+    static final long RECORD_MASK = (1L << RECORD_BITS) - 1;
+    static final double LOAD_FACTOR = 0.5;
+    static final int CHUNK_RECORD_BITS = 14;
+    static final int MAX_CHUNKS = 1 << 16;
+
+    final long maxBytes;
+    /** salts the bucket index, so that stores with different seeds lay out and probe the same states differently */
+    final long seed;
+    final Arena dataArena = Arena.ofShared();
+    final AtomicReferenceArray<MemorySegment> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    final AtomicLong records = new AtomicLong();
+    final AtomicLong count = new AtomicLong();
+    final AtomicLong allocated = new AtomicLong();
+    final StampedLock resizeLock = new StampedLock();
+
+    /** the index, replaced as a whole by a resize */
+    record Table(Arena arena, MemorySegment segment, long mask) {}
+
+    volatile Table table;
+    /** the tables replaced by a resize, guarded by the write side of the lock */
+    final List<Table> retired = new ArrayList<>();
+    volatile long threshold;
+
+    /** the number of words of a state, fixed by the first state added */
+    volatile int words = -1;
+    long recordBytes;
+    int chunkRecordBits;
+
+    public OffHeapStateStore() {
+        this(1 << 16, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param capacity the initial number of buckets, rounded up to a power of two
+     * @param maxBytes the memory budget of the store, index and records included
+     */
+    public OffHeapStateStore(long capacity, long maxBytes) {
+        this(capacity, maxBytes, 0);
+    }
+
+    /**
+     * @param capacity the initial number of buckets, rounded up to a power of two
+     * @param maxBytes the memory budget of the store, index and records included
+     * @param seed the hash seed of the bucket index
+     */
+    public OffHeapStateStore(long capacity, long maxBytes, long seed) {
+        this.maxBytes = maxBytes;
+        this.seed = seed;
+        var buckets = Long.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        table = allocateTable(buckets);
+        threshold = (long) (buckets * LOAD_FACTOR);
+    }
+
+    Table allocateTable(long buckets) {
+        var bytes = buckets * Long.BYTES;
+        reserve(bytes);
+        var arena = Arena.ofShared();
+        try {
+            var segment = arena.allocate(bytes, Long.BYTES);
+            segment.fill((byte) 0);
+            return new Table(arena, segment, buckets - 1);
+        } catch (RuntimeException | Error e) {
+            arena.close();
+            allocated.addAndGet(-bytes);
+            throw e;
+        }
+    }
+
+    void reserve(long bytes) {
+        if (allocated.addAndGet(bytes) > maxBytes) {
+            allocated.addAndGet(-bytes);
+            throw new StateStoreFullException("The state store exceeds its memory budget of " + maxBytes + " bytes");
+        }
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    static long tag(long hash) {
+        return hash >>> RECORD_BITS;
+    }
+
+    int wordsOf(PackedState state) {
+        if (!state.isSlotBacked()) {
+            throw new IllegalArgumentException("The off-heap state store only accepts slot-backed environments");
+        }
+        var wordCount = state.wordCount();
+        if (words < 0) {
+            synchronized (this) {
+                if (words < 0) {
+                    recordBytes = (1L + wordCount) * Long.BYTES;
+                    var bits = CHUNK_RECORD_BITS;
+                    while (bits > 0 && recordBytes << bits > maxBytes / 8) bits--;
+                    chunkRecordBits = bits;
+                    words = wordCount;
+                }
+            }
+        }
+        if (wordCount != words) {
+            throw new IllegalArgumentException("The state has " + wordCount + " words, the store holds " + words);
+        }
+        return wordCount;
+    }
+
+    MemorySegment chunk(long record) {
+        var index = (int) (record >>> chunkRecordBits);
+        var chunk = chunks.get(index);
+        if (chunk != null) return chunk;
+        synchronized (chunks) {
+            chunk = chunks.get(index);
+            if (chunk == null) {
+                var bytes = recordBytes << chunkRecordBits;
+                reserve(bytes);
+                chunk = dataArena.allocate(bytes, Long.BYTES);
+                chunks.set(index, chunk);
+            }
+            return chunk;
+        }
+    }
+
+    long offset(long record) {
+        return (record & ((1L << chunkRecordBits) - 1)) * recordBytes;
+    }
+
+    long writeRecord(PackedState state, long hash) {
+        var record = records.getAndIncrement();
+        if (record >= (long) MAX_CHUNKS << chunkRecordBits) {
+            throw new StateStoreFullException("The state store is full");
+        }
+        var chunk = chunk(record);
+        var offset = offset(record);
+        chunk.set(ValueLayout.JAVA_LONG, offset, hash);
+        for (int i = 0; i < words; i++) {
+            chunk.set(ValueLayout.JAVA_LONG, offset + (i + 1L) * Long.BYTES, state.word(i));
+        }
+        return record;
+    }
+
+    boolean recordEquals(long record, PackedState state, long hash) {
+        var chunk = chunk(record);
+        var offset = offset(record);
+        if (chunk.get(ValueLayout.JAVA_LONG, offset) != hash) return false;
+        for (int i = 0; i < words; i++) {
+            if (chunk.get(ValueLayout.JAVA_LONG, offset + (i + 1L) * Long.BYTES) != state.word(i)) return false;
+        }
+        return true;
+    }
+
+    long recordHash(long record) {
+        return chunk(record).get(ValueLayout.JAVA_LONG, offset(record));
+    }
+
+    /**
+     * Claims a bucket of the table for the state, or finds the record holding it.
+     *
+     * @param record the record already written for the state by an insertion into an older table, -1 if none
+     * @return the record claimed for the state, or {@code -1 - r} if it is already stored as record {@code r}
+     */
+    long insert(Table table, PackedState state, long hash, long mixed, long record) {
+        var tag = tag(mixed);
+        var segment = table.segment();
+        var mask = table.mask();
+        var i = mixed & mask;
+        for (var probes = 0L; probes <= mask; probes++, i = (i + 1) & mask) {
+            var bucket = (long) LONG.getVolatile(segment, i * Long.BYTES);
+            if (bucket == 0) {
+                if (record < 0) record = writeRecord(state, hash);
+                var entry = tag << RECORD_BITS | (record + 1);
+                if (LONG.compareAndSet(segment, i * Long.BYTES, 0L, entry)) return record;
+                bucket = (long) LONG.getVolatile(segment, i * Long.BYTES);
+            }
+            if (bucket >>> RECORD_BITS != tag) continue;
+            var found = (bucket & RECORD_MASK) - 1;
+            // our own record, copied over by the resize
+            if (found == record) return record;
+            if (recordEquals(found, state, hash)) return -1 - found;
+        }
+        // only reached when resizes failed, the budget being spent
+        throw new StateStoreFullException("The state store is full");
+    }
+
+    boolean find(Table table, PackedState state, long hash, long mixed) {
+        var tag = tag(mixed);
+        var segment = table.segment();
+        var mask = table.mask();
+        var i = mixed & mask;
+        for (var probes = 0L; probes <= mask; probes++, i = (i + 1) & mask) {
+            var bucket = (long) LONG.getVolatile(segment, i * Long.BYTES);
+            if (bucket == 0) return false;
+            if (bucket >>> RECORD_BITS == tag && recordEquals((bucket & RECORD_MASK) - 1, state, hash)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean add(Environment state) {
+        return add(PackedState.of(state));
+    }
+
+    @Override
+    public boolean add(Environment first, Environment second) {
+        return add(PackedState.of(first, second));
+    }
+
+    boolean add(PackedState state) {
+        wordsOf(state);
+        var hash = state.hash64();
+        var mixed = mix(hash ^ seed);
+        var claimed = -1L;
+        var stamp = resizeLock.tryOptimisticRead();
+        if (stamp != 0) {
+            claimed = insert(table, state, hash, mixed, -1);
+            if (resizeLock.validate(stamp)) return added(claimed >= 0);
+        }
+        stamp = resizeLock.readLock();
+        long result;
+        try {
+            result = insert(table, state, hash, mixed, claimed);
+        } finally {
+            resizeLock.unlockRead(stamp);
+        }
+        return added(result >= 0);
+    }
+
+    boolean added(boolean added) {
+        if (added && count.incrementAndGet() > threshold) {
+            resize();
+        }
+        return added;
+    }
+
+    @Override
+    public boolean contains(Environment environment) {
+        var state = PackedState.of(environment);
+        wordsOf(state);
+        var hash = state.hash64();
+        var mixed = mix(hash ^ seed);
+        var stamp = resizeLock.tryOptimisticRead();
+        if (stamp != 0) {
+            var found = find(table, state, hash, mixed);
+            if (resizeLock.validate(stamp)) return found;
+        }
+        stamp = resizeLock.readLock();
+        try {
+            return find(table, state, hash, mixed);
+        } finally {
+            resizeLock.unlockRead(stamp);
+        }
+    }
+
+    void resize() {
+        var stamp = resizeLock.writeLock();
+        try {
+            if (count.get() <= threshold) return;
+            var old = table;
+            var oldBuckets = old.mask() + 1;
+            var resized = allocateTable(oldBuckets << 1);
+            var segment = resized.segment();
+            var mask = resized.mask();
+            for (long j = 0; j < oldBuckets; j++) {
+                var bucket = old.segment().get(ValueLayout.JAVA_LONG, j * Long.BYTES);
+                if (bucket == 0) continue;
+                var i = mix(recordHash((bucket & RECORD_MASK) - 1) ^ seed) & mask;
+                while (segment.get(ValueLayout.JAVA_LONG, i * Long.BYTES) != 0) i = (i + 1) & mask;
+                segment.set(ValueLayout.JAVA_LONG, i * Long.BYTES, bucket);
+            }
+            table = resized;
+            threshold = (long) ((mask + 1) * LOAD_FACTOR);
+            retired.add(old);
+        } finally {
+            resizeLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long size() {
+        return count.get();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return allocated.get();
+    }
+
+    /**
+     * @return the number of buckets of the index
+     */
+    public long capacity() {
+        return table.mask() + 1;
+    }
+
+    @Override
+    public String report() {
+        return "%d states, %d buckets, %d bytes off-heap".formatted(size(), capacity(), memoryBytes());
+    }
+
+    @Override
+    public void close() {
+        var stamp = resizeLock.writeLock();
+        try {
+            for (var old : retired) {
+                old.arena().close();
+            }
+            retired.clear();
+            table.arena().close();
+            dataArena.close();
+        } finally {
+            resizeLock.unlockWrite(stamp);
+        }
+    }
+}
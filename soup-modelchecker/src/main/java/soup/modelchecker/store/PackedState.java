@@ -0,0 +1,37 @@
+package soup.modelchecker.store;
+
+import soup.semantics.base.Environment;
+
+/**
+ * The packed words of a state kept by the exact stores: those of an environment, or those of the two environments of
+ * a pair, such as a product state, one after the other.
+ *
+ * @param second the second environment of the pair, null for a single environment
+ */
+record PackedState(Environment first, Environment second) {
+    static PackedState of(Environment state) {
+        return new PackedState(state, null);
+    }
+
+    static PackedState of(Environment first, Environment second) {
+        return new PackedState(first, second);
+    }
+
+    boolean isSlotBacked() {
+        return first.isSlotBacked() && (second == null || second.isSlotBacked());
+    }
+
+    int wordCount() {
+        var words = first.layout().wordCount();
+        return second == null ? words : words + second.layout().wordCount();
+    }
+
+    long word(int index) {
+        var words = first.layout().wordCount();
+        return index < words ? first.packedWord(index) : second.packedWord(index - words);
+    }
+
+    long hash64() {
+        return second == null ? first.hash64() : StateStore.hash(first, second);
+    }
+}
@@ -0,0 +1,60 @@
+package soup.modelchecker.store;
+
+import soup.semantics.base.Environment;
+
+/**
+ * The set of visited states of an exploration.
+ * Implementations may be shared between threads, see the documentation of each store.
+ */
+public interface StateStore extends AutoCloseable {
+    /**
+     * @return true if the state was not in the store before
+     */
+    boolean add(Environment state);
+
+    boolean contains(Environment state);
+
+    /**
+     * Adds a pair of states as a single state, such as a state of the product of a model with a property.
+     * The stores keeping hashes only add the {@linkplain #hash(Environment, Environment) hash of the pair}, the exact
+     * ones override it to keep both states.
+     *
+     * @return true if the pair was not in the store before
+     */
+    default boolean add(Environment first, Environment second) {
+        return addHash(hash(first, second));
+    }
+
+    /**
+     * Adds a state known by a 64-bit hash only; only the stores keeping no more than hashes of the states support it.
+     *
+     * @return true if the hash was not in the store before
+     */
+    default boolean addHash(long hash) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " stores whole states, not hashes");
+    }
+
+    /**
+     * @return the hash of a pair of states, which depends on their order
+     */
+    static long hash(Environment first, Environment second) {
+        return first.hash64() * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(second.hash64(), 31);
+    }
+
+    /**
+     * @return the number of states in the store
+     */
+    long size();
+
+    /**
+     * @return the number of bytes the store allocated for its states and indexes
+     */
+    long memoryBytes();
+
+    default String report() {
+        return "%d states, %d bytes".formatted(size(), memoryBytes());
+    }
+
+    @Override
+    default void close() {}
+}
@@ -0,0 +1,12 @@
+package soup.modelchecker.store;
+
+/**
+ * Thrown when a state store cannot hold another state, having reached its memory budget or the capacity of its table.
+ * Searches that run on a bounded store, such as {@link soup.modelchecker.reachability.SwarmSearch}, catch it to end
+ * gracefully, while other failures still propagate.
+ */
+public class StateStoreFullException extends IllegalStateException {
+    public StateStoreFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,203 @@
+package soup.modelchecker.store;
+
+import soup.semantics.base.Environment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A visited set compressing the packed state vectors (see {@link Environment#packed()}) into a tree of shared
+ * sub-vectors, in the style of the SPIN collapse mode and the LTSmin tree database.
+ * <p>
+ * The words of a state vector are the leaves of a fixed balanced binary tree. Every inner node position owns a table
+ * interning the pairs of values of its two children: a raw word for a leaf child, the index in the child's table
+ * otherwise. A state is then identified by the index of its pair in the root table, and states that differ in a few
+ * variables share all the sub-vectors they have in common, so each new state usually costs a couple of table entries.
+ * <p>
+ * The store only accepts slot-backed environments of a single layout, or pairs of them whose words are put one after
+ * the other. Its methods are synchronized.
+ */
+public class TreeCompressionStore implements StateStore {
+    /** the tables in post-order, the root table last */
+    final List<PairTable> tables = new ArrayList<>();
+    Node root;
+    int words = -1;
+
+    /**
+     * A node position of the tree, covering the words {@code [from, to)}.
+     * A leaf covers exactly one word and has no table.
+     */
+    record Node(int from, int to, Node left, Node right, PairTable table) {
+        boolean isLeaf() {
+            return table == null;
+        }
+    }
+
+    Node build(int from, int to) {
+        if (to - from == 1) return new Node(from, to, null, null, null);
+        var middle = (from + to + 1) >>> 1;
+        var left = build(from, middle);
+        var right = build(middle, to);
+        var table = new PairTable();
+        tables.add(table);
+        return new Node(from, to, left, right, table);
+    }
+
+    void initialize(PackedState state) {
+        if (!state.isSlotBacked()) {
+            throw new IllegalArgumentException("The tree compression store only accepts slot-backed environments");
+        }
+        var wordCount = state.wordCount();
+        if (words < 0) {
+            words = wordCount;
+            // a lone word is paired with itself, so that the root always has a table
+            root = wordCount < 2 ? new Node(0, 1, null, null, new PairTable()) : build(0, wordCount);
+            if (wordCount < 2) tables.add(root.table);
+        }
+        if (wordCount != words) {
+            throw new IllegalArgumentException("The state has " + wordCount + " words, the store holds " + words);
+        }
+    }
+
+    long word(PackedState state, int index) {
+        return index < words ? state.word(index) : 0;
+    }
+
+    /**
+     * @return the value of the node for the state, or -1 if {@code insert} is false and the sub-vector is unknown
+     */
+    long index(Node node, PackedState state, boolean insert) {
+        if (node.isLeaf()) return word(state, node.from);
+        long left, right;
+        if (node.left == null) {
+            left = word(state, node.from);
+            right = left;
+        } else {
+            left = index(node.left, state, insert);
+            if (left < 0 && !node.left.isLeaf()) return -1;
+            right = index(node.right, state, insert);
+            if (right < 0 && !node.right.isLeaf()) return -1;
+        }
+        return insert ? node.table.intern(left, right) : node.table.find(left, right);
+    }
+
+    @Override
+    public boolean add(Environment state) {
+        return add(PackedState.of(state));
+    }
+
+    @Override
+    public boolean add(Environment first, Environment second) {
+        return add(PackedState.of(first, second));
+    }
+
+    synchronized boolean add(PackedState state) {
+        initialize(state);
+        var size = root.table.size;
+        index(root, state, true);
+        return root.table.size > size;
+    }
+
+    @Override
+    public synchronized boolean contains(Environment state) {
+        var packed = PackedState.of(state);
+        initialize(packed);
+        return index(root, packed, false) >= 0;
+    }
+
+    @Override
+    public synchronized long size() {
+        return root == null ? 0 : root.table.size;
+    }
+
+    @Override
+    public synchronized long memoryBytes() {
+        long bytes = 0;
+        for (var table : tables) {
+            bytes += (long) table.keys.length * Long.BYTES + (long) table.buckets.length * Integer.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the number of sub-vector entries interned over all the tables
+     */
+    public synchronized long entries() {
+        long entries = 0;
+        for (var table : tables) {
+            entries += table.size;
+        }
+        return entries;
+    }
+
+    /**
+     * @return the size of the uncompressed state vectors over the size of the interned entries
+     */
+    public synchronized double compressionRatio() {
+        var entries = entries();
+        if (entries == 0) return 1;
+        return (double) size() * Math.max(words, 1) / (2.0 * entries);
+    }
+
+    @Override
+    public synchronized String report() {
+        return "%d states, %d tree entries, compression ratio %.2f, %d bytes".formatted(
+                size(), entries(), compressionRatio(), memoryBytes());
+    }
+
+    /**
+     * Interns pairs of longs, giving each new pair the next index.
+     * The pairs live in {@link #keys} by index; {@link #buckets} is an open-addressing index of {@code index + 1}.
+     */
+    static final class PairTable {
+        long[] keys = new long[32];
+        int[] buckets = new int[32];
+        int size;
+
+        static int hash(long left, long right) {
+            var h = left * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(right * 0xC2B2AE3D27D4EB4FL, 31);
+            h ^= h >>> 29;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        int find(long left, long right) {
+            var mask = buckets.length - 1;
+            for (var i = hash(left, right) & mask; ; i = (i + 1) & mask) {
+                var entry = buckets[i] - 1;
+                if (entry < 0) return -1;
+                if (keys[2 * entry] == left && keys[2 * entry + 1] == right) return entry;
+            }
+        }
+
+        int intern(long left, long right) {
+            var mask = buckets.length - 1;
+            var i = hash(left, right) & mask;
+            for (; ; i = (i + 1) & mask) {
+                var entry = buckets[i] - 1;
+                if (entry < 0) break;
+                if (keys[2 * entry] == left && keys[2 * entry + 1] == right) return entry;
+            }
+            if (size == Integer.MAX_VALUE - 1) {
+                throw new StateStoreFullException("The tree compression table is full");
+            }
+            var entry = size++;
+            if (2 * size > keys.length) keys = Arrays.copyOf(keys, keys.length * 2);
+            keys[2 * entry] = left;
+            keys[2 * entry + 1] = right;
+            buckets[i] = entry + 1;
+            if (2 * size > buckets.length) rehash();
+            return entry;
+        }
+
+        void rehash() {
+            buckets = new int[buckets.length * 2];
+            var mask = buckets.length - 1;
+            for (int entry = 0; entry < size; entry++) {
+                var i = hash(keys[2 * entry], keys[2 * entry + 1]) & mask;
+                while (buckets[i] != 0) i = (i + 1) & mask;
+                buckets[i] = entry + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package soup.modelchecker;
+
+import obp3.runtime.sli.SemanticRelation;
+import org.junit.jupiter.api.Test;
+import soup.modelchecker.emptiness.LassoResult;
+import soup.modelchecker.emptiness.ParallelNestedDfs;
+import soup.modelchecker.emptiness.StepProduct;
+import soup.semantics.base.Environment;
+import soup.semantics.base.SoupSemantics;
+import soup.semantics.dependent.SoupStepDependentSemantics;
+import soup.syntax.Reader;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelNestedDfsTest {
+
+    /** a graph over integers, the action of an edge is its target */
+    record Graph(List<List<Integer>> edges) implements SemanticRelation<Integer, Integer> {
+        @Override
+        public List<Integer> initial() {
+            return List.of(0);
+        }
+
+        @Override
+        public List<Integer> actions(Integer configuration) {
+            return edges.get(configuration);
+        }
+
+        @Override
+        public List<Integer> execute(Integer action, Integer configuration) {
+            return List.of(action);
+        }
+
+        static Graph random(Random random, int size, int degree) {
+            var edges = new ArrayList<List<Integer>>();
+            for (int i = 0; i < size; i++) {
+                var targets = new ArrayList<Integer>();
+                var count = random.nextInt(degree + 1);
+                for (int j = 0; j < count; j++) {
+                    targets.add(random.nextInt(size));
+                }
+                edges.add(targets);
+            }
+            return new Graph(edges);
+        }
+    }
+
+    static <A, C> Set<C> reachableFrom(SemanticRelation<A, C> semantics, List<C> from) {
+        var known = new HashSet<C>();
+        var frontier = new ArrayDeque<>(from);
+        while (!frontier.isEmpty()) {
+            var state = frontier.pop();
+            if (!known.add(state)) continue;
+            for (var action : semantics.actions(state)) {
+                frontier.addAll(semantics.execute(action, state));
+            }
+        }
+        return known;
+    }
+
+    /** the reference verdict: an accepting state reachable from the initial ones and from one of its successors */
+    static <A, C> boolean empty(SemanticRelation<A, C> semantics, Predicate<C> accepting) {
+        for (var state : reachableFrom(semantics, semantics.initial())) {
+            if (!accepting.test(state)) continue;
+            var successors = new ArrayList<C>();
+            for (var action : semantics.actions(state)) {
+                successors.addAll(semantics.execute(action, state));
+            }
+            if (reachableFrom(semantics, successors).contains(state)) return false;
+        }
+        return true;
+    }
+
+    static <A, C> void assertLasso(SemanticRelation<A, C> semantics, Predicate<C> accepting, LassoResult<A, C> result) {
+        assertFalse(result.holds());
+        var trace = result.trace();
+        assertEquals(trace.size(), result.actions().size() + 1);
+        assertTrue(semantics.initial().contains(trace.getFirst()));
+        assertTrue(result.cycleStart() >= 0 && result.cycleStart() < trace.size() - 1);
+        assertEquals(trace.get(result.cycleStart()), trace.getLast());
+        for (int i = 0; i < result.actions().size(); i++) {
+            assertTrue(semantics.actions(trace.get(i)).contains(result.actions().get(i)));
+            assertTrue(semantics.execute(result.actions().get(i), trace.get(i)).contains(trace.get(i + 1)));
+        }
+        assertTrue(trace.subList(result.cycleStart(), trace.size()).stream().anyMatch(accepting));
+    }
+
+    @Test
+    void testAcceptingCycle() {
+        // 0 -> 1 -> 2 -> 3 -> 1, 2 -> 4 -> 4
+        var graph = new Graph(List.of(List.of(1), List.of(2), List.of(3, 4), List.of(1), List.of(4)));
+        Predicate<Integer> accepting = state -> state == 3;
+        var result = new ParallelNestedDfs<>(graph, accepting, 4, 0).run();
+        assertLasso(graph, accepting, result);
+    }
+
+    @Test
+    void testAcceptingStateOffCycles() {
+        // 0 -> 1 -> 2 -> 1, 0 -> 3 -> 4 -> 4
+        var graph = new Graph(List.of(List.of(1, 3), List.of(2), List.of(1), List.of(4), List.of(4)));
+        var result = new ParallelNestedDfs<>(graph, state -> state == 3 || state == 0, 4, 0).run();
+        assertTrue(result.holds());
+        assertEquals(5, result.states());
+    }
+
+    @Test
+    void testMatchesSequentialVerdicts() {
+        var random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            var graph = Graph.random(random, 30, 2);
+            var acceptingStates = new HashSet<Integer>();
+            for (int j = 0; j < 3; j++) acceptingStates.add(random.nextInt(30));
+            Predicate<Integer> accepting = acceptingStates::contains;
+            var expected = empty(graph, accepting);
+            for (var threads : List.of(1, 4)) {
+                var result = new ParallelNestedDfs<>(graph, accepting, threads, i).run();
+                assertEquals(expected, result.holds(), "graph " + i + " with " + threads + " workers");
+                if (!expected) assertLasso(graph, accepting, result);
+            }
+        }
+    }
+
+    @Test
+    void testSoupProduct() throws Exception {
+        var seen = StateStoreTest.predicate("seen");
+        Predicate<StepProduct.State<Environment, Environment>> accepting = state -> seen.test(state.property());
+        // accepting whenever the model step reaches x == 3
+        var property = Reader.readSoup("var seen = false; | watch: [true] / seen = @x' == 3");
+
+        var cycling = Reader.readSoup("var x = 0; inc: [x < 3] / x = x + 1 | reset: [x == 3] / x = 0");
+        var product = new StepProduct<>(
+                new SoupSemantics(cycling).pureSemantics(), new SoupStepDependentSemantics(property).pureSemantics());
+        var result = new ParallelNestedDfs<>(product, accepting, 2, 0).run();
+        assertLasso(product, accepting, result);
+
+        var bounded = Reader.readSoup("var x = 0; inc: [x < 2] / x = x + 1 | reset: [x == 2] / x = 0");
+        product = new StepProduct<>(
+                new SoupSemantics(bounded).pureSemantics(), new SoupStepDependentSemantics(property).pureSemantics());
+        result = new ParallelNestedDfs<>(product, accepting, 2, 0).run();
+        assertTrue(result.holds());
+        assertEquals(reachableFrom(product, product.initial()).size(), result.states());
+    }
+}
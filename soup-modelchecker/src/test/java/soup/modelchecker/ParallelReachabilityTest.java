@@ -0,0 +1,80 @@
+package soup.modelchecker;
+
+import org.junit.jupiter.api.Test;
+import soup.modelchecker.reachability.ParallelReachability;
+import soup.modelchecker.reachability.ReachabilityResult;
+import soup.modelchecker.store.HashStateStore;
+import soup.modelchecker.store.OffHeapStateStore;
+import soup.modelchecker.store.StateStore;
+import soup.semantics.base.SoupSemantics;
+import soup.syntax.model.declarations.Soup;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelReachabilityTest {
+
+    static ParallelReachability engine(Soup soup, String predicate, StateStore store, int threads, int depthBound)
+            throws Exception {
+        return new ParallelReachability(
+                new SoupSemantics(soup).pureSemantics(),
+                StateStoreTest.predicate(predicate),
+                store,
+                threads,
+                depthBound);
+    }
+
+    @Test
+    void testExploresAllStates() throws Exception {
+        var soup = StateStoreTest.grid();
+        var expected = StateStoreTest.allStates(soup).size();
+        var result = engine(soup, "false", new HashStateStore(), 4, -1).run();
+        assertTrue(result.holds());
+        assertEquals(expected, result.states());
+        try (var store = new OffHeapStateStore(2, Long.MAX_VALUE)) {
+            result = engine(soup, "false", store, 4, -1).run();
+            assertTrue(result.holds());
+            assertEquals(expected, result.states());
+        }
+    }
+
+    @Test
+    void testCounterexampleTrace() throws Exception {
+        var soup = StateStoreTest.grid();
+        ReachabilityResult result;
+        try (var store = new OffHeapStateStore()) {
+            result = engine(soup, "x == 12 && y == 7", store, 4, -1).run();
+        }
+        assertFalse(result.holds());
+        assertEquals(result.trace().size(), result.actions().size() + 1);
+        assertEquals(0, result.trace().getFirst().lookup("x"));
+        assertEquals(12, result.trace().getLast().lookup("x"));
+        assertEquals(7, result.trace().getLast().lookup("y"));
+        // every step of the trace replays in the semantics
+        var semantics = new SoupSemantics(soup).pureSemantics();
+        for (int i = 0; i < result.actions().size(); i++) {
+            var successors = semantics.execute(result.actions().get(i), result.trace().get(i));
+            assertTrue(successors.contains(result.trace().get(i + 1)));
+        }
+    }
+
+    @Test
+    void testSingleWorker() throws Exception {
+        var soup = StateStoreTest.grid();
+        var engine = engine(soup, "x == 15 && y == 15", new HashStateStore(), 1, -1);
+        assertFalse(engine.run().holds());
+        assertEquals(0, engine.steals());
+    }
+
+    @Test
+    void testDepthBound() throws Exception {
+        var soup = StateStoreTest.grid();
+        var result = engine(soup, "x == 15 && y == 15", new HashStateStore(), 4, 10).run();
+        assertTrue(result.holds());
+    }
+
+    @Test
+    void testRejectsNoWorker() throws Exception {
+        var soup = StateStoreTest.grid();
+        assertThrows(IllegalArgumentException.class, () -> engine(soup, "false", new HashStateStore(), 0, -1));
+    }
+}
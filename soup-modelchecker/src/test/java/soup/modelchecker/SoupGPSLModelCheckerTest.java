@@ -8,6 +8,7 @@ import obp3.runtime.sli.Step;
 import obp3.sli.core.operators.product.Product;
 import org.junit.jupiter.api.Test;
 import soup.semantics.base.Environment;
+import soup.semantics.dependent.SoupStepDependentSemantics;
 import soup.syntax.Reader;
 import soup.syntax.model.declarations.Soup;
 
@@ -951,4 +952,41 @@ public class SoupGPSLModelCheckerTest {
         var result = mc(model, noMutualWaiting);
         assertTrue(result.holds);
     }
+
+    @Test
+    void testAliceBob0ExclusionLTLReduced() throws Exception {
+        var model = readSoup("alice-bob0.soup");
+        var result = SoupGPSLModelChecker.soupGPSLModelChecker(model, exclusionLTL, false, true).runAlone();
+        assertFalse(result.holds);
+    }
+
+    @Test
+    void testAliceBob4ExclusionLTLReduced() throws Exception {
+        var model = readSoup("alice-bob4.soup");
+        var result = SoupGPSLModelChecker.soupGPSLModelChecker(model, exclusionLTL, false, true).runAlone();
+        assertTrue(result.holds);
+    }
+
+    @Test
+    void testParallelEmptiness() throws Exception {
+        // once both are in the critical section, the property stays accepting forever
+        var property = Reader.readSoup("var bad = false; | watch: [true] / bad = bad || @a' == 2 && @b' == 2");
+        var bad = StateStoreTest.predicate("bad");
+        var violated = SoupGPSLModelChecker.parallelEmptiness(
+                readSoup("alice-bob0.soup"),
+                new SoupStepDependentSemantics(property).pureSemantics(),
+                bad,
+                4,
+                0);
+        assertFalse(violated.holds());
+        assertTrue(violated.trace().stream().anyMatch(
+                state -> state.model().lookup("a").equals(2) && state.model().lookup("b").equals(2)));
+        var holds = SoupGPSLModelChecker.parallelEmptiness(
+                readSoup("alice-bob4.soup"),
+                new SoupStepDependentSemantics(property).pureSemantics(),
+                bad,
+                4,
+                0);
+        assertTrue(holds.holds());
+    }
 }
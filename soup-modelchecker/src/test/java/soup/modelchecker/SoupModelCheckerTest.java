@@ -7,6 +7,9 @@ import obp3.sli.core.operators.product.Product;
 import obp3.traversal.dfs.DepthFirstTraversal;
 import obp3.utils.Either;
 import org.junit.jupiter.api.Test;
+import soup.modelchecker.reachability.ReachabilityResult;
+import soup.modelchecker.store.HashStateStore;
+import soup.modelchecker.store.OffHeapStateStore;
 import soup.semantics.base.Environment;
 import soup.syntax.Reader;
 import soup.syntax.model.declarations.Soup;
@@ -439,4 +442,104 @@ public class SoupModelCheckerTest {
         var result = buchiMc(model, prop, pred).runAlone();
         assertTrue(result.holds);
     }
+
+    /// STATE STORE ENTRY POINTS, over the 16 x 16 grid of StateStoreTest
+    static final String WATCH_12_7 = "var bad = false; | watch: [true] / bad = @x' == 12 && @y' == 7";
+
+    SoupSoupModelChecker checker(Soup property, boolean isBuchi, String predicate, int depthBound) throws Exception {
+        return new SoupSoupModelChecker(
+                StateStoreTest.grid(),
+                property,
+                isBuchi,
+                Reader.readExpression(predicate),
+                DepthFirstTraversal.Algorithm.WHILE,
+                depthBound);
+    }
+
+    static void assertReaches(ReachabilityResult result, int x, int y) {
+        assertFalse(result.holds());
+        assertEquals(result.trace().size(), result.actions().size() + 1);
+        assertEquals(x, result.trace().getLast().lookup("x"));
+        assertEquals(y, result.trace().getLast().lookup("y"));
+    }
+
+    @Test
+    void testReachability() throws Exception {
+        var result = checker(null, false, "x == 16", -1).reachability(new HashStateStore());
+        assertTrue(result.holds());
+        assertEquals(256, result.states());
+        assertReaches(checker(null, false, "x == 12 && y == 7", -1).reachability(new HashStateStore()), 12, 7);
+
+        var property = Reader.readSoup(WATCH_12_7);
+        assertReaches(checker(property, false, "bad", -1).reachability(new HashStateStore()), 12, 7);
+        assertThrows(UnsupportedOperationException.class,
+                () -> checker(property, true, "bad", -1).reachability(new HashStateStore()));
+    }
+
+    @Test
+    void testBitstate() throws Exception {
+        var result = checker(null, false, "x == 16", -1).bitstate(1, 3);
+        assertTrue(result.holds());
+        assertEquals(256, result.states());
+        assertTrue(result.storeReport().contains("estimated coverage"));
+        assertReaches(checker(Reader.readSoup(WATCH_12_7), false, "bad", -1).bitstate(1, 3), 12, 7);
+    }
+
+    @Test
+    void testHashCompaction() throws Exception {
+        var result = checker(null, false, "x == 16", -1).hashCompaction();
+        assertTrue(result.holds());
+        assertEquals(256, result.states());
+        assertReaches(checker(null, false, "x == 12 && y == 7", -1).hashCompaction(), 12, 7);
+    }
+
+    @Test
+    void testParallelReachability() throws Exception {
+        var result = checker(null, false, "x == 16", -1).parallelReachability(new HashStateStore(), 4);
+        assertTrue(result.holds());
+        assertEquals(256, result.states());
+        try (var store = new OffHeapStateStore()) {
+            assertReaches(checker(null, false, "x == 12 && y == 7", -1).parallelReachability(store, 4), 12, 7);
+        }
+        assertThrows(UnsupportedOperationException.class,
+                () -> checker(Reader.readSoup(WATCH_12_7), false, "bad", -1).parallelReachability(new HashStateStore(), 4));
+    }
+
+    @Test
+    void testSwarm() throws Exception {
+        assertReaches(checker(null, false, "x == 12 && y == 7", 512).swarm(4, 42, 1 << 24), 12, 7);
+        assertTrue(checker(null, false, "x == 16", 512).swarm(4, 42, 1 << 24).holds());
+        assertThrows(IllegalArgumentException.class, () -> checker(null, false, "false", -1).swarm(4, 42, 1 << 24));
+    }
+
+    @Test
+    void testStateless() throws Exception {
+        // the grid observes both its variables, its interleavings are not reduced
+        var counters = Reader.readSoup(StatelessSearchTest.COUNTERS);
+        var result = new SoupSoupModelChecker(
+                counters, null, false, Reader.readExpression("a == 2 && c == 1"), DepthFirstTraversal.Algorithm.WHILE, 20)
+                .stateless();
+        assertFalse(result.holds());
+        assertEquals(2, result.trace().getLast().lookup("a"));
+        assertEquals(1, result.trace().getLast().lookup("c"));
+        assertTrue(new SoupSoupModelChecker(
+                counters, null, false, Reader.readExpression("a == 3"), DepthFirstTraversal.Algorithm.WHILE, 20)
+                .stateless().holds());
+        assertThrows(IllegalArgumentException.class, () -> checker(null, false, "false", -1).stateless());
+    }
+
+    @Test
+    void testParallelEmptiness() throws Exception {
+        // accepting at each reset, which the grid reaches again and again
+        var resets = Reader.readSoup("var seen = false; | watch: [true] / seen = @x' == 0 && @y' == 0");
+        var result = checker(resets, true, "seen", -1).parallelEmptiness(4, 0);
+        assertFalse(result.holds());
+        assertTrue(result.cycleStart() >= 0);
+        assertEquals(result.trace().getLast(), result.trace().get(result.cycleStart()));
+
+        var never = Reader.readSoup("var seen = false; | watch: [true] / seen = @x' == 16");
+        assertTrue(checker(never, true, "seen", -1).parallelEmptiness(4, 0).holds());
+        assertThrows(UnsupportedOperationException.class,
+                () -> checker(resets, false, "seen", -1).parallelEmptiness(4, 0));
+    }
 }
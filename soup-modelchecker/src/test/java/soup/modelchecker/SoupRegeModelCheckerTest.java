@@ -121,4 +121,12 @@ public class SoupRegeModelCheckerTest {
         var result = mc(model, flagDiscipline).runAlone();
         assertTrue(result.holds);
     }
+
+    @Test
+    void testAliceBobExclusionSliced() throws Exception {
+        var unsafe = SoupRegeModelChecker.soupRegeModelChecker(readSoup("alice-bob0.soup"), exclusionRege, true).runAlone();
+        assertFalse(unsafe.holds);
+        var safe = SoupRegeModelChecker.soupRegeModelChecker(readSoup("alice-bob1.soup"), exclusionRege, true).runAlone();
+        assertTrue(safe.holds);
+    }
 }
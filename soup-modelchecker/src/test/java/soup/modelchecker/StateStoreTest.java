@@ -0,0 +1,345 @@
+package soup.modelchecker;
+
+import org.junit.jupiter.api.Test;
+import soup.modelchecker.emptiness.StepProduct;
+import soup.modelchecker.reachability.ParallelReachability;
+import soup.modelchecker.reachability.Reachability;
+import soup.modelchecker.store.BitstateStore;
+import soup.modelchecker.store.HashCompactionStore;
+import soup.modelchecker.store.HashStateStore;
+import soup.modelchecker.store.OffHeapStateStore;
+import soup.modelchecker.store.StateStore;
+import soup.modelchecker.store.StateStoreFullException;
+import soup.modelchecker.store.TreeCompressionStore;
+import soup.semantics.base.Environment;
+import soup.semantics.base.SoupSemantics;
+import soup.semantics.dependent.SoupStepDependentSemantics;
+import soup.semantics.diagnosis.DiagnosisExpressionSemantics;
+import soup.syntax.Reader;
+import soup.syntax.model.declarations.Soup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StateStoreTest {
+    static final String GRID = """
+            var x = 0; y = 0;
+            incx: [x < 15] / x = x + 1
+            | incy: [y < 15] / y = y + 1
+            | reset: [x == 15 && y == 15] / x = 0; y = 0
+            """;
+
+    /** eight independent double toggles, one packed word each */
+    static final String TOGGLES = """
+            var a = 0.0; b = 0.0; c = 0.0; d = 0.0; e = 0.0; f = 0.0; g = 0.0; h = 0.0;
+            ta: / a = 1.0 - a | tb: / b = 1.0 - b | tc: / c = 1.0 - c | td: / d = 1.0 - d
+            | te: / e = 1.0 - e | tf: / f = 1.0 - f | tg: / g = 1.0 - g | th: / h = 1.0 - h
+            """;
+
+    static Soup grid() throws Exception {
+        return Reader.readSoup(GRID);
+    }
+
+    /** the predicate holding in the states where the expression evaluates to true */
+    static Predicate<Environment> predicate(String expression) throws Exception {
+        var evaluator = new DiagnosisExpressionSemantics();
+        var parsed = Reader.readExpression(expression);
+        return c -> (boolean) evaluator.evaluate(parsed, c);
+    }
+
+    static boolean check(Soup soup, String predicate, StateStore store) throws Exception {
+        var result = Reachability.of(
+                new SoupSemantics(soup).pureSemantics(),
+                predicate(predicate),
+                store,
+                -1).run();
+        return result.holds();
+    }
+
+    static List<Environment> allStates(Soup soup) {
+        var semantics = new SoupSemantics(soup).pureSemantics();
+        var result = new ArrayList<Environment>();
+        var store = new HashStateStore();
+        var frontier = new ArrayList<>(semantics.initial());
+        while (!frontier.isEmpty()) {
+            var state = frontier.removeLast();
+            if (!store.add(state)) continue;
+            result.add(state);
+            for (var action : semantics.actions(state)) {
+                frontier.addAll(semantics.execute(action, state));
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void testOffHeapMatchesHashStore() throws Exception {
+        var soup = grid();
+        try (var offHeap = new OffHeapStateStore(4, Long.MAX_VALUE)) {
+            var heap = new HashStateStore();
+            assertTrue(check(soup, "x == 16", offHeap));
+            assertTrue(check(soup, "x == 16", heap));
+            assertEquals(256, offHeap.size());
+            assertEquals(heap.size(), offHeap.size());
+            assertTrue(offHeap.capacity() >= 512);
+            for (var state : allStates(soup)) {
+                assertTrue(offHeap.contains(state));
+                assertFalse(offHeap.add(new Environment(state)));
+            }
+        }
+        assertFalse(check(soup, "x == 15 && y == 3", new OffHeapStateStore()));
+    }
+
+    @Test
+    void testCounterexampleTrace() throws Exception {
+        var soup = grid();
+        try (var store = new OffHeapStateStore()) {
+            var result = Reachability.of(
+                    new SoupSemantics(soup).pureSemantics(),
+                    predicate("x == 2 && y == 1"),
+                    store,
+                    -1).run();
+            assertFalse(result.holds());
+            assertEquals(result.trace().size(), result.actions().size() + 1);
+            assertEquals(0, result.trace().getFirst().lookup("x"));
+            assertEquals(2, result.trace().getLast().lookup("x"));
+            assertEquals(1, result.trace().getLast().lookup("y"));
+        }
+    }
+
+    @Test
+    void testDepthBound() throws Exception {
+        var soup = grid();
+        var result = Reachability.of(
+                new SoupSemantics(soup).pureSemantics(),
+                predicate("x == 15 && y == 15"),
+                new OffHeapStateStore(),
+                10).run();
+        assertTrue(result.holds());
+    }
+
+    @Test
+    void testMemoryAccounting() throws Exception {
+        var states = allStates(grid());
+        try (var store = new OffHeapStateStore(1024, Long.MAX_VALUE)) {
+            assertEquals(1024 * Long.BYTES, store.memoryBytes());
+            states.forEach(store::add);
+            assertTrue(store.memoryBytes() > 1024 * Long.BYTES);
+        }
+        try (var store = new OffHeapStateStore(16, 1024)) {
+            assertThrows(StateStoreFullException.class, () -> states.forEach(store::add));
+            assertTrue(store.memoryBytes() <= 1024);
+        }
+        // the index is refused before it is allocated
+        assertThrows(IllegalStateException.class, () -> new OffHeapStateStore(1 << 20, 1024));
+    }
+
+    @Test
+    void testRejectsMapBackedStates() {
+        try (var store = new OffHeapStateStore()) {
+            assertThrows(IllegalArgumentException.class, () -> store.add(new Environment()));
+        }
+    }
+
+    @Test
+    void testConcurrentAdds() throws Exception {
+        var states = allStates(grid());
+        try (var store = new OffHeapStateStore(2, Long.MAX_VALUE)) {
+            var added = new AtomicLong();
+            var threads = new ArrayList<Thread>();
+            for (int t = 0; t < 4; t++) {
+                threads.add(Thread.ofPlatform().start(() -> {
+                    for (var state : states) {
+                        if (store.add(state)) added.incrementAndGet();
+                    }
+                }));
+            }
+            for (var thread : threads) thread.join();
+            assertEquals(states.size(), added.get());
+            assertEquals(states.size(), store.size());
+            states.forEach(state -> assertTrue(store.contains(state)));
+        }
+    }
+
+    @Test
+    void testTreeCompressionMatchesHashStore() throws Exception {
+        var soup = Reader.readSoup(TOGGLES);
+        var store = new TreeCompressionStore();
+        assertTrue(check(soup, "a == 2.0", store));
+        assertEquals(256, store.size());
+        for (var state : allStates(soup)) {
+            assertTrue(store.contains(state));
+            assertFalse(store.add(new Environment(state)));
+        }
+        // 4 + 4 + 4 + 4 leaf pairs, 16 + 16 halves and 256 roots
+        assertEquals(304, store.entries());
+        assertTrue(store.compressionRatio() > 3);
+        assertFalse(check(soup, "a == 1.0 && h == 1.0", new TreeCompressionStore()));
+    }
+
+    @Test
+    void testTreeCompressionSingleWord() throws Exception {
+        var soup = grid();
+        var store = new TreeCompressionStore();
+        assertTrue(check(soup, "x == 16", store));
+        assertEquals(256, store.size());
+        var states = allStates(soup);
+        states.forEach(state -> assertTrue(store.contains(state)));
+    }
+
+    @Test
+    void testBitstateMatchesHashStore() throws Exception {
+        var soup = grid();
+        var store = new BitstateStore(1, 3);
+        assertTrue(check(soup, "x == 16", store));
+        assertEquals(256, store.size());
+        allStates(soup).forEach(state -> assertTrue(store.contains(state)));
+        assertTrue(store.omissionProbability(store.size()) < 1e-9);
+        assertTrue(store.coverage() > 0.999999);
+        assertTrue(store.report().contains("estimated coverage"));
+        assertFalse(check(soup, "x == 12 && y == 7", new BitstateStore(1, 3, 17)));
+    }
+
+    @Test
+    void testBitstateEstimates() {
+        var store = new BitstateStore(1, 4);
+        for (long i = 0; i < 1_000_000; i++) {
+            store.addHash(i);
+        }
+        // 8 Mbits for a million states: about one new state in fifty is lost
+        var omission = store.omissionProbability(store.size());
+        assertTrue(omission > 0.01 && omission < 0.05, "omission " + omission);
+        assertTrue(store.size() < 1_000_000);
+        var coverage = store.coverage();
+        assertTrue(coverage > 0.9 && coverage < 1, "coverage " + coverage);
+        assertTrue(Math.abs(store.size() / 1e6 - coverage) < 0.02);
+        assertThrows(IllegalArgumentException.class, () -> new BitstateStore(0, 3));
+        assertThrows(IllegalArgumentException.class, () -> new BitstateStore(1, 0));
+    }
+
+    @Test
+    void testProductReachability() throws Exception {
+        var soup = grid();
+        var bad = predicate("bad");
+        var property = Reader.readSoup("var bad = false; | watch: [true] / bad = @x' == 12 && @y' == 7");
+        var product = new StepProduct<>(
+                new SoupSemantics(soup).pureSemantics(), new SoupStepDependentSemantics(property).pureSemantics());
+        var result = Reachability.product(
+                product, state -> bad.test(state.property()), new BitstateStore(1, 3), -1).run();
+        assertFalse(result.holds());
+        assertEquals(result.trace().size(), result.actions().size() + 1);
+        assertEquals(12, result.trace().getLast().lookup("x"));
+        assertEquals(7, result.trace().getLast().lookup("y"));
+
+        var never = Reader.readSoup("var bad = false; | watch: [true] / bad = @x' == 16");
+        var neverProduct = new StepProduct<>(
+                new SoupSemantics(soup).pureSemantics(), new SoupStepDependentSemantics(never).pureSemantics());
+        var store = new BitstateStore(1, 3);
+        assertTrue(Reachability.product(
+                neverProduct, state -> bad.test(state.property()), store, -1).run().holds());
+        assertEquals(256, store.size());
+    }
+
+    @Test
+    void testProductReachabilityWithExactStores() throws Exception {
+        var soup = grid();
+        var bad = predicate("bad");
+        var property = Reader.readSoup("var bad = false; | watch: [true] / bad = @x' == 12 && @y' == 7");
+        var never = Reader.readSoup("var bad = false; | watch: [true] / bad = @x' == 16");
+        for (var factory : List.<Supplier<StateStore>>of(
+                HashStateStore::new, OffHeapStateStore::new, TreeCompressionStore::new)) {
+            var product = new StepProduct<>(
+                    new SoupSemantics(soup).pureSemantics(), new SoupStepDependentSemantics(property).pureSemantics());
+            try (var store = factory.get()) {
+                var result = Reachability.product(
+                        product, state -> bad.test(state.property()), store, -1).run();
+                assertFalse(result.holds());
+                assertEquals(12, result.trace().getLast().lookup("x"));
+                assertEquals(7, result.trace().getLast().lookup("y"));
+            }
+
+            var neverProduct = new StepProduct<>(
+                    new SoupSemantics(soup).pureSemantics(), new SoupStepDependentSemantics(never).pureSemantics());
+            try (var store = factory.get()) {
+                assertTrue(Reachability.product(
+                        neverProduct, state -> bad.test(state.property()), store, -1).run().holds());
+                // the property state only differs from the model one by its flag, never set
+                assertEquals(256, store.size());
+            }
+        }
+    }
+
+    @Test
+    void testStopProductReachability() throws Exception {
+        var soup = grid();
+        var property = Reader.readSoup("var bad = false; | watch: [true] / bad = false");
+        var product = new StepProduct<>(
+                new SoupSemantics(soup).pureSemantics(), new SoupStepDependentSemantics(property).pureSemantics());
+        var search = Reachability.product(product, state -> false, new HashStateStore(), -1);
+        search.stop();
+        var result = search.run();
+        assertTrue(result.holds());
+        assertEquals(0, result.states());
+    }
+
+    @Test
+    void testHashCompactionMatchesHashStore() throws Exception {
+        var soup = grid();
+        var store = new HashCompactionStore(2, 0);
+        assertTrue(check(soup, "x == 16", store));
+        assertEquals(256, store.size());
+        var states = allStates(soup);
+        states.forEach(state -> assertTrue(store.contains(state)));
+        states.forEach(state -> assertFalse(store.add(new Environment(state))));
+        // grown from 2 slots, at most 8 bytes per state over the load factor
+        assertEquals(512, store.memoryBytes() / Long.BYTES);
+        assertTrue(store.omissionProbability() < 1e-14);
+        assertTrue(store.report().contains("omission probability"));
+        assertFalse(check(soup, "x == 12 && y == 7", new HashCompactionStore(16, 3)));
+    }
+
+    @Test
+    void testHashCompactionConcurrentAdds() throws Exception {
+        var store = new HashCompactionStore(2, 0);
+        var added = new AtomicLong();
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (long i = 0; i < 100_000; i++) {
+                    if (store.addHash(i)) added.incrementAndGet();
+                }
+            }));
+        }
+        for (var thread : threads) thread.join();
+        assertEquals(100_000, added.get());
+        assertEquals(100_000, store.size());
+        for (long i = 0; i < 100_000; i++) assertTrue(store.containsHash(i));
+    }
+
+    @Test
+    void testCounterexampleReplay() throws Exception {
+        var soup = grid();
+        var semantics = new SoupSemantics(soup).pureSemantics();
+        var result = new ParallelReachability(
+                semantics, predicate("x == 9 && y == 4"), new HashCompactionStore(), 4, -1).run();
+        assertFalse(result.holds());
+        assertEquals(result.trace().size(), result.actions().size() + 1);
+        assertEquals(9, result.trace().getLast().lookup("x"));
+        assertEquals(4, result.trace().getLast().lookup("y"));
+
+        var initial = semantics.initial().getFirst();
+        var incx = soup.pieces.getFirst();
+        var reset = soup.pieces.getLast();
+        var trace = Reachability.replay(semantics, initial, List.of(incx, incx), List.of(0, 0));
+        assertEquals(2, trace.getLast().lookup("x"));
+        assertThrows(IllegalStateException.class,
+                () -> Reachability.replay(semantics, initial, List.of(incx, reset), List.of(0, 0)));
+        assertThrows(IllegalStateException.class,
+                () -> Reachability.replay(semantics, initial, List.of(incx), List.of(1)));
+    }
+}
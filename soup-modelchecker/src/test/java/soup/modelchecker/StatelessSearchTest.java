@@ -0,0 +1,112 @@
+package soup.modelchecker;
+
+import org.junit.jupiter.api.Test;
+import soup.modelchecker.reachability.ReachabilityResult;
+import soup.modelchecker.reachability.StatelessSearch;
+import soup.semantics.base.SoupSemantics;
+import soup.syntax.Reader;
+import soup.syntax.model.declarations.Soup;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatelessSearchTest {
+    static final String COUNTERS = """
+            var a = 0; b = 0; c = 0;
+            incA: [a < 2] / a = a + 1
+            | incB: [b < 2] / b = b + 1
+            | incC: [c < 2] / c = c + 1
+            """;
+
+    // x ends in 9 or 16 depending on the order of the writers, n counts on its own
+    static final String WRITERS = """
+            var x = 1; d1 = 0; d2 = 0; d3 = 0; n = 0;
+            double: [d1 == 0] / d1 = 1; x = x * 2
+            | increment: [d2 == 0] / d2 = 1; x = x + 1
+            | square: [d3 == 0 && x > 2] / d3 = 1; x = x * x
+            | count: [n < 3] / n = n + 1
+            """;
+
+    static ReachabilityResult search(Soup soup, String predicate, Set<String> observed, int depthBound)
+            throws Exception {
+        return new StatelessSearch(
+                new SoupSemantics(soup),
+                StateStoreTest.predicate(predicate),
+                observed,
+                depthBound).run();
+    }
+
+    @Test
+    void testIndependentPiecesExploredOnce() throws Exception {
+        var soup = Reader.readSoup(COUNTERS);
+        var result = search(soup, "a == 3", Set.of("a"), 20);
+        assertTrue(result.holds());
+        // a single execution of the 90 interleavings
+        assertEquals(7, result.states());
+        assertTrue(result.storeReport().contains("1 executions"));
+    }
+
+    @Test
+    void testDeadlockReached() throws Exception {
+        var soup = Reader.readSoup(COUNTERS);
+        var result = search(soup, "a == 2 && b == 2 && c == 2", Set.of("a", "b", "c"), 20);
+        assertFalse(result.holds());
+        assertEquals(7, result.trace().size());
+        assertEquals(6, result.actions().size());
+    }
+
+    @Test
+    void testRacesAreReversed() throws Exception {
+        var soup = Reader.readSoup(WRITERS);
+        var reachable = new HashSet<Object>();
+        for (var state : StateStoreTest.allStates(soup)) {
+            reachable.add(state.lookup("x"));
+        }
+        assertEquals(Set.of(1, 2, 3, 4, 9, 16), reachable);
+        for (var value : reachable) {
+            var result = search(soup, "x == " + value, Set.of("x"), 20);
+            assertFalse(result.holds(), "x == " + value);
+            assertEquals(value, result.trace().getLast().lookup("x"));
+        }
+        assertTrue(search(soup, "x == 6", Set.of("x"), 20).holds());
+    }
+
+    @Test
+    void testFewerExecutionsThanInterleavings() throws Exception {
+        var soup = Reader.readSoup(WRITERS);
+        var reduced = search(soup, "false", Set.of("x"), 20);
+        var full = search(soup, "false", Set.of("x", "n"), 20);
+        assertTrue(reduced.holds());
+        assertTrue(reduced.states() < full.states());
+    }
+
+    @Test
+    void testDepthBound() throws Exception {
+        var soup = Reader.readSoup(COUNTERS);
+        var result = search(soup, "a == 2 && b == 2 && c == 2", Set.of("a", "b", "c"), 5);
+        assertTrue(result.holds());
+        assertTrue(result.storeReport().contains("truncated"));
+    }
+
+    @Test
+    void testRacesAtTheDepthBound() throws Exception {
+        // a is explored first, its race with b is only seen from the state at the bound
+        var soup = Reader.readSoup("var x = 0; a: [x == 0] / x = 1 | b: [x == 0] / x = 2");
+        var result = search(soup, "x == 2", Set.of("x"), 1);
+        assertFalse(result.holds());
+        assertEquals(2, result.trace().size());
+        assertEquals(2, result.trace().getLast().lookup("x"));
+        assertTrue(search(soup, "x == 2", Set.of("x"), 0).holds());
+    }
+
+    @Test
+    void testCyclicSoups() throws Exception {
+        var soup = Reader.readSoup("var x = 0; inc: [x < 3] / x = x + 1 | reset: [x == 3] / x = 0");
+        assertThrows(IllegalArgumentException.class, () -> search(soup, "false", Set.of("x"), -1));
+        var result = search(soup, "false", Set.of("x"), 12);
+        assertTrue(result.holds());
+        assertEquals(13, result.states());
+    }
+}
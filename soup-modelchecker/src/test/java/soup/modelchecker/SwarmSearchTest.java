@@ -0,0 +1,100 @@
+package soup.modelchecker;
+
+import org.junit.jupiter.api.Test;
+import soup.modelchecker.reachability.SwarmSearch;
+import soup.modelchecker.store.HashStateStore;
+import soup.semantics.base.SoupSemantics;
+import soup.syntax.model.declarations.Soup;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SwarmSearchTest {
+
+    static SwarmSearch swarm(Soup soup, String predicate, int workers, int maxDepth, long memoryBytes)
+            throws Exception {
+        return new SwarmSearch(
+                new SoupSemantics(soup).pureSemantics(),
+                StateStoreTest.predicate(predicate),
+                workers,
+                42,
+                maxDepth,
+                memoryBytes);
+    }
+
+    @Test
+    void testFindsCounterexample() throws Exception {
+        var soup = StateStoreTest.grid();
+        var swarm = swarm(soup, "x == 12 && y == 7", 8, 512, 1 << 24);
+        var result = swarm.run();
+        assertFalse(result.holds());
+        assertTrue(swarm.winner() >= 0);
+        assertEquals(result.trace().size(), result.actions().size() + 1);
+        assertEquals(12, result.trace().getLast().lookup("x"));
+        assertEquals(7, result.trace().getLast().lookup("y"));
+        var semantics = new SoupSemantics(soup).pureSemantics();
+        for (int i = 0; i < result.actions().size(); i++) {
+            assertTrue(semantics.execute(result.actions().get(i), result.trace().get(i)).contains(result.trace().get(i + 1)));
+        }
+    }
+
+    @Test
+    void testWorkersExhaustSmallModels() throws Exception {
+        var soup = StateStoreTest.grid();
+        var expected = StateStoreTest.allStates(soup).size();
+        // bounds beyond the number of states never cut a search
+        var swarm = swarm(soup, "false", 4, 2 * expected, 1 << 24);
+        var result = swarm.run();
+        assertTrue(result.holds());
+        assertEquals(-1, swarm.winner());
+        assertEquals(4L * expected, result.states());
+        assertTrue(result.storeReport().contains("4 exhausted"));
+    }
+
+    @Test
+    void testDepthBounds() throws Exception {
+        var soup = StateStoreTest.grid();
+        var result = swarm(soup, "x == 15 && y == 15", 4, 20, 1 << 24).run();
+        assertTrue(result.holds());
+        assertThrows(IllegalArgumentException.class, () -> swarm(soup, "false", 4, -1, 1 << 24));
+    }
+
+    @Test
+    void testMemoryBudget() throws Exception {
+        var soup = StateStoreTest.grid();
+        // room for the initial index and a single chunk of 64 records
+        var result = swarm(soup, "false", 3, 512, 10_000).run();
+        assertTrue(result.holds());
+        assertTrue(result.storeReport().contains("3 out of memory"));
+        assertEquals(3 * 64, result.states());
+    }
+
+    @Test
+    void testPlatformThreadsAndCustomStores() throws Exception {
+        var soup = StateStoreTest.grid();
+        var result = new SwarmSearch(
+                new SoupSemantics(soup).pureSemantics(),
+                StateStoreTest.predicate("x == 3 && y == 14"),
+                2,
+                7,
+                512,
+                _ -> new HashStateStore(),
+                false).run();
+        assertFalse(result.holds());
+    }
+
+    @Test
+    void testOtherFailuresPropagate() throws Exception {
+        var soup = StateStoreTest.grid();
+        var swarm = new SwarmSearch(
+                new SoupSemantics(soup).pureSemantics(),
+                c -> {
+                    throw new IllegalStateException("broken predicate");
+                },
+                2,
+                7,
+                512,
+                1 << 24);
+        var thrown = assertThrows(IllegalStateException.class, swarm::run);
+        assertEquals("broken predicate", thrown.getMessage());
+    }
+}